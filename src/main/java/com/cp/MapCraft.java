@@ -1,8 +1,12 @@
 package com.cp;
 
 import com.cp.data.RecipeCollector;
-import com.cp.data.RecipeGraph;
+import com.cp.data.GraphSnapshot;
 import com.cp.input.KeybindHandler;
+import com.cp.network.GraphQueryServer;
+import com.cp.network.GraphSyncClient;
+import com.cp.network.GraphSyncServer;
+import net.fabricmc.api.EnvType;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.util.Identifier;
@@ -13,6 +17,8 @@ public class MapCraft implements ModInitializer {
     public static final String MOD_ID = "map-craft";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
     public static RecipeCollector collector = new RecipeCollector();
+    // 未启用时为null
+    public static GraphQueryServer queryServer;
 
 
     @Override
@@ -26,6 +32,19 @@ public class MapCraft implements ModInitializer {
             testModule.onInitialize();
         }
 
+        // 注册配方图网络同步（专用服务器上客户端不会自行收集配方）
+        GraphSyncServer.registerPayloads();
+        GraphSyncServer.register();
+
+        // 可选：按命名空间分片存储配方图（-Dmapcraft.shardBudgetMb=<内存预算MB>）
+        configureShardedStorage();
+
+        // 可选：本机查询服务（-Dmapcraft.queryPort=<端口>），只监听 127.0.0.1；
+        // 客户端在 initializeClient 中启动，查询与配方图界面相同的快照
+        if (FabricLoader.getInstance().getEnvironmentType() == EnvType.SERVER) {
+            queryServer = GraphQueryServer.startFromProperty(collector::getSnapshot);
+        }
+
         // 异步初始化配方图数据
         initializeRecipeGraphAsync();
 
@@ -37,9 +56,31 @@ public class MapCraft implements ModInitializer {
      */
     public static void initializeClient() {
         KeybindHandler.registerKeybinds();
+        GraphSyncClient.register();
+        // 连接专用服务器时本地不收集配方，优先使用同步到的快照
+        queryServer = GraphQueryServer.startFromProperty(GraphSyncClient::getGraph);
         LOGGER.info("初始化MapCraft客户端...");
     }
 
+    /**
+     * 根据系统属性启用分片存储
+     */
+    private static void configureShardedStorage() {
+        String budget = System.getProperty("mapcraft.shardBudgetMb");
+        if (budget == null) {
+            return;
+        }
+        try {
+            long budgetBytes = Long.parseLong(budget.trim()) * 1024L * 1024L;
+            collector.enableShardedStorage(
+                    FabricLoader.getInstance().getGameDir().resolve("map-craft").resolve("shards"),
+                    budgetBytes);
+            LOGGER.info("已启用配方图分片存储，内存预算: {}MB", budget.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warn("无效的分片内存预算: {}", budget);
+        }
+    }
+
     /**
      * 异步初始化配方图数据
      */
@@ -47,7 +88,7 @@ public class MapCraft implements ModInitializer {
         new Thread(() -> {
             try {
                 LOGGER.info("开始异步收集配方数据...");
-                RecipeGraph recipeGraph = collector.getRecipeGraph();
+                GraphSnapshot recipeGraph = collector.getSnapshot();
                 if (recipeGraph != null) {
                     LOGGER.info("配方图数据收集完成: {}个节点, {}条边",
                             recipeGraph.getNodeCount(), recipeGraph.getEdgeCount());
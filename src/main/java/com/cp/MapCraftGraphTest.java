@@ -1,20 +1,46 @@
 package com.cp;
 
+import com.cp.data.Centrality;
+import com.cp.data.DominatorTree;
+import com.cp.data.GraphDelta;
+import com.cp.data.GraphHistory;
+import com.cp.data.GraphQueries;
+import com.cp.data.GraphSnapshot;
+import com.cp.data.GraphStatistics;
+import com.cp.data.ProductionPlanner;
 import com.cp.data.RecipeCollector;
 import com.cp.data.RecipeGraph;
 import com.cp.data.RecipeNode;
 import com.cp.data.RecipeEdge;
+import com.cp.data.ShardedGraphStore;
+import com.cp.data.ShardedRecipeGraph;
+import com.cp.network.GraphCodec;
+import com.cp.network.GraphQueryServer;
 import com.cp.util.RecipeDataExporter;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.minecraft.item.Items;
-import net.minecraft.registry.Registries;
 import net.minecraft.util.Identifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class MapCraftGraphTest implements ModInitializer {
 	public static final Logger LOGGER = LoggerFactory.getLogger("MapCraftTest");
@@ -27,6 +53,9 @@ public class MapCraftGraphTest implements ModInitializer {
 	public MapCraftGraphTest(RecipeCollector collector)
 	{
 		this.collector=collector;
+		// 记录每次快照更新的差异（发布时已经算好，分片快照只对比了变化的分片）
+		collector.addListener(event -> LOGGER.info("配方图更新 v{} -> v{}: {}",
+				event.getPreviousVersion(), event.getVersion(), event.getDelta()));
 	}
 	@Override
 	public void onInitialize() {
@@ -47,8 +76,19 @@ public class MapCraftGraphTest implements ModInitializer {
 			long endTime = System.currentTimeMillis();
 			LOGGER.info("配方收集完成，耗时: {}ms", endTime - startTime);
 
+			// 快照历史：在两个小图上检查差异和结构共享，不依赖收集到的数据
+			testHistory();
+
 			// 2. 获取关系图
-			RecipeGraph graph = collector.getRecipeGraph();
+			GraphSnapshot snapshot = collector.getSnapshot();
+
+			// 分片模式下没有整图索引：跳过依赖整图的统计、验证和导出，检查内存预算
+			if (snapshot instanceof ShardedRecipeGraph sharded) {
+				testShardedBudget(sharded);
+				testQueryServer(sharded);
+				return;
+			}
+			RecipeGraph graph = (RecipeGraph) snapshot;
 
 			// 3. 打印基本统计信息
 			printGraphStatistics(graph);
@@ -58,6 +98,8 @@ public class MapCraftGraphTest implements ModInitializer {
 
 			// 5. 验证图的结构完整性
 			validateGraphStructure(graph);
+			testDominatedCycles(graph);
+			testCodecRoundTrip(graph);
 
 			// 6. 将完整数据导出到文件
 			String exportPath = exportRecipeData(graph);
@@ -78,18 +120,147 @@ public class MapCraftGraphTest implements ModInitializer {
 			// 9. 打印摘要（控制台输出保持不变）
 			collector.printGraphSummary();
 
+			// 10. 通过回环地址检查查询服务
+			testQueryServer(graph);
+
 		} catch (Exception e) {
 			LOGGER.error("配方收集测试失败: ", e);
 		}
 	}
 
+	// 摘要、完整同步和查询之后，已加载的分片都应留在内存预算以内
+	private void testShardedBudget(ShardedRecipeGraph graph) throws java.io.IOException {
+		ShardedGraphStore store = graph.getStore();
+
+		collector.printGraphSummary();
+		checkResidentBytes(store, "摘要");
+
+		byte[] full = GraphCodec.encodeFull(graph);
+		LOGGER.info("分片快照完整编码: {} 字节", full.length);
+		checkResidentBytes(store, "同步");
+
+		GraphQueries.itemDetail(graph, Items.CRAFTING_TABLE);
+		GraphQueries.breakdown(graph, Items.DIAMOND_PICKAXE, 1.0);
+		GraphQueries.neighborhood(graph, Identifier.of("minecraft", "crafting_table"), 2);
+		checkResidentBytes(store, "查询");
+	}
+
+	private void checkResidentBytes(ShardedGraphStore store, String stage) {
+		long resident = store.getResidentBytes();
+		// 刚加载的分片总是保留，单个分片超过预算时只允许留下它一个
+		if (resident > store.getMemoryBudget() && store.getLoadedNamespaces().size() > 1) {
+			throw new IllegalStateException(stage + "后已加载分片超出内存预算: " + resident + " / "
+					+ store.getMemoryBudget() + " 字节 " + store.getLoadedNamespaces());
+		}
+		LOGGER.info("{}后已加载分片: {} / {} 字节, 加载 {} 次, 淘汰 {} 次", stage, resident,
+				store.getMemoryBudget(), store.getShardLoads(), store.getShardEvictions());
+	}
+
+	// 逐个端点检查状态码和响应体，任何一项不符都抛出异常
+	private void testQueryServer(GraphSnapshot graph) throws java.io.IOException, InterruptedException {
+		GraphQueryServer server = null;
+		try {
+			// 端口 0 由系统分配，不影响 -Dmapcraft.queryPort 启动的正式服务
+			server = GraphQueryServer.start(0, () -> graph);
+			HttpClient client = HttpClient.newHttpClient();
+			String base = "http://127.0.0.1:" + server.getPort();
+
+			JsonObject status = get(client, base + "/status", 200).getAsJsonObject();
+			check(status.get("snapshotVersion").getAsLong() == graph.getSnapshotVersion(), "/status 快照版本", status);
+			check(status.get("nodeCount").getAsInt() == graph.getNodeCount(), "/status 节点数", status);
+
+			JsonObject item = get(client, base + "/item?id=minecraft:crafting_table", 200).getAsJsonObject();
+			check("minecraft:crafting_table".equals(item.get("item").getAsString())
+					&& !item.getAsJsonArray("producers").isEmpty(), "/item 工作台的生产配方", item);
+
+			JsonElement path = get(client, base + "/path?from=minecraft:oak_log&to=minecraft:crafting_table", 200);
+			check(path.isJsonObject() && !path.getAsJsonObject().getAsJsonArray("recipes").isEmpty(),
+					"/path 原木到工作台的配方链", path);
+
+			JsonObject breakdown = get(client, base + "/breakdown?item=minecraft:diamond_pickaxe&amount=2", 200)
+					.getAsJsonObject();
+			check(!breakdown.isEmpty() && breakdown.entrySet().stream().allMatch(e -> e.getValue().getAsDouble() > 0),
+					"/breakdown 钻石镐的原材料", breakdown);
+
+			JsonArray neighborhood = get(client, base + "/neighborhood?recipe=minecraft:crafting_table&hops=1", 200)
+					.getAsJsonArray();
+			boolean containsStart = false;
+			for (JsonElement node : neighborhood) {
+				containsStart |= "minecraft:crafting_table".equals(node.getAsJsonObject().get("recipeId").getAsString());
+			}
+			check(containsStart, "/neighborhood 包含起点配方", neighborhood);
+
+			JsonObject badRequest = get(client, base + "/item?id=minecraft:no_such_item", 400).getAsJsonObject();
+			check(badRequest.has("error"), "/item 未知物品返回错误信息", badRequest);
+
+			HttpResponse<String> wrongMethod = client.send(
+					HttpRequest.newBuilder(URI.create(base + "/status"))
+							.POST(HttpRequest.BodyPublishers.noBody()).build(),
+					HttpResponse.BodyHandlers.ofString());
+			check(wrongMethod.statusCode() == 405
+					&& "GET".equals(wrongMethod.headers().firstValue("Allow").orElse(null)), "POST /status 返回 405",
+					wrongMethod.statusCode() + " " + wrongMethod.body());
+
+			// HttpClient 不允许改写 Host，直接用套接字发送
+			int rebinding = rawStatus(server.getPort(), "GET /status HTTP/1.1\r\nHost: attacker.example\r\n"
+					+ "Connection: close\r\n\r\n");
+			check(rebinding == 403, "非本机 Host 返回 403", rebinding);
+
+			String batch = "[{\"type\":\"breakdown\",\"item\":\"minecraft:diamond_pickaxe\",\"amount\":2},"
+					+ "{\"type\":\"path\",\"from\":\"minecraft:oak_log\",\"to\":\"minecraft:crafting_table\"},"
+					+ "{\"type\":\"neighborhood\",\"recipe\":\"minecraft:crafting_table\",\"hops\":1}]";
+			HttpResponse<String> response = client.send(
+					HttpRequest.newBuilder(URI.create(base + "/batch"))
+							.POST(HttpRequest.BodyPublishers.ofString(batch)).build(),
+					HttpResponse.BodyHandlers.ofString());
+			check(response.statusCode() == 200, "/batch 状态码", response.statusCode() + " " + response.body());
+			JsonObject batchResult = JsonParser.parseString(response.body()).getAsJsonObject();
+			check(batchResult.get("snapshotVersion").getAsLong() == graph.getSnapshotVersion()
+					&& batchResult.getAsJsonArray("results").size() == 3, "/batch 结果", batchResult);
+
+			LOGGER.info("查询服务检查通过 (端口 {})", server.getPort());
+		} finally {
+			if (server != null) {
+				server.stop();
+			}
+		}
+	}
+
+	private static JsonElement get(HttpClient client, String url, int expectedStatus)
+			throws java.io.IOException, InterruptedException {
+		HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+				HttpResponse.BodyHandlers.ofString());
+		check(response.statusCode() == expectedStatus, url + " 状态码应为 " + expectedStatus,
+				response.statusCode() + " " + response.body());
+		return JsonParser.parseString(response.body());
+	}
+
+	// 发送原始请求，返回状态码
+	private static int rawStatus(int port, String request) throws java.io.IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+			socket.getOutputStream().flush();
+			String statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+					StandardCharsets.US_ASCII)).readLine();
+			// HTTP/1.1 403 ...
+			return statusLine != null && statusLine.length() >= 12 ? Integer.parseInt(statusLine.substring(9, 12)) : -1;
+		}
+	}
+
+	private static void check(boolean condition, String what, Object actual) {
+		if (!condition) {
+			throw new IllegalStateException("查询服务检查失败: " + what + "，实际: " + actual);
+		}
+	}
+
 	private String exportRecipeData(RecipeGraph graph) {
 		try {
 			String exportDir = RecipeDataExporter.getDefaultExportDir();
 
-			// 导出完整配方图
-			String jsonPath = RecipeDataExporter.exportRecipeGraphToJson(
+			// 导出配方图（增量模式，定期写入完整基线）
+			String jsonPath = RecipeDataExporter.exportRecipeGraphDelta(
 					graph,
+					collector.getHistory(),
 					exportDir,
 					"mapcraft"
 			);
@@ -98,6 +269,12 @@ public class MapCraftGraphTest implements ModInitializer {
 				LOGGER.info("配方关系图已保存为JSON文件: {}", jsonPath);
 			}
 
+			// 导出传递约简后的视图
+			String reducedPath = RecipeDataExporter.exportReducedRecipeGraph(graph, exportDir, "mapcraft");
+			if (reducedPath != null) {
+				LOGGER.info("约简配方图已导出 ({}): {}", graph.getTransitiveReduction(), reducedPath);
+			}
+
 			return jsonPath;
 
 		} catch (Exception e) {
@@ -130,7 +307,7 @@ public class MapCraftGraphTest implements ModInitializer {
 
 				if (itemPath != null) {
 					LOGGER.debug("物品 {} 的详细信息已导出: {}",
-							Registries.ITEM.getId(item),
+							graph.getStringTable().getItemId(item),
 							itemPath);
 				}
 			}
@@ -150,16 +327,24 @@ public class MapCraftGraphTest implements ModInitializer {
 		LOGGER.info("是否存在循环依赖: {}", graph.hasCycles());
 
 		// 统计不同类型的关系
-		Map<String, Integer> edgeTypeCount = new java.util.HashMap<>();
-		for (RecipeEdge edge : graph.getEdges()) {
-			String type = edge.getRelationshipType();
-			edgeTypeCount.put(type, edgeTypeCount.getOrDefault(type, 0) + 1);
-		}
+		GraphStatistics statistics = graph.getStatistics();
 
 		LOGGER.info("关系类型分布:");
-		for (Map.Entry<String, Integer> entry : edgeTypeCount.entrySet()) {
+		for (Map.Entry<String, Integer> entry : statistics.getEdgeTypeCounts().entrySet()) {
+			LOGGER.info("  {}: {}", entry.getKey(), entry.getValue());
+		}
+
+		LOGGER.info("命名空间分布:");
+		for (Map.Entry<String, Integer> entry : statistics.getNamespaceCounts().entrySet()) {
 			LOGGER.info("  {}: {}", entry.getKey(), entry.getValue());
 		}
+		LOGGER.info("最大出度: {}, 最大入度: {}", statistics.getMaxOutDegree(), statistics.getMaxInDegree());
+
+		Centrality centrality = graph.getCentrality();
+		LOGGER.info("中心性: {}", centrality);
+		for (net.minecraft.item.Item item : centrality.getTopItems(5)) {
+			LOGGER.info("  {}: {}", graph.getStringTable().getItemId(item), centrality.getItemScore(item));
+		}
 	}
 
 	private void testSpecificItems(RecipeGraph graph) {
@@ -179,6 +364,8 @@ public class MapCraftGraphTest implements ModInitializer {
 
 		// 测试5: 钻石镐的配方
 		testItem(graph, Items.DIAMOND_PICKAXE, "钻石镐");
+
+		LOGGER.info("查询缓存: {}", graph.getQueryCache());
 	}
 
 	private void testItem(RecipeGraph graph, net.minecraft.item.Item item, String itemName) {
@@ -212,6 +399,22 @@ public class MapCraftGraphTest implements ModInitializer {
 			}
 		}
 
+		// 折算到原材料
+		Map<net.minecraft.item.Item, Double> rawMaterials = GraphQueries.breakdown(graph, item, 1);
+		LOGGER.info("  原材料:");
+		for (Map.Entry<net.minecraft.item.Item, Double> entry : rawMaterials.entrySet()) {
+			LOGGER.info("    {} x {}", graph.getStringTable().getItemId(entry.getKey()),
+					String.format("%.2f", entry.getValue()));
+		}
+
+		// 每分钟生产 60 个时的产线
+		ProductionPlanner.ProductionPlan plan = graph.getProductionPlanner().plan(item, 60);
+		LOGGER.info("  产线 (60/分钟, 迭代 {} 次):", plan.iterations());
+		for (ProductionPlanner.Step step : plan.steps()) {
+			LOGGER.info("    {} x {}/分钟", step.recipe().getRecipeId(),
+					String.format("%.2f", step.craftsPerMinute()));
+		}
+
 		// 获取使用这个物品作为输入的所有配方
 		List<RecipeNode> consumers = graph.getNodesByInputItem(item);
 		LOGGER.info("  消费配方数量: {}", consumers.size());
@@ -261,18 +464,147 @@ public class MapCraftGraphTest implements ModInitializer {
 			}
 		}
 
+		// 被合并的重复配方ID应当找到代表它的节点，邻域查询也从该节点出发
+		int unresolvedAliasCount = 0;
+		for (RecipeNode node : graph.getNodes().values()) {
+			for (Identifier alias : node.getAliasIds()) {
+				if (graph.getNodeById(alias) != node
+						|| !GraphQueries.neighborhood(graph, alias, 1).contains(node)) {
+					LOGGER.warn("重复配方ID没有解析到代表节点: {} -> {}", alias, node.getRecipeId());
+					unresolvedAliasCount++;
+				}
+			}
+		}
+
 		LOGGER.info("验证结果:");
 		LOGGER.info("  缺失节点引用: {}", missingNodeCount);
 		LOGGER.info("  自环数量: {}", selfLoopCount);
 		LOGGER.info("  重复边数量: {}", duplicateEdgeCount);
+		LOGGER.info("  未解析的重复配方ID: {}", unresolvedAliasCount);
 
-		if (missingNodeCount == 0 && selfLoopCount == 0 && duplicateEdgeCount == 0) {
+		if (missingNodeCount == 0 && selfLoopCount == 0 && duplicateEdgeCount == 0 && unresolvedAliasCount == 0) {
 			LOGGER.info("  图结构验证通过 ✓");
 		} else {
 			LOGGER.warn("  图结构存在问题，需要修复");
 		}
 	}
 
+	// 记录两个版本：删掉木棍配方（断开两条直接合成链）、新增工作台配方，逐项核对差异
+	private void testHistory() {
+		Identifier planks = Identifier.of("mapcraft_test", "planks");
+		Identifier stick = Identifier.of("mapcraft_test", "stick");
+		Identifier pickaxe = Identifier.of("mapcraft_test", "pickaxe");
+		Identifier table = Identifier.of("mapcraft_test", "table");
+
+		Map<Identifier, RecipeNode> nodes = new HashMap<>();
+		nodes.put(planks, new RecipeNode(planks, null, Set.of(Items.OAK_LOG), Items.OAK_PLANKS, 4));
+		nodes.put(stick, new RecipeNode(stick, null, Set.of(Items.OAK_PLANKS), Items.STICK, 4));
+		nodes.put(pickaxe, new RecipeNode(pickaxe, null, Set.of(Items.STICK, Items.DIAMOND), Items.DIAMOND_PICKAXE, 1));
+		// 足够多的无关节点，让映射有多层子树
+		for (int i = 0; i < 200; i++) {
+			Identifier filler = Identifier.of("mapcraft_test", "filler_" + i);
+			nodes.put(filler, new RecipeNode(filler, null, Set.of(Items.IRON_INGOT), Items.IRON_NUGGET, 9));
+		}
+		RecipeEdge planksToStick = new RecipeEdge(planks, stick, "DIRECT_CONSUMPTION", 1.0);
+		RecipeEdge stickToPickaxe = new RecipeEdge(stick, pickaxe, "DIRECT_CONSUMPTION", 1.0);
+		RecipeEdge sameMod = new RecipeEdge(planks, stick, "SAME_MOD", 0.5);
+		RecipeGraph first = new RecipeGraph(nodes, List.of(planksToStick, stickToPickaxe, sameMod), 1);
+
+		Map<Identifier, RecipeNode> nextNodes = new HashMap<>(nodes);
+		nextNodes.remove(stick);
+		nextNodes.put(table, new RecipeNode(table, null, Set.of(Items.OAK_PLANKS), Items.CRAFTING_TABLE, 1));
+		RecipeEdge planksToTable = new RecipeEdge(planks, table, "DIRECT_CONSUMPTION", 1.0);
+		RecipeGraph second = new RecipeGraph(nextNodes, List.of(planksToTable), 2);
+
+		GraphHistory history = new GraphHistory();
+		history.record(first, GraphDelta.between(null, first));
+		history.record(second, GraphDelta.between(first, second));
+
+		GraphDelta delta = history.diff(1, 2);
+		checkHistory(delta != null && delta.getChangedWeights().isEmpty(), "版本 1 -> 2 的差异", delta);
+		checkHistory(Set.copyOf(delta.getAddedNodes()).equals(Set.of(nextNodes.get(table))), "新增节点", delta.getAddedNodes());
+		checkHistory(Set.copyOf(delta.getRemovedNodes()).equals(Set.of(stick)), "删除节点", delta.getRemovedNodes());
+		checkHistory(Set.copyOf(delta.getAddedEdges()).equals(Set.of(planksToTable)), "新增边", delta.getAddedEdges());
+		checkHistory(Set.copyOf(delta.getRemovedEdges()).equals(Set.of(planksToStick, stickToPickaxe, sameMod)),
+				"删除边", delta.getRemovedEdges());
+		List<RecipeEdge> broken = history.getBrokenChains(1, 2);
+		checkHistory(Set.copyOf(broken).equals(Set.of(planksToStick, stickToPickaxe)), "断开的合成链", broken);
+
+		// 未变化的节点沿用同一个对象；两次修改各自只复制从根到叶的一条路径（32 位散列每层 5 位，最多 7 层）
+		GraphHistory.Version v1 = history.getVersion(1);
+		GraphHistory.Version v2 = history.getVersion(2);
+		checkHistory(v1.nodes().get(pickaxe) == v2.nodes().get(pickaxe), "未变化节点的共享", v2.nodes().get(pickaxe));
+		int total = v1.nodes().countSharedNodes(v1.nodes());
+		int shared = v1.nodes().countSharedNodes(v2.nodes());
+		checkHistory(shared > 0 && total - shared <= 2 * 7, "子树共享", shared + " / " + total);
+		LOGGER.info("快照历史检查通过: {}，共享 {} / {} 个子树节点", delta, shared, total);
+	}
+
+	private static void checkHistory(boolean condition, String what, Object actual) {
+		if (!condition) {
+			throw new IllegalStateException("快照历史检查失败: " + what + "，实际: " + actual);
+		}
+	}
+
+	// 同步编码：完整快照和增量解码后与原图没有差异；被篡改的数据只抛出 IOException
+	private void testCodecRoundTrip(RecipeGraph graph) throws java.io.IOException {
+		byte[] full = GraphCodec.encodeFull(graph);
+		GraphCodec.Decoded decoded = GraphCodec.decode(full, null);
+		if (decoded.graph() == null || decoded.graph().getSnapshotVersion() != graph.getSnapshotVersion()) {
+			throw new IllegalStateException("编码往返检查失败: 完整快照版本不一致");
+		}
+		GraphDelta fullDiff = GraphDelta.between(graph, decoded.graph());
+		if (!fullDiff.isEmpty()) {
+			throw new IllegalStateException("编码往返检查失败: 完整快照解码后有差异 " + fullDiff);
+		}
+
+		// 增量：去掉一个节点再加回来
+		RecipeNode removed = graph.getNodes().values().iterator().next();
+		Map<Identifier, RecipeNode> nodes = new HashMap<>(graph.getNodes());
+		nodes.remove(removed.getRecipeId());
+		RecipeGraph smaller = new RecipeGraph(nodes, graph.getEdges().stream()
+				.filter(e -> !e.getFromRecipeId().equals(removed.getRecipeId()) && !e.getToRecipeId().equals(removed.getRecipeId()))
+				.toList(), graph.getSnapshotVersion() + 1);
+		GraphDelta delta = GraphDelta.between(smaller, graph);
+		GraphDelta decodedDelta = GraphCodec.decode(GraphCodec.encodeDelta(delta), null).delta();
+		GraphDelta deltaDiff = GraphDelta.between(graph, decodedDelta.applyTo(smaller));
+		if (!deltaDiff.isEmpty()) {
+			throw new IllegalStateException("编码往返检查失败: 增量应用后有差异 " + deltaDiff);
+		}
+
+		// 截断的数据
+		byte[] truncated = java.util.Arrays.copyOf(full, full.length / 2);
+		try {
+			GraphCodec.decode(truncated, null);
+			throw new IllegalStateException("编码往返检查失败: 截断的数据没有被拒绝");
+		} catch (java.io.IOException expected) {
+			// 预期
+		}
+		LOGGER.info("编码往返检查通过: 完整快照 {} 字节", full.length);
+	}
+
+	// 只在环内互相合成的物品（锭 ↔ 块/粒）也要从根可达，块被对应的锭支配
+	private void testDominatedCycles(RecipeGraph graph) {
+		DominatorTree tree = graph.getDominatorTree();
+		net.minecraft.item.Item[][] chains = {
+				{Items.IRON_INGOT, Items.IRON_BLOCK, Items.IRON_NUGGET},
+				{Items.GOLD_INGOT, Items.GOLD_BLOCK, Items.GOLD_NUGGET},
+				{Items.DIAMOND, Items.DIAMOND_BLOCK},
+		};
+		for (net.minecraft.item.Item[] chain : chains) {
+			for (net.minecraft.item.Item item : chain) {
+				if (!tree.isReachable(item)) {
+					throw new IllegalStateException("支配树检查失败: " + item + " 从原材料不可达");
+				}
+			}
+			if (!tree.dominates(chain[0], chain[1]) || tree.getDominatedCount(chain[0]) == 0) {
+				throw new IllegalStateException("支配树检查失败: " + chain[1] + " 未被 " + chain[0] + " 支配");
+			}
+		}
+		LOGGER.info("支配树检查通过: 可达物品 {}, 铁锭支配 {} 个物品", tree.getReachableItemCount(),
+				tree.getDominatedCount(Items.IRON_INGOT));
+	}
+
 	// 额外的测试方法：查找特定配方的关系链
 	public static void findRecipeChain(RecipeGraph graph, Identifier startRecipeId) {
 		LOGGER.info("\n=== 查找配方关系链: {} ===", startRecipeId);
@@ -305,7 +637,7 @@ public class MapCraftGraphTest implements ModInitializer {
 			RecipeNode currentNode = graph.getNodeById(currentId);
 
 			if (currentNode != null) {
-				String outputName = Registries.ITEM.getId(currentNode.getOutputItem()).toString();
+				String outputName = graph.getStringTable().getItemId(currentNode.getOutputItem());
 				LOGGER.info("{}{} -> {} (输入: {})",
 						"  ".repeat(depth),
 						currentId,
@@ -0,0 +1,214 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * 配方与物品的中心性排名，每个快照计算一次
+ *
+ * PageRank 在依赖边（DIRECT_CONSUMPTION、BIDIRECTIONAL、INDIRECT_CHAIN）的反方向上迭代：
+ * 一个配方被越多、越重要的配方所依赖，得分越高；按边权重分配转移概率。
+ * 物品得分为消费它的配方得分之和（按配方输入种类数均分），原材料因此也能排上名次。
+ *
+ * 幂迭代采用“拉取”形式：每个配方只读取上一轮的数组、只写自己的新值，
+ * 按块并行计算，L1 变化量低于阈值或达到迭代上限时停止
+ */
+public class Centrality {
+    private static final Set<String> DEPENDENCY_TYPES = Set.of("DIRECT_CONSUMPTION", "BIDIRECTIONAL", "INDIRECT_CHAIN");
+
+    public static final double DAMPING = 0.85;
+    public static final double TOLERANCE = 1e-9;
+    public static final int MAX_ITERATIONS = 100;
+
+    // 并行计算的块大小
+    private static final int CHUNK = 1024;
+
+    private final GraphIndex index;
+
+    // 每个配方的 PageRank，总和为 1
+    private final double[] pageRank;
+    // 归一化的入度/出度中心性（度数 / (n - 1)）
+    private final double[] inDegreeCentrality;
+    private final double[] outDegreeCentrality;
+    // 每个物品（原始ID）的得分
+    private final double[] itemScore;
+
+    private final int[] topItems;
+    private final int[] topRecipes;
+    private final int iterations;
+    private final boolean converged;
+
+    Centrality(GraphIndex index) {
+        this.index = index;
+        int nodeCount = index.getNodeCount();
+
+        boolean[] dependency = new boolean[index.getEdgeTypeNames().size()];
+        for (int t = 0; t < dependency.length; t++) {
+            dependency[t] = DEPENDENCY_TYPES.contains(index.getEdgeTypeNames().get(t));
+        }
+
+        // 1. 度中心性，以及反向图中每个配方的出权重（= 原图依赖边的入权重之和）
+        inDegreeCentrality = new double[nodeCount];
+        outDegreeCentrality = new double[nodeCount];
+        double[] reverseOutWeight = new double[nodeCount];
+        double scale = nodeCount > 1 ? 1.0 / (nodeCount - 1) : 0.0;
+        for (int node = 0; node < nodeCount; node++) {
+            inDegreeCentrality[node] = index.getInDegree(node) * scale;
+            outDegreeCentrality[node] = index.getOutDegree(node) * scale;
+            for (int slot = index.getInStart(node); slot < index.getInEnd(node); slot++) {
+                reverseOutWeight[node] += transferWeight(index, index.getInEdge(slot), dependency);
+            }
+        }
+
+        // 2. 幂迭代
+        double[] rank = new double[nodeCount];
+        double[] next = new double[nodeCount];
+        Arrays.fill(rank, nodeCount > 0 ? 1.0 / nodeCount : 0.0);
+        int chunks = (nodeCount + CHUNK - 1) / CHUNK;
+        double[] chunkDelta = new double[chunks];
+        int iteration = 0;
+        boolean done = nodeCount == 0;
+        while (!done && iteration < MAX_ITERATIONS) {
+            // 没有依赖者的配方把得分均匀分给所有配方
+            double dangling = 0.0;
+            for (int node = 0; node < nodeCount; node++) {
+                if (reverseOutWeight[node] == 0.0) {
+                    dangling += rank[node];
+                }
+            }
+            double base = (1.0 - DAMPING + DAMPING * dangling) / nodeCount;
+
+            double[] current = rank;
+            double[] target = next;
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                int end = Math.min(nodeCount, (chunk + 1) * CHUNK);
+                double delta = 0.0;
+                for (int node = chunk * CHUNK; node < end; node++) {
+                    // 反向图中 node 的入边即原图中 node 的出边
+                    double sum = 0.0;
+                    for (int slot = index.getOutStart(node); slot < index.getOutEnd(node); slot++) {
+                        int edge = index.getOutEdge(slot);
+                        double weight = transferWeight(index, edge, dependency);
+                        if (weight > 0.0) {
+                            int dependent = index.getEdgeTo(edge);
+                            sum += current[dependent] * weight / reverseOutWeight[dependent];
+                        }
+                    }
+                    double value = base + DAMPING * sum;
+                    delta += Math.abs(value - current[node]);
+                    target[node] = value;
+                }
+                chunkDelta[chunk] = delta;
+            });
+
+            double total = 0.0;
+            for (double delta : chunkDelta) {
+                total += delta;
+            }
+            rank = target;
+            next = current;
+            iteration++;
+            done = total < TOLERANCE;
+        }
+        pageRank = rank;
+        iterations = iteration;
+        converged = done;
+
+        // 3. 物品得分
+        itemScore = new double[index.getItemCount()];
+        for (int node = 0; node < nodeCount; node++) {
+            int kinds = index.getInputEnd(node) - index.getInputStart(node);
+            for (int slot = index.getInputStart(node); slot < index.getInputEnd(node); slot++) {
+                itemScore[index.getInputItem(slot)] += pageRank[node] / kinds;
+            }
+        }
+
+        topItems = topK(itemScore, GraphStatistics.TOP_K);
+        topRecipes = topK(pageRank, GraphStatistics.TOP_K);
+    }
+
+    private static double transferWeight(GraphIndex index, int edge, boolean[] dependency) {
+        return dependency[index.getEdgeType(edge)] ? Math.max(index.getEdgeWeight(edge), 0.0) : 0.0;
+    }
+
+    // 得分最高的 k 个下标（得分为0的跳过），得分相同时下标小的在前
+    private static int[] topK(double[] scores, int k) {
+        Integer[] order = new Integer[scores.length];
+        int count = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > 0.0) order[count++] = i;
+        }
+        Arrays.sort(order, 0, count, (a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : a - b);
+        int[] result = new int[Math.min(k, count)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    public double getPageRank(int node) {
+        return pageRank[node];
+    }
+
+    // 配方的 PageRank，不在图中时返回 0
+    public double getPageRank(RecipeNode node) {
+        int nodeIndex = index.indexOf(node.getRecipeId());
+        return nodeIndex >= 0 ? pageRank[nodeIndex] : 0.0;
+    }
+
+    public double getInDegreeCentrality(int node) {
+        return inDegreeCentrality[node];
+    }
+
+    public double getOutDegreeCentrality(int node) {
+        return outDegreeCentrality[node];
+    }
+
+    public double getItemScore(int rawItemId) {
+        return rawItemId >= 0 && rawItemId < itemScore.length ? itemScore[rawItemId] : 0.0;
+    }
+
+    public double getItemScore(Item item) {
+        return getItemScore(Registries.ITEM.getRawId(item));
+    }
+
+    // 得分最高的物品原始ID，最多 TOP_K 个
+    public int[] getTopItems() {
+        return topItems.clone();
+    }
+
+    // PageRank 最高的配方下标，最多 TOP_K 个
+    public int[] getTopRecipes() {
+        return topRecipes.clone();
+    }
+
+    // 按得分从高到低排列的前 k 个物品
+    public List<Item> getTopItems(int k) {
+        int[] ranked = k <= topItems.length ? topItems : topK(itemScore, k);
+        List<Item> result = new ArrayList<>(Math.min(k, ranked.length));
+        for (int i = 0; i < ranked.length && i < k; i++) {
+            result.add(Registries.ITEM.get(ranked[i]));
+        }
+        return result;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public boolean isConverged() {
+        return converged;
+    }
+
+    @Override
+    public String toString() {
+        return "Centrality{" +
+                "nodes=" + pageRank.length +
+                ", iterations=" + iterations +
+                ", converged=" + converged +
+                '}';
+    }
+}
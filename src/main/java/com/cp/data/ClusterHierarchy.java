@@ -0,0 +1,455 @@
+package com.cp.data;
+
+import com.cp.MapCraft;
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+/**
+ * 配方的多层聚类（Louvain 社区发现），每个快照构建一次
+ *
+ * 把所有边看作无向带权边（同一对配方之间的多条边权重相加），逐层执行：
+ * 局部移动——每个顶点移到模块度增益最大的相邻社区，直到没有顶点移动；
+ * 聚合——每个社区缩成一个顶点，社区之间的边权重相加，社区内部的权重记为自环。
+ * 第 1 层是最细的聚类，层号越大越粗；某一层不再有合并时停止
+ *
+ * 每一层都可以导出为一张“超级节点”图（RecipeGraph），布局和渲染器可以直接处理；
+ * 需要展开某个聚类时再取出它的成员子图
+ */
+public class ClusterHierarchy {
+    // 超级节点之间的聚合边的关系类型
+    public static final String CLUSTER_EDGE = "CLUSTER";
+
+    private static final int MAX_LEVELS = 8;
+    private static final int MAX_PASSES = 16;
+
+    private final RecipeGraph graph;
+    private final GraphIndex index;
+
+    // 每层：配方下标 -> 该层的聚类编号
+    private final List<int[]> nodeCluster = new ArrayList<>();
+    private final List<int[]> clusterSizes = new ArrayList<>();
+    // 每层每个聚类的代表配方（总度数最高的成员），用作超级节点的图标
+    private final List<int[]> representatives = new ArrayList<>();
+    // 每层的聚合边（无向，from < to）
+    private final List<int[]> edgeFrom = new ArrayList<>();
+    private final List<int[]> edgeTo = new ArrayList<>();
+    private final List<double[]> edgeWeight = new ArrayList<>();
+    private final List<Double> modularity = new ArrayList<>();
+
+    private record ClusterKey(int level, int cluster) {
+    }
+
+    // 导出的超级节点图，按（层号，上一层聚类）缓存
+    private final Map<ClusterKey, RecipeGraph> clusterGraphs = new HashMap<>();
+    // 展开过的聚类成员子图，按（层号，聚类）缓存
+    private final Map<ClusterKey, RecipeGraph> memberGraphs = new HashMap<>();
+
+    /**
+     * 某一层的无向带权图（CSR，每条边两个方向各存一次），loop 为社区内部权重（按有序对计数）
+     */
+    private record Level(int vertexCount, int[] offsets, int[] targets, double[] weights, double[] loop) {
+        double degree(int v) {
+            double sum = loop[v];
+            for (int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+                sum += weights[slot];
+            }
+            return sum;
+        }
+    }
+
+    ClusterHierarchy(RecipeGraph graph) {
+        this.graph = graph;
+        this.index = graph.getIndex();
+        int nodeCount = index.getNodeCount();
+
+        Level level = baseLevel();
+        int[] sizes = new int[nodeCount];
+        Arrays.fill(sizes, 1);
+        int[] reps = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            reps[node] = node;
+        }
+        int[] mapping = reps.clone();
+
+        for (int depth = 0; depth < MAX_LEVELS && level.vertexCount() > 1; depth++) {
+            int[] community = new int[level.vertexCount()];
+            int communityCount = moveVertices(level, community);
+            if (communityCount == level.vertexCount()) {
+                break;
+            }
+
+            // 聚类大小、代表配方、配方到聚类的映射
+            int[] nextSizes = new int[communityCount];
+            int[] nextReps = new int[communityCount];
+            Arrays.fill(nextReps, -1);
+            for (int v = 0; v < level.vertexCount(); v++) {
+                int c = community[v];
+                nextSizes[c] += sizes[v];
+                if (nextReps[c] < 0 || totalDegree(reps[v]) > totalDegree(nextReps[c])) {
+                    nextReps[c] = reps[v];
+                }
+            }
+            int[] nextMapping = new int[nodeCount];
+            for (int node = 0; node < nodeCount; node++) {
+                nextMapping[node] = community[mapping[node]];
+            }
+
+            level = aggregate(level, community, communityCount);
+            nodeCluster.add(nextMapping);
+            clusterSizes.add(nextSizes);
+            representatives.add(nextReps);
+            modularity.add(modularity(level));
+            storeEdges(level);
+
+            sizes = nextSizes;
+            reps = nextReps;
+            mapping = nextMapping;
+        }
+    }
+
+    private int totalDegree(int node) {
+        return index.getOutDegree(node) + index.getInDegree(node);
+    }
+
+    // 第 0 层：每个配方一个顶点，有向边视为无向边，同一对顶点的权重合并
+    private Level baseLevel() {
+        int nodeCount = index.getNodeCount();
+        int[] degree = new int[nodeCount];
+        for (int e = 0; e < index.getEdgeCount(); e++) {
+            int from = index.getEdgeFrom(e);
+            int to = index.getEdgeTo(e);
+            if (from != to && index.getEdgeWeight(e) > 0) {
+                degree[from]++;
+                degree[to]++;
+            }
+        }
+        int[] offsets = new int[nodeCount + 1];
+        for (int v = 0; v < nodeCount; v++) {
+            offsets[v + 1] = offsets[v] + degree[v];
+        }
+        int[] targets = new int[offsets[nodeCount]];
+        double[] weights = new double[offsets[nodeCount]];
+        int[] fill = Arrays.copyOf(offsets, nodeCount);
+        for (int e = 0; e < index.getEdgeCount(); e++) {
+            int from = index.getEdgeFrom(e);
+            int to = index.getEdgeTo(e);
+            double weight = index.getEdgeWeight(e);
+            if (from != to && weight > 0) {
+                targets[fill[from]] = to;
+                weights[fill[from]++] = weight;
+                targets[fill[to]] = from;
+                weights[fill[to]++] = weight;
+            }
+        }
+        Level raw = new Level(nodeCount, offsets, targets, weights, new double[nodeCount]);
+        int[] identity = new int[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            identity[v] = v;
+        }
+        // 用聚合合并重复的顶点对
+        return aggregate(raw, identity, nodeCount);
+    }
+
+    /**
+     * Louvain 局部移动，community 写入紧凑的社区编号
+     * @return 社区数
+     */
+    private static int moveVertices(Level level, int[] community) {
+        int n = level.vertexCount();
+        double[] degree = new double[n];
+        double[] total = new double[n];
+        double m2 = 0.0;
+        for (int v = 0; v < n; v++) {
+            degree[v] = level.degree(v);
+            total[v] = degree[v];
+            community[v] = v;
+            m2 += degree[v];
+        }
+        if (m2 == 0.0) {
+            return n;
+        }
+
+        double[] linkWeight = new double[n];
+        int[] stamp = new int[n];
+        int[] touched = new int[n];
+        int clock = 0;
+        for (int pass = 0; pass < MAX_PASSES; pass++) {
+            int moved = 0;
+            for (int v = 0; v < n; v++) {
+                clock++;
+                int touchedCount = 0;
+                for (int slot = level.offsets()[v]; slot < level.offsets()[v + 1]; slot++) {
+                    int c = community[level.targets()[slot]];
+                    if (stamp[c] != clock) {
+                        stamp[c] = clock;
+                        linkWeight[c] = 0.0;
+                        touched[touchedCount++] = c;
+                    }
+                    linkWeight[c] += level.weights()[slot];
+                }
+
+                int current = community[v];
+                total[current] -= degree[v];
+                int best = current;
+                double bestGain = (stamp[current] == clock ? linkWeight[current] : 0.0) - total[current] * degree[v] / m2;
+                for (int i = 0; i < touchedCount; i++) {
+                    int c = touched[i];
+                    double gain = linkWeight[c] - total[c] * degree[v] / m2;
+                    if (gain > bestGain + 1e-12) {
+                        bestGain = gain;
+                        best = c;
+                    }
+                }
+                total[best] += degree[v];
+                if (best != current) {
+                    community[v] = best;
+                    moved++;
+                }
+            }
+            if (moved == 0) break;
+        }
+
+        // 压缩编号
+        int[] renumber = new int[n];
+        Arrays.fill(renumber, -1);
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            int c = community[v];
+            if (renumber[c] < 0) {
+                renumber[c] = count++;
+            }
+            community[v] = renumber[c];
+        }
+        return count;
+    }
+
+    // 把每个社区缩成一个顶点
+    private static Level aggregate(Level level, int[] community, int communityCount) {
+        int n = level.vertexCount();
+        int[] memberOffsets = new int[communityCount + 1];
+        for (int v = 0; v < n; v++) {
+            memberOffsets[community[v] + 1]++;
+        }
+        for (int c = 0; c < communityCount; c++) {
+            memberOffsets[c + 1] += memberOffsets[c];
+        }
+        int[] members = new int[n];
+        int[] fill = Arrays.copyOf(memberOffsets, communityCount);
+        for (int v = 0; v < n; v++) {
+            members[fill[community[v]]++] = v;
+        }
+
+        double[] loop = new double[communityCount];
+        int[] offsets = new int[communityCount + 1];
+        int[] targets = new int[level.targets().length];
+        double[] weights = new double[level.targets().length];
+        int[] slotOf = new int[communityCount];
+        int[] stamp = new int[communityCount];
+        int cursor = 0;
+        for (int c = 0; c < communityCount; c++) {
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                int v = members[m];
+                loop[c] += level.loop()[v];
+                for (int slot = level.offsets()[v]; slot < level.offsets()[v + 1]; slot++) {
+                    int d = community[level.targets()[slot]];
+                    double weight = level.weights()[slot];
+                    if (d == c) {
+                        loop[c] += weight;
+                    } else if (stamp[d] == c + 1) {
+                        weights[slotOf[d]] += weight;
+                    } else {
+                        stamp[d] = c + 1;
+                        slotOf[d] = cursor;
+                        targets[cursor] = d;
+                        weights[cursor++] = weight;
+                    }
+                }
+            }
+            offsets[c + 1] = cursor;
+        }
+        return new Level(communityCount, offsets, Arrays.copyOf(targets, cursor), Arrays.copyOf(weights, cursor), loop);
+    }
+
+    // 把每个聚类看作一个社区时的模块度
+    private static double modularity(Level level) {
+        double m2 = 0.0;
+        double[] degree = new double[level.vertexCount()];
+        for (int v = 0; v < level.vertexCount(); v++) {
+            degree[v] = level.degree(v);
+            m2 += degree[v];
+        }
+        if (m2 == 0.0) {
+            return 0.0;
+        }
+        double q = 0.0;
+        for (int v = 0; v < level.vertexCount(); v++) {
+            q += level.loop()[v] / m2 - (degree[v] / m2) * (degree[v] / m2);
+        }
+        return q;
+    }
+
+    private void storeEdges(Level level) {
+        int count = 0;
+        for (int v = 0; v < level.vertexCount(); v++) {
+            for (int slot = level.offsets()[v]; slot < level.offsets()[v + 1]; slot++) {
+                if (v < level.targets()[slot]) count++;
+            }
+        }
+        int[] from = new int[count];
+        int[] to = new int[count];
+        double[] weight = new double[count];
+        int cursor = 0;
+        for (int v = 0; v < level.vertexCount(); v++) {
+            for (int slot = level.offsets()[v]; slot < level.offsets()[v + 1]; slot++) {
+                if (v < level.targets()[slot]) {
+                    from[cursor] = v;
+                    to[cursor] = level.targets()[slot];
+                    weight[cursor++] = level.weights()[slot];
+                }
+            }
+        }
+        edgeFrom.add(from);
+        edgeTo.add(to);
+        edgeWeight.add(weight);
+    }
+
+    // ---------- 查询（层号从 1 开始，越大越粗） ----------
+
+    public int getLevelCount() {
+        return nodeCluster.size();
+    }
+
+    public int getClusterCount(int level) {
+        return clusterSizes.get(level - 1).length;
+    }
+
+    // 配方所在的聚类
+    public int getClusterOf(int node, int level) {
+        return nodeCluster.get(level - 1)[node];
+    }
+
+    // 聚类包含的配方数
+    public int getClusterSize(int level, int cluster) {
+        return clusterSizes.get(level - 1)[cluster];
+    }
+
+    public RecipeNode getRepresentative(int level, int cluster) {
+        return index.getNode(representatives.get(level - 1)[cluster]);
+    }
+
+    public int getInterClusterEdgeCount(int level) {
+        return edgeFrom.get(level - 1).length;
+    }
+
+    public double getModularity(int level) {
+        return modularity.get(level - 1);
+    }
+
+    /**
+     * 聚类数不超过 maxClusters 的最细一层；都超过时返回最粗的一层，没有聚类时返回 0
+     */
+    public int getLevelFor(int maxClusters) {
+        for (int level = 1; level <= getLevelCount(); level++) {
+            if (getClusterCount(level) <= maxClusters) {
+                return level;
+            }
+        }
+        return getLevelCount();
+    }
+
+    /**
+     * 某一层的超级节点图：每个聚类一个节点（图标取代表配方的输出），聚合边类型为 CLUSTER
+     */
+    public synchronized RecipeGraph getClusterGraph(int level) {
+        return clusterGraphs.computeIfAbsent(new ClusterKey(level, -1), key -> buildClusterGraph(level, -1));
+    }
+
+    /**
+     * 上一层某个聚类展开后的超级节点图：只包含第 level 层中属于 parent（第 level + 1 层的聚类）的聚类，
+     * 聚类编号和ID与 getClusterGraph(level) 相同。各层是嵌套的，展开过大的聚类时不需要重新聚类
+     */
+    public synchronized RecipeGraph getSubClusterGraph(int level, int parent) {
+        return clusterGraphs.computeIfAbsent(new ClusterKey(level, parent), key -> buildClusterGraph(level, parent));
+    }
+
+    // parent 为 -1 时包含该层的所有聚类
+    private RecipeGraph buildClusterGraph(int level, int parent) {
+        int clusterCount = getClusterCount(level);
+        boolean[] included = new boolean[clusterCount];
+        int[] parents = level < getLevelCount() ? nodeCluster.get(level) : null;
+        int[] reps = representatives.get(level - 1);
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            included[cluster] = parent < 0 || (parents != null && parents[reps[cluster]] == parent);
+        }
+
+        Map<Identifier, RecipeNode> nodes = new HashMap<>();
+        Identifier[] ids = new Identifier[clusterCount];
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            if (!included[cluster]) continue;
+            ids[cluster] = clusterId(level, cluster);
+            RecipeNode representative = getRepresentative(level, cluster);
+            nodes.put(ids[cluster], new RecipeNode(ids[cluster], null, representative.getOutputItem(),
+                    getClusterSize(level, cluster), new int[0], null));
+        }
+        int[] from = edgeFrom.get(level - 1);
+        int[] to = edgeTo.get(level - 1);
+        double[] weight = edgeWeight.get(level - 1);
+        List<RecipeEdge> edges = new ArrayList<>();
+        for (int e = 0; e < from.length; e++) {
+            if (included[from[e]] && included[to[e]]) {
+                edges.add(new RecipeEdge(ids[from[e]], ids[to[e]], CLUSTER_EDGE, weight[e]));
+            }
+        }
+        return new RecipeGraph(nodes, edges, graph.getSnapshotVersion());
+    }
+
+    /**
+     * 展开聚类：成员配方以及两端都在聚类内的原始边，节点对象与原图共享；结果按（层号，聚类）缓存
+     */
+    public synchronized RecipeGraph getMemberGraph(int level, int cluster) {
+        return memberGraphs.computeIfAbsent(new ClusterKey(level, cluster), key -> buildMemberGraph(level, cluster));
+    }
+
+    private RecipeGraph buildMemberGraph(int level, int cluster) {
+        int[] mapping = nodeCluster.get(level - 1);
+        Map<Identifier, RecipeNode> nodes = new HashMap<>();
+        List<RecipeEdge> edges = new ArrayList<>();
+        for (int node = 0; node < mapping.length; node++) {
+            if (mapping[node] != cluster) continue;
+            RecipeNode recipeNode = index.getNode(node);
+            nodes.put(recipeNode.getRecipeId(), recipeNode);
+            for (int slot = index.getOutStart(node); slot < index.getOutEnd(node); slot++) {
+                int edge = index.getOutEdge(slot);
+                if (mapping[index.getEdgeTo(edge)] == cluster) {
+                    edges.add(index.getEdge(edge));
+                }
+            }
+        }
+        return new RecipeGraph(nodes, edges, graph.getSnapshotVersion());
+    }
+
+    // 超级节点的ID
+    public static Identifier clusterId(int level, int cluster) {
+        return MapCraft.id("cluster/" + level + "/" + cluster);
+    }
+
+    // 从超级节点ID解析聚类编号，不是超级节点时返回 -1
+    public static int clusterIndexOf(Identifier superNodeId) {
+        String path = superNodeId.getPath();
+        if (!MapCraft.MOD_ID.equals(superNodeId.getNamespace()) || !path.startsWith("cluster/")) {
+            return -1;
+        }
+        return Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ClusterHierarchy{");
+        for (int level = 1; level <= getLevelCount(); level++) {
+            if (level > 1) builder.append(", ");
+            builder.append(String.format("L%d=%d(Q=%.3f)", level, getClusterCount(level), getModularity(level)));
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,268 @@
+package com.cp.data;
+
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
+
+import java.util.*;
+
+/**
+ * “用背包里的物品能做出什么”的闭包
+ * 从背包物品出发做前向不动点：配方的输入全部可得时，其输出也可得，如此传递
+ * 只判断物品种类是否可得，不考虑数量
+ *
+ * 每个配方维护“还缺几种输入”的计数，每个物品维护“有几个可用配方能产出它”的计数；
+ * 背包格子变化时只沿受影响的部分增量更新：
+ * 新增物品直接向下游传播；移除物品时先把经它推导出的物品全部撤销，再把仍有其他来源的物品重新推导（DRed），
+ * 这样环路（如钻石 ↔ 钻石块）不会互相支撑而残留
+ */
+public class CraftableClosure {
+    private static final int EMPTY_SLOT = -1;
+
+    private final GraphIndex index;
+
+    // 可得物品与可执行配方的位图
+    private final long[] available;
+    private final long[] activeRecipes;
+
+    // 每个配方还缺几种输入；每个物品有几个可执行配方能产出它；每个物品在背包中的数量
+    private final int[] missing;
+    private final int[] support;
+    private final int[] inventoryCount;
+
+    // 每个背包格子当前记录的物品
+    private int[] slotItems = new int[0];
+
+    // 传播用的工作栈和撤销列表，每个物品在一次更新中最多进出一次
+    private final int[] stack;
+    private final int[] removed;
+
+    private int craftableCount = 0;
+
+    public CraftableClosure(GraphIndex index) {
+        this.index = index;
+        int itemCount = index.getItemCount();
+        int nodeCount = index.getNodeCount();
+        available = new long[(itemCount + 63) >>> 6];
+        activeRecipes = new long[(nodeCount + 63) >>> 6];
+        missing = new int[nodeCount];
+        support = new int[itemCount];
+        inventoryCount = new int[itemCount];
+        stack = new int[itemCount];
+        removed = new int[itemCount];
+
+        // 没有输入的配方始终可执行
+        int top = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            missing[node] = index.getInputEnd(node) - index.getInputStart(node);
+            if (missing[node] == 0) {
+                top = activate(node, top);
+            }
+        }
+        propagate(top);
+    }
+
+    // ---------- 背包变化 ----------
+
+    /**
+     * 同步整个背包，只对内容变化的格子做增量更新
+     * @return 是否有格子发生变化
+     */
+    public boolean syncInventory(PlayerInventory inventory) {
+        boolean changed = false;
+        for (int slot = 0; slot < inventory.size(); slot++) {
+            ItemStack stack = inventory.getStack(slot);
+            changed |= setSlot(slot, stack.isEmpty() ? null : stack.getItem());
+        }
+        return changed;
+    }
+
+    /**
+     * 更新单个格子的物品，null 表示清空
+     * @return 格子内容是否发生变化
+     */
+    public boolean setSlot(int slot, Item item) {
+        if (slot >= slotItems.length) {
+            int oldLength = slotItems.length;
+            slotItems = Arrays.copyOf(slotItems, Math.max(slot + 1, oldLength * 2));
+            Arrays.fill(slotItems, oldLength, slotItems.length, EMPTY_SLOT);
+        }
+        int rawId = item == null ? EMPTY_SLOT : rawIdOf(item);
+        int previous = slotItems[slot];
+        if (previous == rawId) {
+            return false;
+        }
+        slotItems[slot] = rawId;
+        if (previous != EMPTY_SLOT) {
+            removeItem(previous);
+        }
+        if (rawId != EMPTY_SLOT) {
+            addItem(rawId);
+        }
+        return true;
+    }
+
+    public void addItem(Item item) {
+        int rawId = rawIdOf(item);
+        if (rawId != EMPTY_SLOT) {
+            addItem(rawId);
+        }
+    }
+
+    public void removeItem(Item item) {
+        int rawId = rawIdOf(item);
+        if (rawId != EMPTY_SLOT && inventoryCount[rawId] > 0) {
+            removeItem(rawId);
+        }
+    }
+
+    private void addItem(int item) {
+        if (inventoryCount[item]++ == 0 && !isAvailable(item)) {
+            insert(item);
+        }
+    }
+
+    private void removeItem(int item) {
+        if (--inventoryCount[item] > 0) {
+            return;
+        }
+        // 1. 撤销：该物品以及只经由它推导出的物品全部标记为不可得
+        int removedCount = 0;
+        int top = 0;
+        clearAvailable(item);
+        removed[removedCount++] = item;
+        stack[top++] = item;
+        while (top > 0) {
+            int current = stack[--top];
+            for (int slot = index.getConsumerStart(current); slot < index.getConsumerEnd(current); slot++) {
+                int node = index.getConsumer(slot);
+                if (missing[node]++ != 0) continue;
+
+                // 配方由可执行变为不可执行
+                clearBit(activeRecipes, node);
+                int output = index.getOutputItem(node);
+                if (--support[output] == 0) {
+                    craftableCount--;
+                }
+                if (isAvailable(output) && inventoryCount[output] == 0) {
+                    clearAvailable(output);
+                    removed[removedCount++] = output;
+                    stack[top++] = output;
+                }
+            }
+        }
+
+        // 2. 重新推导：仍在背包中或仍有可执行配方产出的物品
+        for (int i = 0; i < removedCount; i++) {
+            int candidate = removed[i];
+            if (!isAvailable(candidate) && (inventoryCount[candidate] > 0 || support[candidate] > 0)) {
+                insert(candidate);
+            }
+        }
+    }
+
+    // 标记物品可得并向下游传播
+    private void insert(int item) {
+        setAvailable(item);
+        stack[0] = item;
+        propagate(1);
+    }
+
+    private void propagate(int top) {
+        while (top > 0) {
+            int current = stack[--top];
+            for (int slot = index.getConsumerStart(current); slot < index.getConsumerEnd(current); slot++) {
+                int node = index.getConsumer(slot);
+                if (--missing[node] == 0) {
+                    top = activate(node, top);
+                }
+            }
+        }
+    }
+
+    // 配方变为可执行，输出物品首次可得时压栈
+    private int activate(int node, int top) {
+        setBit(activeRecipes, node);
+        int output = index.getOutputItem(node);
+        if (support[output]++ == 0) {
+            craftableCount++;
+        }
+        if (!isAvailable(output)) {
+            setAvailable(output);
+            stack[top++] = output;
+        }
+        return top;
+    }
+
+    // ---------- 查询 ----------
+
+    // 在背包中或者可以合成
+    public boolean isAvailable(Item item) {
+        int rawId = rawIdOf(item);
+        return rawId != EMPTY_SLOT && isAvailable(rawId);
+    }
+
+    // 至少有一个配方的输入全部可得
+    public boolean isCraftable(Item item) {
+        int rawId = rawIdOf(item);
+        return rawId != EMPTY_SLOT && support[rawId] > 0;
+    }
+
+    public boolean isRecipeCraftable(RecipeNode node) {
+        int nodeIndex = index.indexOf(node.getRecipeId());
+        return nodeIndex >= 0 && isRecipeCraftable(nodeIndex);
+    }
+
+    public boolean isRecipeCraftable(int node) {
+        return (activeRecipes[node >>> 6] & (1L << node)) != 0;
+    }
+
+    // 配方还缺几种输入，不在图中时返回 -1
+    public int getMissingCount(RecipeNode node) {
+        int nodeIndex = index.indexOf(node.getRecipeId());
+        return nodeIndex >= 0 ? missing[nodeIndex] : -1;
+    }
+
+    public int getCraftableCount() {
+        return craftableCount;
+    }
+
+    // 所有可以合成的物品（按物品ID排序）
+    public List<Item> getCraftableItems() {
+        List<Item> result = new ArrayList<>(craftableCount);
+        for (int item = 0; item < support.length; item++) {
+            if (support[item] > 0) {
+                result.add(Registries.ITEM.get(item));
+            }
+        }
+        return result;
+    }
+
+    // ---------- 位图 ----------
+
+    private int rawIdOf(Item item) {
+        int rawId = Registries.ITEM.getRawId(item);
+        return rawId >= 0 && rawId < support.length ? rawId : EMPTY_SLOT;
+    }
+
+    private boolean isAvailable(int item) {
+        return (available[item >>> 6] & (1L << item)) != 0;
+    }
+
+    private void setAvailable(int item) {
+        setBit(available, item);
+    }
+
+    private void clearAvailable(int item) {
+        clearBit(available, item);
+    }
+
+    private static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void clearBit(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+}
@@ -0,0 +1,347 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+
+import java.util.*;
+
+/**
+ * 从原材料出发的支配树，每个快照构建一次
+ *
+ * 流图的顶点为一个虚拟根、所有物品和所有配方：根指向每个参与配方的原材料，
+ * 物品指向使用它的配方，配方指向它的输出物品。原材料沿用 MaterialResolver 的判定：
+ * 除了没有配方产出的物品，只能在环内互相合成的一组物品（如铁锭 ↔ 铁块/铁粒）中也有一个被视为原材料，
+ * 否则整组物品从根出发不可达，不会计入支配数和卡口排行。若从根到 x 的每条路径都经过 d，则 d 支配 x——
+ * 也就是说没有 d 就得不到 x。被某个物品支配的物品越多，它在科技树中的“卡口”作用越大。
+ * 注意流图把配方的多个输入视为“任选其一”，因此这里给出的是必经物品的下界
+ *
+ * 用 Lengauer–Tarjan 算法（带路径压缩）在 int 数组上计算，DFS 与路径压缩都是迭代实现
+ */
+public class DominatorTree {
+    private static final int ROOT = 0;
+
+    private final GraphIndex index;
+    private final int itemCount;
+    // 根直接指向的物品
+    private final boolean[] raw;
+
+    // 每个顶点的直接支配者（顶点编号），根和不可达顶点为 -1
+    private final int[] idom;
+    // 支配树上的先序区间，用于 O(1) 判断支配关系
+    private final int[] enter;
+    private final int[] exit;
+    // 每个顶点严格支配的物品数
+    private final int[] dominatedItems;
+
+    private final int reachableItemCount;
+    private final int[] bottlenecks;
+
+    DominatorTree(GraphIndex index, MaterialResolver resolver) {
+        this.index = index;
+        itemCount = index.getItemCount();
+        int nodeCount = index.getNodeCount();
+        raw = new boolean[itemCount];
+        for (int item = 0; item < itemCount; item++) {
+            raw[item] = resolver.isRawMaterial(item)
+                    && index.getProducerCount(item) + index.getConsumerCount(item) > 0;
+        }
+        int n = 1 + itemCount + nodeCount;
+
+        // 1. 迭代 DFS：先序编号、DFS 树父节点
+        int[] dfn = new int[n];
+        Arrays.fill(dfn, -1);
+        int[] vertex = new int[n];
+        int[] parent = new int[n];
+        int[] callVertex = new int[n];
+        int[] callCursor = new int[n];
+        int count = 0;
+        dfn[ROOT] = count;
+        vertex[count++] = ROOT;
+        parent[ROOT] = -1;
+        int depth = 0;
+        callVertex[0] = ROOT;
+        callCursor[0] = 0;
+        while (depth >= 0) {
+            int v = callVertex[depth];
+            int w = nextSuccessor(v, callCursor, depth);
+            if (w < 0) {
+                depth--;
+            } else if (dfn[w] < 0) {
+                dfn[w] = count;
+                vertex[count++] = w;
+                parent[w] = v;
+                depth++;
+                callVertex[depth] = w;
+                callCursor[depth] = 0;
+            }
+        }
+
+        // 2. Lengauer–Tarjan：半支配者（以 DFS 编号表示）与直接支配者
+        int[] semi = new int[n];
+        int[] label = new int[n];
+        int[] ancestor = new int[n];
+        int[] bucketHead = new int[n];
+        int[] bucketNext = new int[n];
+        idom = new int[n];
+        for (int v = 0; v < n; v++) {
+            semi[v] = dfn[v];
+            label[v] = v;
+            ancestor[v] = -1;
+            bucketHead[v] = -1;
+            idom[v] = -1;
+        }
+        int[] path = new int[n];
+        for (int i = count - 1; i >= 1; i--) {
+            int w = vertex[i];
+            int predecessorCount = predecessorCount(w);
+            for (int p = 0; p < predecessorCount; p++) {
+                int v = predecessor(w, p);
+                if (dfn[v] < 0) continue;
+                int u = eval(v, ancestor, label, semi, path);
+                if (semi[u] < semi[w]) {
+                    semi[w] = semi[u];
+                }
+            }
+            int s = vertex[semi[w]];
+            bucketNext[w] = bucketHead[s];
+            bucketHead[s] = w;
+            ancestor[w] = parent[w];
+
+            int pw = parent[w];
+            for (int v = bucketHead[pw]; v >= 0; v = bucketNext[v]) {
+                int u = eval(v, ancestor, label, semi, path);
+                idom[v] = semi[u] < semi[v] ? u : pw;
+            }
+            bucketHead[pw] = -1;
+        }
+        for (int i = 1; i < count; i++) {
+            int w = vertex[i];
+            if (idom[w] != vertex[semi[w]]) {
+                idom[w] = idom[idom[w]];
+            }
+        }
+
+        // 3. 子树中的物品数（DFS 逆序累加，直接支配者的编号总比自身小）
+        dominatedItems = new int[n];
+        int[] subtreeItems = new int[n];
+        for (int i = count - 1; i >= 1; i--) {
+            int w = vertex[i];
+            if (isItemVertex(w)) {
+                subtreeItems[w]++;
+            }
+            dominatedItems[w] = subtreeItems[w] - (isItemVertex(w) ? 1 : 0);
+            subtreeItems[idom[w]] += subtreeItems[w];
+        }
+        dominatedItems[ROOT] = subtreeItems[ROOT];
+        reachableItemCount = subtreeItems[ROOT];
+
+        // 4. 支配树的先序区间
+        int[] childOffsets = new int[n + 1];
+        for (int i = 1; i < count; i++) {
+            childOffsets[idom[vertex[i]] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            childOffsets[v + 1] += childOffsets[v];
+        }
+        int[] children = new int[Math.max(count - 1, 0)];
+        int[] fill = Arrays.copyOf(childOffsets, n);
+        for (int i = 1; i < count; i++) {
+            int w = vertex[i];
+            children[fill[idom[w]]++] = w;
+        }
+        enter = new int[n];
+        exit = new int[n];
+        Arrays.fill(enter, -1);
+        Arrays.fill(exit, -1);
+        int clock = 0;
+        int top = 0;
+        callVertex[0] = ROOT;
+        callCursor[0] = childOffsets[ROOT];
+        enter[ROOT] = clock++;
+        while (top >= 0) {
+            int v = callVertex[top];
+            if (callCursor[top] < childOffsets[v + 1]) {
+                int child = children[callCursor[top]++];
+                enter[child] = clock++;
+                top++;
+                callVertex[top] = child;
+                callCursor[top] = childOffsets[child];
+            } else {
+                exit[v] = clock;
+                top--;
+            }
+        }
+
+        // 5. 卡口排行：支配物品最多的物品
+        int[] itemScores = new int[itemCount];
+        for (int item = 0; item < itemCount; item++) {
+            itemScores[item] = dominatedItems[itemVertex(item)];
+        }
+        bottlenecks = GraphStatistics.topK(itemScores, GraphStatistics.TOP_K);
+    }
+
+    // ---------- 流图 ----------
+
+    private static int itemVertex(int item) {
+        return 1 + item;
+    }
+
+    private int recipeVertex(int node) {
+        return 1 + itemCount + node;
+    }
+
+    private boolean isItemVertex(int v) {
+        return v >= 1 && v <= itemCount;
+    }
+
+    private boolean isRaw(int item) {
+        return raw[item];
+    }
+
+    // 顶点 v 的下一个后继，游标保存在 cursor[depth] 中；没有更多后继时返回 -1
+    private int nextSuccessor(int v, int[] cursor, int depth) {
+        if (v == ROOT) {
+            while (cursor[depth] < itemCount) {
+                int item = cursor[depth]++;
+                if (isRaw(item)) {
+                    return itemVertex(item);
+                }
+            }
+            return -1;
+        }
+        if (isItemVertex(v)) {
+            int item = v - 1;
+            int slot = index.getConsumerStart(item) + cursor[depth];
+            if (slot < index.getConsumerEnd(item)) {
+                cursor[depth]++;
+                return recipeVertex(index.getConsumer(slot));
+            }
+            return -1;
+        }
+        if (cursor[depth]++ == 0) {
+            return itemVertex(index.getOutputItem(v - 1 - itemCount));
+        }
+        return -1;
+    }
+
+    // 前驱：物品的前驱是产出它的配方（原材料还有根），配方的前驱是它的输入物品
+    private int predecessorCount(int v) {
+        if (isItemVertex(v)) {
+            int item = v - 1;
+            return index.getProducerCount(item) + (isRaw(item) ? 1 : 0);
+        }
+        int node = v - 1 - itemCount;
+        return index.getInputEnd(node) - index.getInputStart(node);
+    }
+
+    private int predecessor(int v, int i) {
+        if (isItemVertex(v)) {
+            int item = v - 1;
+            return i < index.getProducerCount(item)
+                    ? recipeVertex(index.getProducer(index.getProducerStart(item) + i))
+                    : ROOT;
+        }
+        int node = v - 1 - itemCount;
+        return itemVertex(index.getInputItem(index.getInputStart(node) + i));
+    }
+
+    // 森林中 v 到其树根路径上半支配者最小的顶点（迭代路径压缩）
+    private static int eval(int v, int[] ancestor, int[] label, int[] semi, int[] path) {
+        if (ancestor[v] < 0) {
+            return v;
+        }
+        int size = 0;
+        int x = v;
+        while (ancestor[ancestor[x]] >= 0) {
+            path[size++] = x;
+            x = ancestor[x];
+        }
+        while (size > 0) {
+            int y = path[--size];
+            int a = ancestor[y];
+            if (semi[label[a]] < semi[label[y]]) {
+                label[y] = label[a];
+            }
+            ancestor[y] = ancestor[a];
+        }
+        return label[v];
+    }
+
+    // ---------- 查询 ----------
+
+    private int rawIdOf(Item item) {
+        int rawId = Registries.ITEM.getRawId(item);
+        return rawId >= 0 && rawId < itemCount ? rawId : -1;
+    }
+
+    // 物品能否从原材料出发得到
+    public boolean isReachable(Item item) {
+        int rawId = rawIdOf(item);
+        return rawId >= 0 && enter[itemVertex(rawId)] >= 0;
+    }
+
+    // 物品 a 是否支配物品 b（没有 a 就得不到 b），物品支配自身
+    public boolean dominates(Item a, Item b) {
+        int ra = rawIdOf(a);
+        int rb = rawIdOf(b);
+        if (ra < 0 || rb < 0) {
+            return false;
+        }
+        int va = itemVertex(ra);
+        int vb = itemVertex(rb);
+        return enter[va] >= 0 && enter[vb] >= 0 && enter[va] <= enter[vb] && exit[vb] <= exit[va];
+    }
+
+    /**
+     * 最近的必经物品：沿支配树向上找到的第一个物品
+     * @return 只依赖原材料集合整体（或不可达）时返回 null
+     */
+    public Item getImmediateDominator(Item item) {
+        int rawId = rawIdOf(item);
+        if (rawId < 0) {
+            return null;
+        }
+        int v = idom[itemVertex(rawId)];
+        while (v > ROOT && !isItemVertex(v)) {
+            v = idom[v];
+        }
+        return v > ROOT ? Registries.ITEM.get(v - 1) : null;
+    }
+
+    // 物品严格支配的物品数
+    public int getDominatedCount(int rawItemId) {
+        return rawItemId >= 0 && rawItemId < itemCount ? dominatedItems[itemVertex(rawItemId)] : 0;
+    }
+
+    public int getDominatedCount(Item item) {
+        return getDominatedCount(rawIdOf(item));
+    }
+
+    // 从原材料出发可以得到的物品数（含原材料）
+    public int getReachableItemCount() {
+        return reachableItemCount;
+    }
+
+    // 支配物品最多的物品原始ID，最多 TOP_K 个
+    public int[] getBottlenecks() {
+        return bottlenecks.clone();
+    }
+
+    public boolean isBottleneck(Item item) {
+        int rawId = rawIdOf(item);
+        for (int bottleneck : bottlenecks) {
+            if (bottleneck == rawId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "DominatorTree{" +
+                "reachableItems=" + reachableItemCount +
+                ", bottlenecks=" + bottlenecks.length +
+                '}';
+    }
+}
@@ -0,0 +1,123 @@
+package com.cp.data;
+
+import java.util.*;
+
+/**
+ * 按关系类型分组、组内按权重升序排列的边索引，每个快照构建一次
+ * “权重不小于 w 的某类边”只需在该组内二分查找下界，结果是一段连续区间，
+ * 界面滑块和导出筛选的开销与边总数无关
+ */
+public class EdgeWeightIndex {
+    private final GraphIndex index;
+
+    // 第 t 组占用 [groupOffsets[t], groupOffsets[t + 1])
+    private final int[] groupOffsets;
+    // 排序后的边下标及其权重
+    private final int[] sortedEdges;
+    private final double[] sortedWeights;
+
+    EdgeWeightIndex(GraphIndex index) {
+        this.index = index;
+        int typeCount = index.getEdgeTypeNames().size();
+        int edgeCount = index.getEdgeCount();
+
+        groupOffsets = new int[typeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            groupOffsets[index.getEdgeType(e) + 1]++;
+        }
+        for (int t = 0; t < typeCount; t++) {
+            groupOffsets[t + 1] += groupOffsets[t];
+        }
+
+        // 按 (类型, 权重, 边下标) 排序，相同权重时保持原始顺序
+        Integer[] order = new Integer[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            order[e] = e;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(index::getEdgeType)
+                .thenComparingDouble(index::getEdgeWeight)
+                .thenComparingInt(e -> e));
+        sortedEdges = new int[edgeCount];
+        sortedWeights = new double[edgeCount];
+        for (int slot = 0; slot < edgeCount; slot++) {
+            sortedEdges[slot] = order[slot];
+            sortedWeights[slot] = index.getEdgeWeight(order[slot]);
+        }
+    }
+
+    public int getTypeCount() {
+        return groupOffsets.length - 1;
+    }
+
+    // 第一个权重不小于 minWeight 的位置
+    public int rangeStart(int type, double minWeight) {
+        int lo = groupOffsets[type];
+        int hi = groupOffsets[type + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedWeights[mid] < minWeight) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    public int rangeEnd(int type) {
+        return groupOffsets[type + 1];
+    }
+
+    // 排序位置上的边（GraphIndex 边下标）
+    public int getEdge(int slot) {
+        return sortedEdges[slot];
+    }
+
+    public double getWeight(int slot) {
+        return sortedWeights[slot];
+    }
+
+    // 某类边中权重不小于 minWeight 的数量，类型不存在时返回 0
+    public int countAtLeast(String type, double minWeight) {
+        int ordinal = index.getEdgeTypeOrdinal(type);
+        return ordinal < 0 ? 0 : rangeEnd(ordinal) - rangeStart(ordinal, minWeight);
+    }
+
+    // 所有类型中权重不小于 minWeight 的数量
+    public int countAtLeast(double minWeight) {
+        int count = 0;
+        for (int t = 0; t < getTypeCount(); t++) {
+            count += rangeEnd(t) - rangeStart(t, minWeight);
+        }
+        return count;
+    }
+
+    /**
+     * 某类边中权重不小于 minWeight 的边，按权重升序；返回的列表直接引用索引区间，不复制
+     */
+    public List<RecipeEdge> edgesAtLeast(String type, double minWeight) {
+        int ordinal = index.getEdgeTypeOrdinal(type);
+        if (ordinal < 0) {
+            return Collections.emptyList();
+        }
+        int start = rangeStart(ordinal, minWeight);
+        int end = rangeEnd(ordinal);
+        return new AbstractList<>() {
+            @Override
+            public RecipeEdge get(int i) {
+                return index.getEdge(sortedEdges[start + Objects.checkIndex(i, end - start)]);
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        };
+    }
+
+    // 某类边的最大权重，没有该类边时返回 NaN
+    public double getMaxWeight(String type) {
+        int ordinal = index.getEdgeTypeOrdinal(type);
+        if (ordinal < 0 || rangeEnd(ordinal) == groupOffsets[ordinal]) {
+            return Double.NaN;
+        }
+        return sortedWeights[rangeEnd(ordinal) - 1];
+    }
+}
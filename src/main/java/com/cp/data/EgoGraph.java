@@ -0,0 +1,108 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+/**
+ * k 步邻域子图
+ * 从一个配方（或某物品的所有生产/消费配方）出发，沿满足条件的边（忽略方向）扩展 k 步，
+ * 得到的子图直接引用父快照中的节点和边对象，构建代价只与邻域大小有关
+ */
+public class EgoGraph {
+    /**
+     * 邻域筛选条件
+     * @param hops 最多扩展的步数
+     * @param edgeTypes 允许的关系类型，null 表示全部
+     * @param minWeight 边权重下限（含）
+     */
+    public record Filter(int hops, Set<String> edgeTypes, double minWeight) {
+        public static Filter hops(int hops) {
+            return new Filter(hops, null, Double.NEGATIVE_INFINITY);
+        }
+    }
+
+    /**
+     * 以配方为中心的邻域子图，配方不存在时返回空图
+     */
+    public static RecipeGraph ofRecipe(RecipeGraph graph, Identifier recipeId, Filter filter) {
+        GraphIndex index = graph.getIndex();
+        int center = index.indexOf(recipeId);
+        return extract(graph, center < 0 ? new int[0] : new int[]{center}, filter);
+    }
+
+    /**
+     * 以物品为中心的邻域子图：起点为所有生产或消费该物品的配方
+     */
+    public static RecipeGraph ofItem(RecipeGraph graph, Item item, Filter filter) {
+        GraphIndex index = graph.getIndex();
+        int rawId = Registries.ITEM.getRawId(item);
+        if (rawId < 0 || rawId >= index.getItemCount()) {
+            return extract(graph, new int[0], filter);
+        }
+        int producers = index.getProducerCount(rawId);
+        int[] seeds = new int[producers + index.getConsumerCount(rawId)];
+        for (int i = 0; i < producers; i++) {
+            seeds[i] = index.getProducer(index.getProducerStart(rawId) + i);
+        }
+        for (int i = producers; i < seeds.length; i++) {
+            seeds[i] = index.getConsumer(index.getConsumerStart(rawId) + i - producers);
+        }
+        return extract(graph, seeds, filter);
+    }
+
+    private static RecipeGraph extract(RecipeGraph graph, int[] seeds, Filter filter) {
+        GraphIndex index = graph.getIndex();
+        boolean[] allowedType = new boolean[index.getEdgeTypeNames().size()];
+        for (int t = 0; t < allowedType.length; t++) {
+            allowedType[t] = filter.edgeTypes() == null || filter.edgeTypes().contains(index.getEdgeTypeNames().get(t));
+        }
+
+        // 广度优先扩展，用 HashMap 记录访问过的节点，避免按整图大小分配数组
+        Map<Integer, Integer> depth = new HashMap<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int seed : seeds) {
+            if (depth.putIfAbsent(seed, 0) == null) {
+                queue.add(seed);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int nextDepth = depth.get(node) + 1;
+            if (nextDepth > filter.hops()) continue;
+            for (int slot = index.getOutStart(node); slot < index.getOutEnd(node); slot++) {
+                int edge = index.getOutEdge(slot);
+                if (accepts(index, edge, allowedType, filter) && depth.putIfAbsent(index.getEdgeTo(edge), nextDepth) == null) {
+                    queue.add(index.getEdgeTo(edge));
+                }
+            }
+            for (int slot = index.getInStart(node); slot < index.getInEnd(node); slot++) {
+                int edge = index.getInEdge(slot);
+                if (accepts(index, edge, allowedType, filter) && depth.putIfAbsent(index.getEdgeFrom(edge), nextDepth) == null) {
+                    queue.add(index.getEdgeFrom(edge));
+                }
+            }
+        }
+
+        // 节点以及两端都在邻域内且满足条件的边
+        Map<Identifier, RecipeNode> nodes = new HashMap<>(depth.size() * 2);
+        List<RecipeEdge> edges = new ArrayList<>();
+        for (int node : depth.keySet()) {
+            RecipeNode recipeNode = index.getNode(node);
+            nodes.put(recipeNode.getRecipeId(), recipeNode);
+            for (int slot = index.getOutStart(node); slot < index.getOutEnd(node); slot++) {
+                int edge = index.getOutEdge(slot);
+                if (depth.containsKey(index.getEdgeTo(edge)) && accepts(index, edge, allowedType, filter)) {
+                    edges.add(index.getEdge(edge));
+                }
+            }
+        }
+        return new RecipeGraph(nodes, edges, graph.getSnapshotVersion());
+    }
+
+    private static boolean accepts(GraphIndex index, int edge, boolean[] allowedType, Filter filter) {
+        return allowedType[index.getEdgeType(edge)] && index.getEdgeWeight(edge) >= filter.minWeight();
+    }
+}
@@ -1,6 +1,7 @@
 // GraphBuilder.java - 完整实现
 package com.cp.data;
 
+import com.cp.data.RecipeDataManager.EdgeKey;
 import net.minecraft.item.Item;
 import net.minecraft.util.Identifier;
 
@@ -57,7 +58,7 @@ public class GraphBuilder {
     }
 
     private void createDirectEdge(RecipeNode fromNode, RecipeNode toNode) {
-        String edgeKey = createEdgeKey(fromNode, toNode, "DIRECT_CONSUMPTION");
+        EdgeKey edgeKey = createEdgeKey(fromNode, toNode, "DIRECT_CONSUMPTION");
 
         if (!dataManager.hasEdge(edgeKey)) {
             RecipeEdge edge = new RecipeEdge(
@@ -72,8 +73,8 @@ public class GraphBuilder {
     }
 
     private void createBidirectionalEdges(RecipeNode nodeA, RecipeNode nodeB) {
-        String edgeKeyAB = createEdgeKey(nodeA, nodeB, "BIDIRECTIONAL");
-        String edgeKeyBA = createEdgeKey(nodeB, nodeA, "BIDIRECTIONAL");
+        EdgeKey edgeKeyAB = createEdgeKey(nodeA, nodeB, "BIDIRECTIONAL");
+        EdgeKey edgeKeyBA = createEdgeKey(nodeB, nodeA, "BIDIRECTIONAL");
 
         if (!dataManager.hasEdge(edgeKeyAB)) {
             RecipeEdge edgeAB = new RecipeEdge(
@@ -153,22 +154,14 @@ public class GraphBuilder {
                     continue;
                 }
 
-                // 计算共享输入物品的数量
-                int sharedItems = 0;
-                Set<Item> items1 = node1.getInputItems();
-                Set<Item> items2 = node2.getInputItems();
-
-                for (Item item : items1) {
-                    if (items2.contains(item)) {
-                        sharedItems++;
-                    }
-                }
+                // 计算共享输入物品的数量（按每种物品两边数量的较小值累加）
+                int sharedItems = sharedInputCount(node1, node2);
 
                 // 如果有共享输入，创建边
                 if (sharedItems > 0) {
-                    // 权重基于共享物品的比例
-                    double weight = 0.5 * Math.min(sharedItems / (double) items1.size(),
-                            sharedItems / (double) items2.size());
+                    // 权重基于共享物品数量占各自输入总数的比例
+                    double weight = 0.5 * Math.min(sharedItems / (double) node1.getTotalInputCount(),
+                            sharedItems / (double) node2.getTotalInputCount());
 
                     createUndirectedEdge(node1, node2, "SHARED_INPUT", weight);
                 }
@@ -176,6 +169,26 @@ public class GraphBuilder {
         }
     }
 
+    // 两个配方输入数组都按物品ID升序，归并一次即可
+    private static int sharedInputCount(RecipeNode node1, RecipeNode node2) {
+        int[] ids1 = node1.getInputItemIds();
+        int[] ids2 = node2.getInputItemIds();
+        int[] counts1 = node1.getInputCounts();
+        int[] counts2 = node2.getInputCounts();
+        int shared = 0;
+        int i = 0, j = 0;
+        while (i < ids1.length && j < ids2.length) {
+            if (ids1[i] < ids2[j]) {
+                i++;
+            } else if (ids1[i] > ids2[j]) {
+                j++;
+            } else {
+                shared += Math.min(counts1[i++], counts2[j++]);
+            }
+        }
+        return shared;
+    }
+
     private void buildAlternativeRelationships() {
         // 实现替代输出关系的构建
         Map<Item, List<Identifier>> outputItemMap = new HashMap<>();
@@ -265,7 +278,7 @@ public class GraphBuilder {
                                 0.2 // 间接链式关系的权重较低
                         );
 
-                        String edgeKey = createEdgeKey(edge1.getFromRecipeId(),
+                        EdgeKey edgeKey = createEdgeKey(edge1.getFromRecipeId(),
                                 edge2.getToRecipeId(),
                                 "INDIRECT_CHAIN");
 
@@ -359,8 +372,8 @@ public class GraphBuilder {
     }
 
     private void createUndirectedEdge(RecipeNode node1, RecipeNode node2, String type, double weight) {
-        String edgeKey1 = createEdgeKey(node1, node2, type);
-        String edgeKey2 = createEdgeKey(node2, node1, type);
+        EdgeKey edgeKey1 = createEdgeKey(node1, node2, type);
+        EdgeKey edgeKey2 = createEdgeKey(node2, node1, type);
 
         if (!dataManager.hasEdge(edgeKey1)) {
             RecipeEdge edge = new RecipeEdge(
@@ -386,11 +399,11 @@ public class GraphBuilder {
         }
     }
 
-    private String createEdgeKey(RecipeNode from, RecipeNode to, String type) {
-        return from.getRecipeId() + "->" + to.getRecipeId() + ":" + type;
+    private EdgeKey createEdgeKey(RecipeNode from, RecipeNode to, String type) {
+        return new EdgeKey(from.getRecipeId(), to.getRecipeId(), type);
     }
 
-    private String createEdgeKey(Identifier from, Identifier to, String type) {
-        return from + "->" + to + ":" + type;
+    private EdgeKey createEdgeKey(Identifier from, Identifier to, String type) {
+        return new EdgeKey(from, to, type);
     }
 }
\ No newline at end of file
@@ -0,0 +1,220 @@
+package com.cp.data;
+
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+/**
+ * 两个配方图快照之间的差异
+ * 只记录新增/删除的节点和边，以及权重发生变化的边
+ */
+public class GraphDelta {
+    private final long baseVersion;
+    private final long targetVersion;
+    private final List<RecipeNode> addedNodes;
+    private final List<Identifier> removedNodes;
+    private final List<RecipeEdge> addedEdges;
+    private final List<RecipeEdge> removedEdges;
+    private final List<RecipeEdge> changedWeights;
+
+    public GraphDelta(long baseVersion, long targetVersion,
+                      List<RecipeNode> addedNodes, List<Identifier> removedNodes,
+                      List<RecipeEdge> addedEdges, List<RecipeEdge> removedEdges,
+                      List<RecipeEdge> changedWeights) {
+        this.baseVersion = baseVersion;
+        this.targetVersion = targetVersion;
+        this.addedNodes = List.copyOf(addedNodes);
+        this.removedNodes = List.copyOf(removedNodes);
+        this.addedEdges = List.copyOf(addedEdges);
+        this.removedEdges = List.copyOf(removedEdges);
+        this.changedWeights = List.copyOf(changedWeights);
+    }
+
+    /**
+     * 计算从 base 到 target 的差异，base 为null时视为空图（所有节点和边都记为新增）
+     * 内容发生变化的节点按“删除 + 新增”记录
+     */
+    public static GraphDelta between(GraphSnapshot base, GraphSnapshot target) {
+        List<RecipeNode> addedNodes = new ArrayList<>();
+        List<Identifier> removedNodes = new ArrayList<>();
+        List<RecipeEdge> addedEdges = new ArrayList<>();
+        List<RecipeEdge> removedEdges = new ArrayList<>();
+        List<RecipeEdge> changedWeights = new ArrayList<>();
+
+        diffNodes(base != null ? base.getNodes() : Map.of(), target.getNodes(), addedNodes, removedNodes);
+        diffEdges(base != null ? base.getEdges() : List.of(), target.getEdges(), addedEdges, removedEdges, changedWeights);
+
+        return new GraphDelta(base != null ? base.getSnapshotVersion() : 0L, target.getSnapshotVersion(),
+                addedNodes, removedNodes, addedEdges, removedEdges, changedWeights);
+    }
+
+    /**
+     * 两个分片存储之间的差异：内容摘要相同的命名空间直接跳过，其余的逐个加载新旧分片对比，
+     * 跨分片边只在全局索引里，不需要加载分片
+     */
+    public static GraphDelta between(ShardedGraphStore base, ShardedGraphStore target) {
+        List<RecipeNode> addedNodes = new ArrayList<>();
+        List<Identifier> removedNodes = new ArrayList<>();
+        List<RecipeEdge> addedEdges = new ArrayList<>();
+        List<RecipeEdge> removedEdges = new ArrayList<>();
+        List<RecipeEdge> changedWeights = new ArrayList<>();
+
+        Set<String> namespaces = new TreeSet<>(base.getNamespaces());
+        namespaces.addAll(target.getNamespaces());
+        for (String namespace : namespaces) {
+            if (Objects.equals(base.getShardDigest(namespace), target.getShardDigest(namespace))) {
+                continue;
+            }
+            diffNodes(byId(base.getShardNodes(namespace)), byId(target.getShardNodes(namespace)),
+                    addedNodes, removedNodes);
+            diffEdges(base.getShardEdges(namespace), target.getShardEdges(namespace),
+                    addedEdges, removedEdges, changedWeights);
+        }
+        List<RecipeEdge> baseCrossEdges = new ArrayList<>();
+        base.crossEdgeIterator().forEachRemaining(baseCrossEdges::add);
+        List<RecipeEdge> targetCrossEdges = new ArrayList<>();
+        target.crossEdgeIterator().forEachRemaining(targetCrossEdges::add);
+        diffEdges(baseCrossEdges, targetCrossEdges, addedEdges, removedEdges, changedWeights);
+
+        return new GraphDelta(base.getSnapshotVersion(), target.getSnapshotVersion(),
+                addedNodes, removedNodes, addedEdges, removedEdges, changedWeights);
+    }
+
+    private static Map<Identifier, RecipeNode> byId(Collection<RecipeNode> nodes) {
+        Map<Identifier, RecipeNode> result = new HashMap<>(nodes.size() * 2);
+        for (RecipeNode node : nodes) {
+            result.put(node.getRecipeId(), node);
+        }
+        return result;
+    }
+
+    private static void diffNodes(Map<Identifier, RecipeNode> baseNodes, Map<Identifier, RecipeNode> targetNodes,
+                                  List<RecipeNode> addedNodes, List<Identifier> removedNodes) {
+        for (RecipeNode node : targetNodes.values()) {
+            RecipeNode old = baseNodes.get(node.getRecipeId());
+            if (old == null) {
+                addedNodes.add(node);
+            } else if (!sameContent(old, node)) {
+                removedNodes.add(old.getRecipeId());
+                addedNodes.add(node);
+            }
+        }
+        for (Identifier id : baseNodes.keySet()) {
+            if (!targetNodes.containsKey(id)) {
+                removedNodes.add(id);
+            }
+        }
+    }
+
+    // RecipeEdge 的相等性只看 (from, to, type)，权重单独比较
+    private static void diffEdges(Collection<RecipeEdge> base, Collection<RecipeEdge> target,
+                                  List<RecipeEdge> addedEdges, List<RecipeEdge> removedEdges,
+                                  List<RecipeEdge> changedWeights) {
+        Map<RecipeEdge, RecipeEdge> baseEdges = new HashMap<>(base.size() * 2);
+        for (RecipeEdge edge : base) {
+            baseEdges.put(edge, edge);
+        }
+        Set<RecipeEdge> targetEdges = new HashSet<>(target);
+
+        for (RecipeEdge edge : target) {
+            RecipeEdge old = baseEdges.get(edge);
+            if (old == null) {
+                addedEdges.add(edge);
+            } else if (Double.compare(old.getWeight(), edge.getWeight()) != 0) {
+                changedWeights.add(edge);
+            }
+        }
+        for (RecipeEdge edge : base) {
+            if (!targetEdges.contains(edge)) {
+                removedEdges.add(edge);
+            }
+        }
+    }
+
+    /**
+     * 把差异应用到基线快照上，得到目标版本的新快照
+     * 基线中未变化的节点和边对象直接复用
+     */
+    public RecipeGraph applyTo(RecipeGraph base) {
+        Map<Identifier, RecipeNode> nodes = new HashMap<>(base.getNodes());
+        for (Identifier recipeId : removedNodes) {
+            nodes.remove(recipeId);
+        }
+        for (RecipeNode node : addedNodes) {
+            nodes.put(node.getRecipeId(), node);
+        }
+
+        // 删除的边和权重变化的边都先从基线中去掉，再加入新的边
+        Set<RecipeEdge> dropped = new HashSet<>(removedEdges);
+        dropped.addAll(changedWeights);
+        List<RecipeEdge> edges = new ArrayList<>(base.getEdgeCount() + addedEdges.size());
+        for (RecipeEdge edge : base.getEdges()) {
+            if (!dropped.contains(edge)) {
+                edges.add(edge);
+            }
+        }
+        edges.addAll(changedWeights);
+        edges.addAll(addedEdges);
+
+        return new RecipeGraph(nodes, edges, targetVersion);
+    }
+
+    static boolean sameContent(RecipeNode a, RecipeNode b) {
+        return a.getOutputItem() == b.getOutputItem() &&
+                a.getOutputCount() == b.getOutputCount() &&
+                Arrays.equals(a.getInputItemIds(), b.getInputItemIds()) &&
+                Arrays.equals(a.getInputCounts(), b.getInputCounts()) &&
+                a.getAliasIds().equals(b.getAliasIds());
+    }
+
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    public long getTargetVersion() {
+        return targetVersion;
+    }
+
+    public List<RecipeNode> getAddedNodes() {
+        return addedNodes;
+    }
+
+    public List<Identifier> getRemovedNodes() {
+        return removedNodes;
+    }
+
+    public List<RecipeEdge> getAddedEdges() {
+        return addedEdges;
+    }
+
+    public List<RecipeEdge> getRemovedEdges() {
+        return removedEdges;
+    }
+
+    public List<RecipeEdge> getChangedWeights() {
+        return changedWeights;
+    }
+
+    // 差异中的条目总数
+    public int size() {
+        return addedNodes.size() + removedNodes.size() +
+                addedEdges.size() + removedEdges.size() + changedWeights.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "GraphDelta{" +
+                "base=" + baseVersion +
+                ", target=" + targetVersion +
+                ", +nodes=" + addedNodes.size() +
+                ", -nodes=" + removedNodes.size() +
+                ", +edges=" + addedEdges.size() +
+                ", -edges=" + removedEdges.size() +
+                ", ~weights=" + changedWeights.size() +
+                '}';
+    }
+}
@@ -0,0 +1,258 @@
+package com.cp.data;
+
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+/**
+ * 最近若干个配方图版本的历史，用于比较重载/整合包更新前后的变化
+ *
+ * 每个版本用两个 PersistentHashMap 保存节点和边（边以 (from, to, type) 为键、带权重的边对象为值）。
+ * 新版本在上一版本的映射上只做实际变化的 plus/minus，内容未变的节点沿用旧对象，
+ * 所以相邻版本共享绝大部分结构；任意两个保留版本之间的 diff 只访问不同的子树，耗时与变化量成正比
+ */
+public class GraphHistory implements GraphUpdateListener {
+    public static final int DEFAULT_CAPACITY = 8;
+    private static final String CHAIN_TYPE = "DIRECT_CONSUMPTION";
+
+    private final int capacity;
+    // 最旧的版本在前
+    private final ArrayDeque<Version> versions = new ArrayDeque<>();
+
+    /**
+     * 一个保留的版本
+     */
+    public record Version(long version, long timestamp,
+                          PersistentHashMap<Identifier, RecipeNode> nodes,
+                          PersistentHashMap<RecipeEdge, RecipeEdge> edges) {
+        public int getNodeCount() {
+            return nodes.size();
+        }
+
+        public int getEdgeCount() {
+            return edges.size();
+        }
+
+        // 还原为普通快照（与历史共享节点和边对象）
+        public RecipeGraph toGraph() {
+            Map<Identifier, RecipeNode> nodeMap = new HashMap<>(nodes.size() * 2);
+            nodes.forEach(nodeMap::put);
+            List<RecipeEdge> edgeList = new ArrayList<>(edges.size());
+            edges.forEach((key, edge) -> edgeList.add(edge));
+            return new RecipeGraph(nodeMap, edgeList, version);
+        }
+    }
+
+    public GraphHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public GraphHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void onGraphUpdated(GraphUpdateEvent event) {
+        // 分片快照的意义在于不把整个图留在内存里，历史不保存它们
+        if (!(event.getCurrent() instanceof RecipeGraph graph)) {
+            return;
+        }
+        // 发布时已经算好差异，不再与最新版本逐个比较
+        record(graph, event.getDelta());
+    }
+
+    /**
+     * 记录一个完整快照：逐个与最新版本比较，只对变化的节点和边修改映射
+     */
+    public synchronized void record(RecipeGraph graph) {
+        Version latest = versions.peekLast();
+        if (latest != null && latest.version() == graph.getSnapshotVersion()) {
+            return;
+        }
+        PersistentHashMap<Identifier, RecipeNode> nodes = latest != null ? latest.nodes() : PersistentHashMap.empty();
+        PersistentHashMap<RecipeEdge, RecipeEdge> edges = latest != null ? latest.edges() : PersistentHashMap.empty();
+
+        Map<Identifier, RecipeNode> currentNodes = graph.getNodes();
+        for (RecipeNode node : currentNodes.values()) {
+            RecipeNode old = nodes.get(node.getRecipeId());
+            if (old == null || !GraphDelta.sameContent(old, node)) {
+                nodes = nodes.plus(node.getRecipeId(), node);
+            }
+        }
+        if (latest != null && nodes.size() != currentNodes.size()) {
+            List<Identifier> removed = new ArrayList<>();
+            nodes.forEach((id, node) -> {
+                if (!currentNodes.containsKey(id)) removed.add(id);
+            });
+            for (Identifier id : removed) {
+                nodes = nodes.minus(id);
+            }
+        }
+
+        Set<RecipeEdge> currentEdges = new HashSet<>(graph.getEdges());
+        for (RecipeEdge edge : currentEdges) {
+            RecipeEdge old = edges.get(edge);
+            if (old == null || Double.compare(old.getWeight(), edge.getWeight()) != 0) {
+                edges = edges.plus(edge, edge);
+            }
+        }
+        if (latest != null && edges.size() != currentEdges.size()) {
+            List<RecipeEdge> removed = new ArrayList<>();
+            edges.forEach((key, edge) -> {
+                if (!currentEdges.contains(key)) removed.add(key);
+            });
+            for (RecipeEdge key : removed) {
+                edges = edges.minus(key);
+            }
+        }
+        append(new Version(graph.getSnapshotVersion(), graph.getBuildTimestamp(), nodes, edges));
+    }
+
+    /**
+     * 记录一个已知与上一版本差异的快照：增量的基线正好是最新版本（或是空图且历史为空）时只应用增量本身，
+     * 否则（例如中间有未记录的分片快照）退回完整比较
+     */
+    public synchronized void record(RecipeGraph graph, GraphDelta delta) {
+        Version latest = versions.peekLast();
+        boolean fromEmpty = latest == null && delta.getBaseVersion() == 0;
+        if (!fromEmpty && (latest == null || latest.version() != delta.getBaseVersion())) {
+            record(graph);
+            return;
+        }
+        if (latest != null && latest.version() == delta.getTargetVersion()) {
+            return;
+        }
+        PersistentHashMap<Identifier, RecipeNode> nodes = fromEmpty ? PersistentHashMap.empty() : latest.nodes();
+        for (Identifier id : delta.getRemovedNodes()) {
+            nodes = nodes.minus(id);
+        }
+        for (RecipeNode node : delta.getAddedNodes()) {
+            nodes = nodes.plus(node.getRecipeId(), node);
+        }
+        PersistentHashMap<RecipeEdge, RecipeEdge> edges = fromEmpty ? PersistentHashMap.empty() : latest.edges();
+        for (RecipeEdge edge : delta.getRemovedEdges()) {
+            edges = edges.minus(edge);
+        }
+        for (RecipeEdge edge : delta.getChangedWeights()) {
+            edges = edges.plus(edge, edge);
+        }
+        for (RecipeEdge edge : delta.getAddedEdges()) {
+            edges = edges.plus(edge, edge);
+        }
+        append(new Version(delta.getTargetVersion(), graph.getBuildTimestamp(), nodes, edges));
+    }
+
+    private void append(Version version) {
+        versions.addLast(version);
+        while (versions.size() > capacity) {
+            versions.removeFirst();
+        }
+    }
+
+    // 保留的版本号，从旧到新
+    public synchronized List<Long> getVersions() {
+        List<Long> result = new ArrayList<>(versions.size());
+        for (Version version : versions) {
+            result.add(version.version());
+        }
+        return result;
+    }
+
+    // 指定版本，已被淘汰或从未记录时返回null
+    public synchronized Version getVersion(long version) {
+        for (Version v : versions) {
+            if (v.version() == version) return v;
+        }
+        return null;
+    }
+
+    public synchronized Version getLatest() {
+        return versions.peekLast();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 从版本 from 到版本 to 的差异（格式与网络增量相同：内容变化的节点记为删除 + 新增），
+     * 任一版本不在历史中时返回null
+     */
+    public GraphDelta diff(long from, long to) {
+        Version base = getVersion(from);
+        Version target = getVersion(to);
+        if (base == null || target == null) {
+            return null;
+        }
+
+        List<RecipeNode> addedNodes = new ArrayList<>();
+        List<Identifier> removedNodes = new ArrayList<>();
+        base.nodes().diff(target.nodes(), new PersistentHashMap.DiffVisitor<>() {
+            @Override
+            public void added(Identifier key, RecipeNode value) {
+                addedNodes.add(value);
+            }
+
+            @Override
+            public void removed(Identifier key, RecipeNode value) {
+                removedNodes.add(key);
+            }
+
+            @Override
+            public void changed(Identifier key, RecipeNode oldValue, RecipeNode newValue) {
+                removedNodes.add(key);
+                addedNodes.add(newValue);
+            }
+        });
+
+        List<RecipeEdge> addedEdges = new ArrayList<>();
+        List<RecipeEdge> removedEdges = new ArrayList<>();
+        List<RecipeEdge> changedWeights = new ArrayList<>();
+        base.edges().diff(target.edges(), new PersistentHashMap.DiffVisitor<>() {
+            @Override
+            public void added(RecipeEdge key, RecipeEdge value) {
+                addedEdges.add(value);
+            }
+
+            @Override
+            public void removed(RecipeEdge key, RecipeEdge value) {
+                removedEdges.add(value);
+            }
+
+            @Override
+            public void changed(RecipeEdge key, RecipeEdge oldValue, RecipeEdge newValue) {
+                changedWeights.add(newValue);
+            }
+        });
+        return new GraphDelta(from, to, addedNodes, removedNodes, addedEdges, removedEdges, changedWeights);
+    }
+
+    /**
+     * 从 from 到 to 断掉的直接合成链：被删除的 DIRECT_CONSUMPTION 边，
+     * 任一版本不在历史中时返回null
+     */
+    public List<RecipeEdge> getBrokenChains(long from, long to) {
+        GraphDelta delta = diff(from, to);
+        if (delta == null) {
+            return null;
+        }
+        List<RecipeEdge> broken = new ArrayList<>();
+        for (RecipeEdge edge : delta.getRemovedEdges()) {
+            if (CHAIN_TYPE.equals(edge.getRelationshipType())) {
+                broken.add(edge);
+            }
+        }
+        return broken;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "GraphHistory{" +
+                "versions=" + getVersions() +
+                ", capacity=" + capacity +
+                '}';
+    }
+}
@@ -0,0 +1,288 @@
+package com.cp.data;
+
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+/**
+ * 配方图的整数索引（CSR 压缩邻接表）
+ * 每个快照只构建一次，供统计、搜索等算法在原始数组上遍历，避免反复扫描边列表
+ *
+ * 节点按配方ID排序编号，边沿用 RecipeGraph.getEdges() 的顺序，
+ * 物品使用物品注册表的原始ID（Registries.ITEM.getRawId）
+ */
+public class GraphIndex {
+    private final RecipeNode[] nodes;
+    private final Map<Identifier, Integer> nodeIndex;
+    private final RecipeEdge[] edges;
+
+    // 边的端点、类型序号和权重
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final int[] edgeType;
+    private final double[] edgeWeight;
+    private final List<String> edgeTypeNames = new ArrayList<>();
+
+    // 出边/入边邻接表，存放边的下标
+    private final int[] outOffsets;
+    private final int[] outEdges;
+    private final int[] inOffsets;
+    private final int[] inEdges;
+
+    // 物品相关：每个节点的输出物品，以及物品到生产/消费配方的邻接表
+    private final int itemCount;
+    private final int[] outputItem;
+    private final int[] inputOffsets;
+    private final int[] inputItems;
+    private final int[] inputQuantities;
+    private final int[] producerOffsets;
+    private final int[] producers;
+    private final int[] consumerOffsets;
+    private final int[] consumers;
+
+    GraphIndex(RecipeGraph graph) {
+        // 1. 节点编号
+        nodes = graph.getNodes().values().toArray(new RecipeNode[0]);
+        Arrays.sort(nodes, Comparator.comparing(RecipeNode::getRecipeId));
+        nodeIndex = new HashMap<>(nodes.length * 2);
+        for (int i = 0; i < nodes.length; i++) {
+            nodeIndex.put(nodes[i].getRecipeId(), i);
+        }
+
+        // 2. 边数组（丢弃引用了不存在节点的边）
+        List<RecipeEdge> validEdges = new ArrayList<>(graph.getEdgeCount());
+        for (RecipeEdge edge : graph.getEdges()) {
+            if (nodeIndex.containsKey(edge.getFromRecipeId()) && nodeIndex.containsKey(edge.getToRecipeId())) {
+                validEdges.add(edge);
+            }
+        }
+        edges = validEdges.toArray(new RecipeEdge[0]);
+        edgeFrom = new int[edges.length];
+        edgeTo = new int[edges.length];
+        edgeType = new int[edges.length];
+        edgeWeight = new double[edges.length];
+
+        int n = nodes.length;
+        outOffsets = new int[n + 1];
+        inOffsets = new int[n + 1];
+        for (int e = 0; e < edges.length; e++) {
+            RecipeEdge edge = edges[e];
+            edgeFrom[e] = nodeIndex.get(edge.getFromRecipeId());
+            edgeTo[e] = nodeIndex.get(edge.getToRecipeId());
+            edgeType[e] = typeOrdinal(edge.getRelationshipType());
+            edgeWeight[e] = edge.getWeight();
+            outOffsets[edgeFrom[e] + 1]++;
+            inOffsets[edgeTo[e] + 1]++;
+        }
+        prefixSum(outOffsets);
+        prefixSum(inOffsets);
+        outEdges = new int[edges.length];
+        inEdges = new int[edges.length];
+        int[] outCursor = Arrays.copyOf(outOffsets, n);
+        int[] inCursor = Arrays.copyOf(inOffsets, n);
+        for (int e = 0; e < edges.length; e++) {
+            outEdges[outCursor[edgeFrom[e]]++] = e;
+            inEdges[inCursor[edgeTo[e]]++] = e;
+        }
+
+        // 3. 物品邻接表
+        itemCount = Registries.ITEM.size();
+        outputItem = new int[n];
+        inputOffsets = new int[n + 1];
+        producerOffsets = new int[itemCount + 1];
+        consumerOffsets = new int[itemCount + 1];
+        for (int i = 0; i < n; i++) {
+            outputItem[i] = Registries.ITEM.getRawId(nodes[i].getOutputItem());
+            producerOffsets[outputItem[i] + 1]++;
+            inputOffsets[i + 1] = nodes[i].getInputItemIds().length;
+        }
+        prefixSum(inputOffsets);
+        inputItems = new int[inputOffsets[n]];
+        inputQuantities = new int[inputOffsets[n]];
+        for (int i = 0; i < n; i++) {
+            int[] ids = nodes[i].getInputItemIds();
+            System.arraycopy(ids, 0, inputItems, inputOffsets[i], ids.length);
+            System.arraycopy(nodes[i].getInputCounts(), 0, inputQuantities, inputOffsets[i], ids.length);
+            for (int rawId : ids) {
+                consumerOffsets[rawId + 1]++;
+            }
+        }
+        prefixSum(producerOffsets);
+        prefixSum(consumerOffsets);
+        producers = new int[n];
+        consumers = new int[inputItems.length];
+        int[] producerCursor = Arrays.copyOf(producerOffsets, itemCount);
+        int[] consumerCursor = Arrays.copyOf(consumerOffsets, itemCount);
+        for (int i = 0; i < n; i++) {
+            producers[producerCursor[outputItem[i]]++] = i;
+            for (int k = inputOffsets[i]; k < inputOffsets[i + 1]; k++) {
+                consumers[consumerCursor[inputItems[k]]++] = i;
+            }
+        }
+    }
+
+    private int typeOrdinal(String type) {
+        int ordinal = edgeTypeNames.indexOf(type);
+        if (ordinal < 0) {
+            edgeTypeNames.add(type);
+            ordinal = edgeTypeNames.size() - 1;
+        }
+        return ordinal;
+    }
+
+    private static void prefixSum(int[] offsets) {
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+    }
+
+    // ---------- 节点 ----------
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    public RecipeNode getNode(int index) {
+        return nodes[index];
+    }
+
+    // 配方ID对应的节点下标，不存在时返回 -1
+    public int indexOf(Identifier recipeId) {
+        Integer index = nodeIndex.get(recipeId);
+        return index == null ? -1 : index;
+    }
+
+    public int getOutputItem(int node) {
+        return outputItem[node];
+    }
+
+    public int getInputStart(int node) {
+        return inputOffsets[node];
+    }
+
+    public int getInputEnd(int node) {
+        return inputOffsets[node + 1];
+    }
+
+    // 输入物品的原始ID，下标范围为 [getInputStart, getInputEnd)，区间内已排序
+    public int getInputItem(int slot) {
+        return inputItems[slot];
+    }
+
+    // 每次合成消耗该输入的数量，下标与 getInputItem 相同
+    public int getInputQuantity(int slot) {
+        return inputQuantities[slot];
+    }
+
+    // ---------- 边 ----------
+
+    public int getEdgeCount() {
+        return edges.length;
+    }
+
+    public RecipeEdge getEdge(int edge) {
+        return edges[edge];
+    }
+
+    public int getEdgeFrom(int edge) {
+        return edgeFrom[edge];
+    }
+
+    public int getEdgeTo(int edge) {
+        return edgeTo[edge];
+    }
+
+    public int getEdgeType(int edge) {
+        return edgeType[edge];
+    }
+
+    public double getEdgeWeight(int edge) {
+        return edgeWeight[edge];
+    }
+
+    // 本快照中出现过的关系类型，下标即类型序号
+    public List<String> getEdgeTypeNames() {
+        return Collections.unmodifiableList(edgeTypeNames);
+    }
+
+    // 关系类型的序号，本快照中不存在时返回 -1
+    public int getEdgeTypeOrdinal(String type) {
+        return edgeTypeNames.indexOf(type);
+    }
+
+    public int getOutStart(int node) {
+        return outOffsets[node];
+    }
+
+    public int getOutEnd(int node) {
+        return outOffsets[node + 1];
+    }
+
+    // 出边下标，范围为 [getOutStart, getOutEnd)
+    public int getOutEdge(int slot) {
+        return outEdges[slot];
+    }
+
+    public int getOutDegree(int node) {
+        return outOffsets[node + 1] - outOffsets[node];
+    }
+
+    public int getInStart(int node) {
+        return inOffsets[node];
+    }
+
+    public int getInEnd(int node) {
+        return inOffsets[node + 1];
+    }
+
+    // 入边下标，范围为 [getInStart, getInEnd)
+    public int getInEdge(int slot) {
+        return inEdges[slot];
+    }
+
+    public int getInDegree(int node) {
+        return inOffsets[node + 1] - inOffsets[node];
+    }
+
+    // ---------- 物品 ----------
+
+    // 物品原始ID的上界（物品注册表大小）
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public int getProducerStart(int item) {
+        return producerOffsets[item];
+    }
+
+    public int getProducerEnd(int item) {
+        return producerOffsets[item + 1];
+    }
+
+    // 生产某物品的节点下标，范围为 [getProducerStart, getProducerEnd)
+    public int getProducer(int slot) {
+        return producers[slot];
+    }
+
+    public int getProducerCount(int item) {
+        return producerOffsets[item + 1] - producerOffsets[item];
+    }
+
+    public int getConsumerStart(int item) {
+        return consumerOffsets[item];
+    }
+
+    public int getConsumerEnd(int item) {
+        return consumerOffsets[item + 1];
+    }
+
+    // 消费某物品的节点下标，范围为 [getConsumerStart, getConsumerEnd)
+    public int getConsumer(int slot) {
+        return consumers[slot];
+    }
+
+    public int getConsumerCount(int item) {
+        return consumerOffsets[item + 1] - consumerOffsets[item];
+    }
+}
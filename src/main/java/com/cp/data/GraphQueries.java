@@ -0,0 +1,140 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+/**
+ * 带缓存的常用查询入口
+ * 悬停提示、命令等反复发起相同查询的地方都通过这里访问，结果缓存在被查询的图对象自己的 QueryCache 里
+ *
+ * 每个查询先用 loadUpstream/loadAround 取得覆盖查询范围的 RecipeGraph 再计算：
+ * 内存快照上就是整图本身，分片快照上是只含相关命名空间的局部子图
+ */
+public class GraphQueries {
+    public static final String ITEM_DETAIL = "item";
+    public static final String PATH = "path";
+    public static final String ROUTES = "routes";
+    public static final String BREAKDOWN = "breakdown";
+    public static final String NEIGHBORHOOD = "neighborhood";
+    public static final String EGO_GRAPH = "ego";
+
+    /**
+     * 物品详情：生产和消费它的配方，以及它是否被视为原材料
+     */
+    public static ItemDetail itemDetail(GraphSnapshot snapshot, Item item) {
+        return snapshot.getQueryCache().get(ITEM_DETAIL, List.of(item), () -> {
+            GraphIndex index = snapshot.loadAround(item, 0).getIndex();
+            int rawId = Registries.ITEM.getRawId(item);
+            List<RecipeNode> producers = new ArrayList<>();
+            List<RecipeNode> consumers = new ArrayList<>();
+            if (rawId >= 0 && rawId < index.getItemCount()) {
+                for (int slot = index.getProducerStart(rawId); slot < index.getProducerEnd(rawId); slot++) {
+                    producers.add(index.getNode(index.getProducer(slot)));
+                }
+                for (int slot = index.getConsumerStart(rawId); slot < index.getConsumerEnd(rawId); slot++) {
+                    consumers.add(index.getNode(index.getConsumer(slot)));
+                }
+            }
+            boolean raw = producers.isEmpty() || snapshot.loadUpstream(item).getMaterialResolver().isRawMaterial(item);
+            return new ItemDetail(item, List.copyOf(producers), List.copyOf(consumers), raw);
+        }, detail -> detail.producers().size() + detail.consumers().size());
+    }
+
+    // 代价最低的配方链（默认代价），不可达时返回null
+    public static PathFinder.CraftingPath cheapestPath(GraphSnapshot snapshot, Item from, Item to) {
+        return snapshot.getQueryCache().get(PATH, List.of(from, to),
+                () -> snapshot.loadUpstream(to).findCheapestPath(from, to),
+                path -> path.recipes().size());
+    }
+
+    // 备选路线，只缓存在时间预算内完整算出的结果
+    public static PathFinder.RouteList alternativeRoutes(GraphSnapshot snapshot, Item from, Item to, int k) {
+        return snapshot.getQueryCache().get(ROUTES, List.of(from, to, k),
+                () -> snapshot.loadUpstream(to).findAlternativeRoutes(from, to, k),
+                GraphQueries::routeWeight);
+    }
+
+    // 制作指定数量的物品所需的原材料
+    public static Map<Item, Double> breakdown(GraphSnapshot snapshot, Item item, double amount) {
+        return snapshot.getQueryCache().get(BREAKDOWN, List.of(item, amount),
+                () -> Collections.unmodifiableMap(snapshot.loadUpstream(item).getMaterialResolver().getRawMaterials(item, amount)),
+                Map::size);
+    }
+
+    /**
+     * 配方在 hops 步以内（忽略边方向）能到达的所有配方，按距离从近到远排列，包含自身
+     */
+    public static List<RecipeNode> neighborhood(GraphSnapshot snapshot, Identifier recipeId, int hops) {
+        // 被合并的重复配方ID按代表它的节点查询
+        Identifier canonical = snapshot.resolveAlias(recipeId);
+        return snapshot.getQueryCache().get(NEIGHBORHOOD, List.of(canonical, hops),
+                () -> computeNeighborhood(snapshot.loadAround(canonical, hops).getIndex(), canonical, hops),
+                List::size);
+    }
+
+    // 以物品为中心的邻域子图
+    public static RecipeGraph egoGraph(GraphSnapshot snapshot, Item item, EgoGraph.Filter filter) {
+        return snapshot.getQueryCache().get(EGO_GRAPH, List.of(item, filter),
+                () -> EgoGraph.ofItem(snapshot.loadAround(item, filter.hops()), item, filter),
+                subgraph -> subgraph.getNodeCount() + subgraph.getEdgeCount());
+    }
+
+    private static List<RecipeNode> computeNeighborhood(GraphIndex index, Identifier recipeId, int hops) {
+        int start = index.indexOf(recipeId);
+        if (start < 0) {
+            return Collections.emptyList();
+        }
+        boolean[] visited = new boolean[index.getNodeCount()];
+        int[] queue = new int[index.getNodeCount()];
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        visited[start] = true;
+        for (int depth = 0; depth < hops && head < tail; depth++) {
+            int levelEnd = tail;
+            while (head < levelEnd) {
+                int node = queue[head++];
+                for (int slot = index.getOutStart(node); slot < index.getOutEnd(node); slot++) {
+                    int next = index.getEdgeTo(index.getOutEdge(slot));
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        queue[tail++] = next;
+                    }
+                }
+                for (int slot = index.getInStart(node); slot < index.getInEnd(node); slot++) {
+                    int next = index.getEdgeFrom(index.getInEdge(slot));
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        RecipeNode[] result = new RecipeNode[tail];
+        for (int i = 0; i < tail; i++) {
+            result[i] = index.getNode(queue[i]);
+        }
+        return List.of(result);
+    }
+
+    private static int routeWeight(PathFinder.RouteList routes) {
+        if (!routes.complete()) {
+            return -1;
+        }
+        int weight = 0;
+        for (PathFinder.CraftingPath path : routes.routes()) {
+            weight += path.recipes().size();
+        }
+        return weight;
+    }
+
+    /**
+     * 物品详情
+     * @param rawMaterial 原材料分解时是否把它当作原材料
+     */
+    public record ItemDetail(Item item, List<RecipeNode> producers, List<RecipeNode> consumers,
+                             boolean rawMaterial) {
+    }
+}
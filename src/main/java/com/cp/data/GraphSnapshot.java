@@ -0,0 +1,72 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.util.Identifier;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个已发布的配方图快照，内存中的 RecipeGraph 和按命名空间分片的 ShardedRecipeGraph 都实现它
+ *
+ * 这里只有两种存储都能直接回答的查询：按ID、物品和边查找，以及写入时就算好的统计信息。
+ * 约简、中心性、路径、原材料分解等分析需要带 GraphIndex 的 RecipeGraph：
+ * 用 loadUpstream / loadAround 取得覆盖查询范围的 RecipeGraph（内存快照直接返回自身，
+ * 分片快照组装只含相关命名空间的局部子图），再在上面计算
+ */
+public interface GraphSnapshot {
+    // 快照版本号，每次重新收集配方后递增（0 表示尚未发布的临时图）
+    long getSnapshotVersion();
+
+    long getBuildTimestamp();
+
+    int getNodeCount();
+
+    int getEdgeCount();
+
+    // 分片快照上是逐个分片遍历的视图，按ID查找只加载键所在的分片
+    Map<Identifier, RecipeNode> getNodes();
+
+    // 只保证顺序遍历；分片快照上没有按位置访问
+    Collection<RecipeEdge> getEdges();
+
+    // 被合并的重复配方ID（见 RecipeNode.getAliasIds）也能找到代表它的节点
+    RecipeNode getNodeById(Identifier recipeId);
+
+    // 被合并的重复配方ID换成代表它的节点ID，其他ID原样返回
+    Identifier resolveAlias(Identifier recipeId);
+
+    List<RecipeEdge> getEdgesFromNode(Identifier recipeId);
+
+    List<RecipeEdge> getEdgesToNode(Identifier recipeId);
+
+    List<RecipeNode> getNodesByInputItem(Item item);
+
+    List<RecipeNode> getNodesByOutputItem(Item item);
+
+    GraphStatistics getStatistics();
+
+    StringTable getStringTable();
+
+    boolean hasCycles();
+
+    // 本快照专用的查询结果缓存（GraphQueries 使用）
+    QueryCache getQueryCache();
+
+    /**
+     * 包含能生产该物品的所有配方（沿输入物品递归向上）的图，
+     * 到该物品的路径、该物品的原材料分解只涉及这些配方，在它上面计算的结果与整图相同
+     */
+    RecipeGraph loadUpstream(Item item);
+
+    /**
+     * 包含生产或消费该物品的配方、以及从它们出发 hops 步以内（忽略边方向）能到达的配方的图
+     */
+    RecipeGraph loadAround(Item item, int hops);
+
+    /**
+     * 包含该配方以及 hops 步以内（忽略边方向）能到达的配方的图
+     */
+    RecipeGraph loadAround(Identifier recipeId, int hops);
+}
@@ -0,0 +1,217 @@
+package com.cp.data;
+
+import java.util.*;
+
+/**
+ * 配方图统计信息
+ * 在 GraphIndex 上用原始计数器一次遍历算出全部统计，每个快照缓存一份，
+ * 控制台摘要、测试模块和导出工具都复用这份结果
+ */
+public class GraphStatistics {
+    // 预先计算的排行榜长度
+    public static final int TOP_K = 20;
+
+    private final int nodeCount;
+    private final int edgeCount;
+
+    // 关系类型分布，下标为 GraphIndex 中的类型序号
+    private final List<String> edgeTypeNames;
+    private final int[] edgeTypeCounts;
+
+    // 每个物品（原始ID）被多少个配方产出
+    private final int[] outputItemCounts;
+    private final int distinctOutputItems;
+
+    // 度分布：histogram[d] 表示度为 d 的节点数
+    private final int[] outDegreeHistogram;
+    private final int[] inDegreeHistogram;
+
+    // 每个命名空间的配方数量
+    private final Map<String, Integer> namespaceCounts;
+
+    // 排行榜：产出配方最多的物品、总度数最高的节点
+    private final int[] topOutputItems;
+    private final int[] topDegreeNodes;
+    private final int[] totalDegrees;
+
+    GraphStatistics(GraphIndex index) {
+        nodeCount = index.getNodeCount();
+        edgeCount = index.getEdgeCount();
+        edgeTypeNames = index.getEdgeTypeNames();
+        edgeTypeCounts = new int[edgeTypeNames.size()];
+        outputItemCounts = new int[index.getItemCount()];
+        totalDegrees = new int[nodeCount];
+
+        int maxOut = 0;
+        int maxIn = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            maxOut = Math.max(maxOut, index.getOutDegree(i));
+            maxIn = Math.max(maxIn, index.getInDegree(i));
+        }
+        outDegreeHistogram = new int[maxOut + 1];
+        inDegreeHistogram = new int[maxIn + 1];
+
+        // 节点遍历：输出物品频次、度分布、命名空间
+        Map<String, int[]> namespaceCounters = new TreeMap<>();
+        int distinct = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            if (outputItemCounts[index.getOutputItem(i)]++ == 0) {
+                distinct++;
+            }
+            int out = index.getOutDegree(i);
+            int in = index.getInDegree(i);
+            outDegreeHistogram[out]++;
+            inDegreeHistogram[in]++;
+            totalDegrees[i] = out + in;
+
+            String namespace = index.getNode(i).getRecipeId().getNamespace();
+            namespaceCounters.computeIfAbsent(namespace, k -> new int[1])[0]++;
+        }
+        distinctOutputItems = distinct;
+
+        // 边遍历：关系类型分布
+        for (int e = 0; e < edgeCount; e++) {
+            edgeTypeCounts[index.getEdgeType(e)]++;
+        }
+
+        Map<String, Integer> namespaces = new LinkedHashMap<>();
+        for (Map.Entry<String, int[]> entry : namespaceCounters.entrySet()) {
+            namespaces.put(entry.getKey(), entry.getValue()[0]);
+        }
+        namespaceCounts = Collections.unmodifiableMap(namespaces);
+
+        topOutputItems = topK(outputItemCounts, TOP_K);
+        topDegreeNodes = topK(totalDegrees, TOP_K);
+    }
+
+    /**
+     * 用容量为 k 的小顶堆选出分数最高的 k 个下标（分数为0的跳过）
+     * 结果按分数降序排列，分数相同时下标小的在前
+     */
+    static int[] topK(int[] scores, int k) {
+        int[] heap = new int[Math.max(k, 1)];
+        int size = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] <= 0) continue;
+            if (size < k) {
+                heap[size] = i;
+                siftUp(heap, size++, scores);
+            } else if (size > 0 && ranksAbove(i, heap[0], scores)) {
+                heap[0] = i;
+                siftDown(heap, size, scores);
+            }
+        }
+
+        // 依次弹出堆顶得到升序，倒序填充
+        int[] result = new int[size];
+        for (int n = size; n > 0; n--) {
+            result[n - 1] = heap[0];
+            heap[0] = heap[n - 1];
+            siftDown(heap, n - 1, scores);
+        }
+        return result;
+    }
+
+    // a 的排名是否高于 b
+    private static boolean ranksAbove(int a, int b, int[] scores) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && a < b);
+    }
+
+    private static void siftUp(int[] heap, int pos, int[] scores) {
+        int value = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!ranksAbove(heap[parent], value, scores)) break;
+            heap[pos] = heap[parent];
+            pos = parent;
+        }
+        heap[pos] = value;
+    }
+
+    private static void siftDown(int[] heap, int size, int[] scores) {
+        if (size == 0) return;
+        int pos = 0;
+        int value = heap[0];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) break;
+            if (child + 1 < size && ranksAbove(heap[child], heap[child + 1], scores)) {
+                child++;
+            }
+            if (!ranksAbove(value, heap[child], scores)) break;
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = value;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    // 关系类型 -> 边数，按类型首次出现的顺序
+    public Map<String, Integer> getEdgeTypeCounts() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int t = 0; t < edgeTypeCounts.length; t++) {
+            result.put(edgeTypeNames.get(t), edgeTypeCounts[t]);
+        }
+        return result;
+    }
+
+    public int getEdgeTypeCount(String type) {
+        int ordinal = edgeTypeNames.indexOf(type);
+        return ordinal < 0 ? 0 : edgeTypeCounts[ordinal];
+    }
+
+    // 某关系类型占本统计边总数的百分比（分母与各类型计数来自同一个索引）
+    public double getEdgeTypePercent(String type) {
+        return edgeCount == 0 ? 0.0 : getEdgeTypeCount(type) * 100.0 / edgeCount;
+    }
+
+    // 产出某物品（原始ID）的配方数量
+    public int getOutputItemCount(int rawItemId) {
+        return rawItemId >= 0 && rawItemId < outputItemCounts.length ? outputItemCounts[rawItemId] : 0;
+    }
+
+    public int getDistinctOutputItems() {
+        return distinctOutputItems;
+    }
+
+    public int[] getOutDegreeHistogram() {
+        return outDegreeHistogram.clone();
+    }
+
+    public int[] getInDegreeHistogram() {
+        return inDegreeHistogram.clone();
+    }
+
+    public int getMaxOutDegree() {
+        return outDegreeHistogram.length - 1;
+    }
+
+    public int getMaxInDegree() {
+        return inDegreeHistogram.length - 1;
+    }
+
+    public Map<String, Integer> getNamespaceCounts() {
+        return namespaceCounts;
+    }
+
+    // 产出配方最多的物品原始ID，最多 TOP_K 个
+    public int[] getTopOutputItems() {
+        return topOutputItems.clone();
+    }
+
+    // 总度数最高的节点下标（GraphIndex 编号），最多 TOP_K 个
+    public int[] getTopDegreeNodes() {
+        return topDegreeNodes.clone();
+    }
+
+    public int getTotalDegree(int node) {
+        return totalDegrees[node];
+    }
+}
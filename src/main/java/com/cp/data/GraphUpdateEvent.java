@@ -0,0 +1,104 @@
+package com.cp.data;
+
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+/**
+ * 一次快照替换事件：旧快照、新快照以及两者之间的差异
+ * 收集器发布快照时差异已经算好（分片快照只对比变化的分片），历史和同步都直接复用；
+ * 客户端收到完整快照时没有现成的差异，第一次读取时才在两个内存快照上计算
+ */
+public class GraphUpdateEvent {
+    public enum Kind {
+        // 重新收集配方后的完整重建
+        REBUILD,
+        // 在上一快照上应用增量
+        INCREMENTAL
+    }
+
+    private final Kind kind;
+    private final GraphSnapshot previous;
+    private final GraphSnapshot current;
+    private GraphDelta delta;
+
+    /**
+     * @param previous 被替换的快照，第一次发布时为null（差异中所有节点和边都记为新增）
+     * @param delta 已知的差异，为null时按需计算（只用于两个快照都在内存中的情况）
+     */
+    public GraphUpdateEvent(Kind kind, GraphSnapshot previous, GraphSnapshot current, GraphDelta delta) {
+        this.kind = kind;
+        this.previous = previous;
+        this.current = current;
+        this.delta = delta;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public GraphSnapshot getPrevious() {
+        return previous;
+    }
+
+    public GraphSnapshot getCurrent() {
+        return current;
+    }
+
+    public long getPreviousVersion() {
+        return previous != null ? previous.getSnapshotVersion() : 0L;
+    }
+
+    public long getVersion() {
+        return current.getSnapshotVersion();
+    }
+
+    public synchronized GraphDelta getDelta() {
+        if (delta == null) {
+            delta = GraphDelta.between(previous, current);
+        }
+        return delta;
+    }
+
+    public List<RecipeNode> getAddedNodes() {
+        return getDelta().getAddedNodes();
+    }
+
+    public List<Identifier> getRemovedNodes() {
+        return getDelta().getRemovedNodes();
+    }
+
+    public List<RecipeEdge> getAddedEdges() {
+        return getDelta().getAddedEdges();
+    }
+
+    public List<RecipeEdge> getRemovedEdges() {
+        return getDelta().getRemovedEdges();
+    }
+
+    public List<RecipeEdge> getChangedWeights() {
+        return getDelta().getChangedWeights();
+    }
+
+    /**
+     * 依次通知监听器；单个监听器抛出的异常只记录，不影响其他监听器和快照发布
+     */
+    public static void dispatch(List<GraphUpdateListener> listeners, GraphUpdateEvent event) {
+        for (GraphUpdateListener listener : listeners) {
+            try {
+                listener.onGraphUpdated(event);
+            } catch (RuntimeException e) {
+                System.err.println("配方图更新监听器出错: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "GraphUpdateEvent{" +
+                "kind=" + kind +
+                ", version=" + getPreviousVersion() + " -> " + getVersion() +
+                '}';
+    }
+}
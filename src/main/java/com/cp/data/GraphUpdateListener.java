@@ -0,0 +1,10 @@
+package com.cp.data;
+
+/**
+ * 配方图更新监听器
+ * 每次发布新快照（完整重建或应用增量）后调用一次，调用线程为发布快照的线程
+ */
+@FunctionalInterface
+public interface GraphUpdateListener {
+    void onGraphUpdated(GraphUpdateEvent event);
+}
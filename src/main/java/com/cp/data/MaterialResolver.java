@@ -0,0 +1,257 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+
+import java.util.*;
+
+/**
+ * 原材料分解器
+ * 在“物品 -> 输入物品”图的强连通分量缩点 DAG 上做动态规划，
+ * 按依赖在前的顺序一次算出每个物品折算到原材料的数量（按配方产出数量缩放），每个快照缓存一份
+ *
+ * 环路处理：同一分量内（如钻石 ↔ 钻石块）优先选择输入已经解析的配方；
+ * 无法继续时，把分量内“产出数量最多”的物品（通常是拆解得到的那一侧）视为原材料
+ */
+public class MaterialResolver {
+    private static final int NO_RECIPE = -1;
+    private static final int MAX_TREE_DEPTH = 64;
+
+    private final GraphIndex index;
+
+    // 每个物品选定的生产配方（节点下标），原材料为 NO_RECIPE
+    private final int[] chosenRecipe;
+
+    // 每个物品折算成 1 个单位所需的原材料（稀疏向量，按物品ID排序）
+    private final int[][] rawItems;
+    private final double[][] rawAmounts;
+
+    // 合并稀疏向量时复用的稠密缓冲区
+    private final double[] scratch;
+    private final boolean[] touched;
+    private final int[] touchedList;
+
+    MaterialResolver(GraphIndex index) {
+        this.index = index;
+        int itemCount = index.getItemCount();
+        chosenRecipe = new int[itemCount];
+        Arrays.fill(chosenRecipe, NO_RECIPE);
+        rawItems = new int[itemCount][];
+        rawAmounts = new double[itemCount][];
+        scratch = new double[itemCount];
+        touched = new boolean[itemCount];
+        touchedList = new int[itemCount];
+
+        // 1. 物品依赖图：物品 -> 生产它的配方的输入物品
+        int[] offsets = new int[itemCount + 1];
+        for (int item = 0; item < itemCount; item++) {
+            int degree = 0;
+            for (int slot = index.getProducerStart(item); slot < index.getProducerEnd(item); slot++) {
+                int recipe = index.getProducer(slot);
+                degree += index.getInputEnd(recipe) - index.getInputStart(recipe);
+            }
+            offsets[item + 1] = offsets[item] + degree;
+        }
+        int[] targets = new int[offsets[itemCount]];
+        for (int item = 0; item < itemCount; item++) {
+            int cursor = offsets[item];
+            for (int slot = index.getProducerStart(item); slot < index.getProducerEnd(item); slot++) {
+                int recipe = index.getProducer(slot);
+                for (int k = index.getInputStart(recipe); k < index.getInputEnd(recipe); k++) {
+                    targets[cursor++] = index.getInputItem(k);
+                }
+            }
+        }
+
+        // 2. 缩点后按依赖在前的顺序逐个分量求解
+        StronglyConnectedComponents scc = new StronglyConnectedComponents(itemCount, offsets, targets);
+        int componentCount = scc.getComponentCount();
+        int[] componentStart = new int[componentCount + 1];
+        for (int item = 0; item < itemCount; item++) {
+            componentStart[scc.getComponent(item) + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            componentStart[c + 1] += componentStart[c];
+        }
+        int[] componentItems = new int[itemCount];
+        int[] cursor = Arrays.copyOf(componentStart, componentCount);
+        for (int item = 0; item < itemCount; item++) {
+            componentItems[cursor[scc.getComponent(item)]++] = item;
+        }
+
+        boolean[] resolved = new boolean[itemCount];
+        for (int c = 0; c < componentCount; c++) {
+            resolveComponent(componentItems, componentStart[c], componentStart[c + 1], resolved);
+        }
+    }
+
+    private void resolveComponent(int[] items, int start, int end, boolean[] resolved) {
+        int remaining = end - start;
+        while (remaining > 0) {
+            boolean progress = false;
+            for (int i = start; i < end; i++) {
+                int item = items[i];
+                if (resolved[item]) continue;
+
+                int recipe = findResolvableRecipe(item, resolved);
+                if (recipe != NO_RECIPE) {
+                    chosenRecipe[item] = recipe;
+                    computeVector(item, recipe);
+                    resolved[item] = true;
+                    remaining--;
+                    progress = true;
+                } else if (index.getProducerCount(item) == 0) {
+                    markRaw(item);
+                    resolved[item] = true;
+                    remaining--;
+                    progress = true;
+                }
+            }
+
+            if (!progress) {
+                // 环路无法展开：把产出数量最多的物品当作原材料，打破循环
+                int rawItem = -1;
+                int bestOutput = -1;
+                for (int i = start; i < end; i++) {
+                    int item = items[i];
+                    if (resolved[item]) continue;
+                    for (int slot = index.getProducerStart(item); slot < index.getProducerEnd(item); slot++) {
+                        int outputCount = index.getNode(index.getProducer(slot)).getOutputCount();
+                        if (outputCount > bestOutput) {
+                            bestOutput = outputCount;
+                            rawItem = item;
+                        }
+                    }
+                }
+                markRaw(rawItem);
+                resolved[rawItem] = true;
+                remaining--;
+            }
+        }
+    }
+
+    // 第一个所有输入都已解析的生产配方
+    private int findResolvableRecipe(int item, boolean[] resolved) {
+        for (int slot = index.getProducerStart(item); slot < index.getProducerEnd(item); slot++) {
+            int recipe = index.getProducer(slot);
+            boolean ready = index.getInputEnd(recipe) > index.getInputStart(recipe);
+            for (int k = index.getInputStart(recipe); k < index.getInputEnd(recipe) && ready; k++) {
+                ready = resolved[index.getInputItem(k)];
+            }
+            if (ready) {
+                return recipe;
+            }
+        }
+        return NO_RECIPE;
+    }
+
+    private void markRaw(int item) {
+        chosenRecipe[item] = NO_RECIPE;
+        rawItems[item] = new int[]{item};
+        rawAmounts[item] = new double[]{1.0};
+    }
+
+    // 单位物品的原材料 = Σ 输入数量 × 输入物品的原材料 / 配方产出数量
+    private void computeVector(int item, int recipe) {
+        double scale = 1.0 / Math.max(1, index.getNode(recipe).getOutputCount());
+        int touchedCount = 0;
+        for (int k = index.getInputStart(recipe); k < index.getInputEnd(recipe); k++) {
+            int input = index.getInputItem(k);
+            double quantity = index.getInputQuantity(k) * scale;
+            int[] ids = rawItems[input];
+            double[] amounts = rawAmounts[input];
+            for (int j = 0; j < ids.length; j++) {
+                if (!touched[ids[j]]) {
+                    touched[ids[j]] = true;
+                    touchedList[touchedCount++] = ids[j];
+                }
+                scratch[ids[j]] += amounts[j] * quantity;
+            }
+        }
+
+        Arrays.sort(touchedList, 0, touchedCount);
+        int[] ids = Arrays.copyOf(touchedList, touchedCount);
+        double[] amounts = new double[touchedCount];
+        for (int j = 0; j < touchedCount; j++) {
+            amounts[j] = scratch[ids[j]];
+            scratch[ids[j]] = 0;
+            touched[ids[j]] = false;
+        }
+        rawItems[item] = ids;
+        rawAmounts[item] = amounts;
+    }
+
+    // ---------- 查询 ----------
+
+    /**
+     * 制作指定数量的物品所需的全部原材料
+     * @return 原材料 -> 数量（可能为小数，表示按比例分摊的合成次数）
+     */
+    public Map<Item, Double> getRawMaterials(Item item, double amount) {
+        int rawId = Registries.ITEM.getRawId(item);
+        Map<Item, Double> result = new LinkedHashMap<>();
+        if (rawId < 0 || rawId >= rawItems.length || rawItems[rawId] == null) {
+            result.put(item, amount);
+            return result;
+        }
+        int[] ids = rawItems[rawId];
+        double[] amounts = rawAmounts[rawId];
+        for (int j = 0; j < ids.length; j++) {
+            result.put(Registries.ITEM.get(ids[j]), amounts[j] * amount);
+        }
+        return result;
+    }
+
+    public boolean isRawMaterial(Item item) {
+        int rawId = Registries.ITEM.getRawId(item);
+        return rawId < 0 || rawId >= chosenRecipe.length || chosenRecipe[rawId] == NO_RECIPE;
+    }
+
+    // 按原始ID判断，包括为打破环路而视为原材料的物品
+    boolean isRawMaterial(int rawItemId) {
+        return chosenRecipe[rawItemId] == NO_RECIPE;
+    }
+
+    // 分解时为该物品选定的配方，原材料返回null
+    public RecipeNode getChosenRecipe(Item item) {
+        int rawId = Registries.ITEM.getRawId(item);
+        if (rawId < 0 || rawId >= chosenRecipe.length || chosenRecipe[rawId] == NO_RECIPE) {
+            return null;
+        }
+        return index.getNode(chosenRecipe[rawId]);
+    }
+
+    /**
+     * 展开完整的材料树（使用与原材料统计相同的配方选择）
+     */
+    public MaterialTree resolveTree(Item item, double amount) {
+        return buildTree(Registries.ITEM.getRawId(item), amount, 0);
+    }
+
+    private MaterialTree buildTree(int item, double amount, int depth) {
+        int recipe = item >= 0 && item < chosenRecipe.length ? chosenRecipe[item] : NO_RECIPE;
+        if (recipe == NO_RECIPE || depth >= MAX_TREE_DEPTH) {
+            return new MaterialTree(Registries.ITEM.get(item), amount, null, 0, Collections.emptyList());
+        }
+
+        RecipeNode node = index.getNode(recipe);
+        double crafts = amount / Math.max(1, node.getOutputCount());
+        List<MaterialTree> children = new ArrayList<>();
+        for (int k = index.getInputStart(recipe); k < index.getInputEnd(recipe); k++) {
+            children.add(buildTree(index.getInputItem(k), crafts * index.getInputQuantity(k), depth + 1));
+        }
+        return new MaterialTree(Registries.ITEM.get(item), amount, node, crafts, children);
+    }
+
+    /**
+     * 材料树节点
+     * @param recipe 使用的配方，原材料为null
+     * @param crafts 需要的合成次数（未取整）
+     */
+    public record MaterialTree(Item item, double amount, RecipeNode recipe, double crafts,
+                               List<MaterialTree> children) {
+        public boolean isRaw() {
+            return recipe == null;
+        }
+    }
+}
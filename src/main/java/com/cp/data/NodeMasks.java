@@ -0,0 +1,329 @@
+package com.cp.data;
+
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+/**
+ * 每个节点的配方类型位和命名空间位，每个快照构建一次
+ *
+ * 每个节点在两个 long 掩码中各占一位（第 k 个出现的类型/命名空间占第 k 位）。超过 64 个时，
+ * 从第 64 个起的都归入最高位这一组，这一组的名字是 OTHER_GROUP，筛选时作为整体选中，不冒充其中某一个名字。
+ * 筛选条件也是两个掩码，判断节点是否可见只需两次按位与。
+ * select 给出可见节点的位集、可见边在本图 GraphIndex 中的编号，以及不复制节点和边对象的 RecipeGraph 视图；
+ * 界面直接用本图的索引和位集绘制，视图本身不会再构建索引。最近用过的筛选按掩码缓存，
+ * 在几个筛选之间来回切换只是替换一个引用
+ *
+ * 目前只收集合成台配方（RecipeType.CRAFTING），所以类型位只区分合成配方和没有配方对象的节点（UNKNOWN_TYPE）
+ */
+public class NodeMasks {
+    public static final long ALL = -1L;
+    public static final String VANILLA_NAMESPACE = "minecraft";
+    // 没有配方对象（从分片或网络恢复）的节点归入的类型名
+    public static final String UNKNOWN_TYPE = "unknown";
+    // 超出位数的类型/命名空间共用的最后一组的名字（命名空间和类型ID不会包含中文，不会与真实名字冲突）
+    public static final String OTHER_GROUP = "其他";
+    private static final int MAX_GROUPS = 64;
+    private static final int MAX_CACHED_VIEWS = 16;
+
+    private final RecipeGraph graph;
+    private final GraphIndex index;
+
+    // 所有出现过的名字到位号的映射，归入最后一组的名字都映射到最高位
+    private final Map<String, Integer> typeOrdinals;
+    private final Map<String, Integer> namespaceOrdinals;
+    private final List<String> typeNames;
+    private final List<String> namespaces;
+    private final long[] typeBits;
+    private final long[] namespaceBits;
+
+    private record ViewKey(long typeMask, long namespaceMask) {
+    }
+
+    private final LinkedHashMap<ViewKey, Selection> views = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ViewKey, Selection> eldest) {
+            return size() > MAX_CACHED_VIEWS;
+        }
+    };
+
+    /**
+     * 一次筛选的结果
+     * @param visible 可见节点的位集（GraphIndex 编号）
+     * @param edges 两端都可见的边在 GraphIndex 中的编号
+     * @param view 只包含可见节点和这些边的视图，与原图共享节点和边对象
+     */
+    public record Selection(long[] visible, int[] edges, RecipeGraph view) {
+        public boolean isVisible(int node) {
+            return (visible[node >>> 6] & (1L << node)) != 0;
+        }
+    }
+
+    NodeMasks(RecipeGraph graph) {
+        this.graph = graph;
+        this.index = graph.getIndex();
+        int nodeCount = index.getNodeCount();
+        typeBits = new long[nodeCount];
+        namespaceBits = new long[nodeCount];
+
+        typeOrdinals = new LinkedHashMap<>();
+        namespaceOrdinals = new LinkedHashMap<>();
+        for (int node = 0; node < nodeCount; node++) {
+            RecipeNode recipe = index.getNode(node);
+            String type = recipe.getRecipe() != null ? recipe.getRecipe().getType().toString() : UNKNOWN_TYPE;
+            typeBits[node] = 1L << ordinal(typeOrdinals, type);
+            namespaceBits[node] = 1L << ordinal(namespaceOrdinals, recipe.getRecipeId().getNamespace());
+        }
+        typeNames = groups(typeOrdinals);
+        namespaces = groups(namespaceOrdinals);
+    }
+
+    // 每一位对应的组名；名字超过 64 个时最后一组叫 OTHER_GROUP
+    private static List<String> groups(Map<String, Integer> ordinals) {
+        List<String> groups = new ArrayList<>(Math.min(ordinals.size(), MAX_GROUPS));
+        for (String name : ordinals.keySet()) {
+            if (groups.size() == MAX_GROUPS) {
+                break;
+            }
+            groups.add(name);
+        }
+        if (ordinals.size() > MAX_GROUPS) {
+            groups.set(MAX_GROUPS - 1, OTHER_GROUP);
+        }
+        return List.copyOf(groups);
+    }
+
+    private static int ordinal(Map<String, Integer> ordinals, String name) {
+        Integer ordinal = ordinals.get(name);
+        if (ordinal == null) {
+            ordinal = Math.min(ordinals.size(), MAX_GROUPS - 1);
+            ordinals.put(name, ordinal);
+        }
+        return ordinal;
+    }
+
+    // 按首次出现顺序排列的配方类型组，第 k 个对应第 k 位（可能以 OTHER_GROUP 结尾）
+    public List<String> getTypeNames() {
+        return typeNames;
+    }
+
+    // 按首次出现顺序排列的命名空间组，第 k 个对应第 k 位（可能以 OTHER_GROUP 结尾）
+    public List<String> getNamespaces() {
+        return namespaces;
+    }
+
+    // 第 group 组包含的命名空间个数，只有 OTHER_GROUP 会大于 1
+    public int getNamespaceGroupSize(int group) {
+        return namespaces.get(group).equals(OTHER_GROUP) ? namespaceOrdinals.size() - (MAX_GROUPS - 1) : 1;
+    }
+
+    public long getTypeBits(int node) {
+        return typeBits[node];
+    }
+
+    public long getNamespaceBits(int node) {
+        return namespaceBits[node];
+    }
+
+    // 给定类型名或组名对应的掩码，不存在的名字被忽略；归入 OTHER_GROUP 的名字得到整组的位
+    public long typeMask(String... names) {
+        return mask(typeOrdinals, typeNames, names);
+    }
+
+    public long namespaceMask(String... names) {
+        return mask(namespaceOrdinals, namespaces, names);
+    }
+
+    private static long mask(Map<String, Integer> ordinals, List<String> groups, String... names) {
+        long mask = 0L;
+        for (String name : names) {
+            Integer ordinal = ordinals.get(name);
+            if (ordinal == null) {
+                int group = groups.indexOf(name);
+                ordinal = group >= 0 ? group : null;
+            }
+            if (ordinal != null) {
+                mask |= 1L << ordinal;
+            }
+        }
+        return mask;
+    }
+
+    public boolean isVisible(int node, long typeMask, long namespaceMask) {
+        return (typeBits[node] & typeMask) != 0 && (namespaceBits[node] & namespaceMask) != 0;
+    }
+
+    /**
+     * 只包含类型和命名空间都落在掩码内的节点、以及两端都可见的边的视图。
+     * 视图与本图共享节点和边对象，快照版本相同；两个掩码都是 ALL 时直接返回本图
+     */
+    public RecipeGraph filter(long typeMask, long namespaceMask) {
+        if (typeMask == ALL && namespaceMask == ALL) {
+            return graph;
+        }
+        return select(typeMask, namespaceMask).view();
+    }
+
+    // 按掩码筛选，结果按掩码缓存
+    public Selection select(long typeMask, long namespaceMask) {
+        ViewKey key = new ViewKey(typeMask, namespaceMask);
+        synchronized (this) {
+            Selection selection = views.get(key);
+            if (selection != null) {
+                return selection;
+            }
+        }
+        Selection selection = select(typeMask, namespaceMask, null);
+        synchronized (this) {
+            views.put(key, selection);
+        }
+        return selection;
+    }
+
+    /**
+     * 在给定节点集合内按掩码筛选（不缓存）
+     * @param within 候选节点的位集（GraphIndex 编号），null 表示全部节点
+     */
+    public Selection select(long typeMask, long namespaceMask, long[] within) {
+        int nodeCount = index.getNodeCount();
+        long[] visible = new long[(nodeCount + 63) >>> 6];
+        int visibleCount = 0;
+        for (int word = 0; word < visible.length; word++) {
+            long candidates = within != null ? within[word] : -1L;
+            while (candidates != 0) {
+                int node = (word << 6) + Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                if (node < nodeCount && isVisible(node, typeMask, namespaceMask)) {
+                    visible[word] |= 1L << node;
+                    visibleCount++;
+                }
+            }
+        }
+        int[] nodeSelection = new int[visibleCount];
+        int edgeCount = 0;
+        for (int word = 0, cursor = 0; word < visible.length; word++) {
+            for (long bits = visible[word]; bits != 0; bits &= bits - 1) {
+                int node = (word << 6) + Long.numberOfTrailingZeros(bits);
+                nodeSelection[cursor++] = node;
+                edgeCount += index.getOutEnd(node) - index.getOutStart(node);
+            }
+        }
+
+        // 只看可见节点的出边，开销与可见部分的大小成正比
+        int[] edgeSelection = new int[edgeCount];
+        edgeCount = 0;
+        for (int node : nodeSelection) {
+            for (int slot = index.getOutStart(node); slot < index.getOutEnd(node); slot++) {
+                int edge = index.getOutEdge(slot);
+                int to = index.getEdgeTo(edge);
+                if ((visible[to >>> 6] & (1L << to)) != 0) {
+                    edgeSelection[edgeCount++] = edge;
+                }
+            }
+        }
+        edgeSelection = Arrays.copyOf(edgeSelection, edgeCount);
+
+        RecipeGraph view = RecipeGraph.view(new NodeView(visible, nodeSelection), new EdgeView(edgeSelection),
+                graph.getSnapshotVersion());
+        return new Selection(visible, edgeSelection, view);
+    }
+
+    // 一组节点对应的位集（GraphIndex 编号），不在本图中的节点被忽略
+    public long[] bitsOf(Collection<RecipeNode> nodes) {
+        long[] bits = new long[(index.getNodeCount() + 63) >>> 6];
+        for (RecipeNode node : nodes) {
+            int i = index.indexOf(node.getRecipeId());
+            if (i >= 0) {
+                bits[i >>> 6] |= 1L << i;
+            }
+        }
+        return bits;
+    }
+
+    // 按节点下标顺序迭代的只读映射，查找时直接查原图再检查可见位
+    private final class NodeView extends AbstractMap<Identifier, RecipeNode> {
+        private final long[] visible;
+        private final int[] selection;
+
+        private NodeView(long[] visible, int[] selection) {
+            this.visible = visible;
+            this.selection = selection;
+        }
+
+        @Override
+        public RecipeNode get(Object key) {
+            if (!(key instanceof Identifier id)) {
+                return null;
+            }
+            int node = index.indexOf(id);
+            return node >= 0 && (visible[node >>> 6] & (1L << node)) != 0 ? index.getNode(node) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return selection.length;
+        }
+
+        @Override
+        public Set<Entry<Identifier, RecipeNode>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Identifier, RecipeNode>> iterator() {
+                    return new Iterator<>() {
+                        private int cursor;
+
+                        @Override
+                        public boolean hasNext() {
+                            return cursor < selection.length;
+                        }
+
+                        @Override
+                        public Entry<Identifier, RecipeNode> next() {
+                            if (cursor >= selection.length) {
+                                throw new NoSuchElementException();
+                            }
+                            RecipeNode node = index.getNode(selection[cursor++]);
+                            return Map.entry(node.getRecipeId(), node);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return selection.length;
+                }
+            };
+        }
+    }
+
+    private final class EdgeView extends AbstractList<RecipeEdge> implements RandomAccess {
+        private final int[] selection;
+
+        private EdgeView(int[] selection) {
+            this.selection = selection;
+        }
+
+        @Override
+        public RecipeEdge get(int i) {
+            return index.getEdge(selection[i]);
+        }
+
+        @Override
+        public int size() {
+            return selection.length;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NodeMasks{" +
+                "types=" + typeOrdinals.size() +
+                ", namespaces=" + namespaceOrdinals.size() +
+                '}';
+    }
+}
@@ -0,0 +1,537 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 最短合成路径查询
+ * 在 GraphIndex 的出边邻接表上运行 Dijkstra：起点是所有消耗源物品的配方，
+ * 终点是任意一个产出目标物品的配方，路径代价为沿途边代价之和
+ *
+ * 查询使用的距离数组和二叉堆都放在可复用的缓冲区里（按版本戳判断是否有效，无需清零），
+ * 除了返回结果外每次查询不分配内存；多个线程同时查询时各自从缓冲池借用一份
+ */
+public class PathFinder {
+    // 默认只沿合成链方向的关系类型行进
+    private static final Set<String> CHAIN_TYPES = Set.of("DIRECT_CONSUMPTION", "BIDIRECTIONAL");
+
+    // 备选路线查询的默认时间预算（约半帧）
+    public static final long DEFAULT_ROUTE_BUDGET_NANOS = 8_000_000L;
+
+    /**
+     * 边代价函数
+     * 返回值为无穷大、NaN 或负数时视为该边不可通行
+     */
+    @FunctionalInterface
+    public interface EdgeCost {
+        double cost(GraphIndex index, int edge);
+    }
+
+    private final GraphIndex index;
+
+    // 默认代价：链式关系使用边权重，其他关系不可通行
+    private final double[] defaultCosts;
+    private final EdgeCost defaultCost;
+
+    private final Queue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+
+    PathFinder(GraphIndex index) {
+        this.index = index;
+        boolean[] chainType = new boolean[index.getEdgeTypeNames().size()];
+        for (int t = 0; t < chainType.length; t++) {
+            chainType[t] = CHAIN_TYPES.contains(index.getEdgeTypeNames().get(t));
+        }
+        defaultCosts = new double[index.getEdgeCount()];
+        for (int e = 0; e < defaultCosts.length; e++) {
+            defaultCosts[e] = chainType[index.getEdgeType(e)] ? index.getEdgeWeight(e) : Double.POSITIVE_INFINITY;
+        }
+        defaultCost = (graphIndex, edge) -> defaultCosts[edge];
+    }
+
+    public EdgeCost getDefaultCost() {
+        return defaultCost;
+    }
+
+    /**
+     * 从源物品到目标物品代价最低的配方链（使用默认代价）
+     * @return 不可达时返回null
+     */
+    public CraftingPath findCheapestPath(Item from, Item to) {
+        return findCheapestPath(from, to, defaultCost);
+    }
+
+    public CraftingPath findCheapestPath(Item from, Item to, EdgeCost cost) {
+        int source = Registries.ITEM.getRawId(from);
+        int target = Registries.ITEM.getRawId(to);
+        if (!isIndexed(source) || !isIndexed(target)) {
+            return null;
+        }
+
+        Scratch scratch = acquire();
+        try {
+            scratch.begin();
+            seedSources(scratch, source, null);
+            int end = search(scratch, target, cost, null);
+            return end < 0 ? null : toPath(traceRoute(scratch, end, 0.0, null, -1));
+        } finally {
+            release(scratch);
+        }
+    }
+
+    /**
+     * 只计算最低代价，不构建路径对象
+     * @return 不可达时返回 Double.POSITIVE_INFINITY
+     */
+    public double findCheapestCost(Item from, Item to, EdgeCost cost) {
+        int source = Registries.ITEM.getRawId(from);
+        int target = Registries.ITEM.getRawId(to);
+        if (!isIndexed(source) || !isIndexed(target)) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        Scratch scratch = acquire();
+        try {
+            scratch.begin();
+            seedSources(scratch, source, null);
+            int end = search(scratch, target, cost, null);
+            return end < 0 ? Double.POSITIVE_INFINITY : scratch.dist[end];
+        } finally {
+            release(scratch);
+        }
+    }
+
+    /**
+     * 按代价从低到高列出最多 k 条互不相同的无环配方链（Yen 算法，使用默认代价和时间预算）
+     */
+    public RouteList findAlternativeRoutes(Item from, Item to, int k) {
+        return findAlternativeRoutes(from, to, k, defaultCost, DEFAULT_ROUTE_BUDGET_NANOS);
+    }
+
+    /**
+     * 按代价从低到高列出最多 k 条互不相同的无环配方链
+     *
+     * 先从目标一侧反向求一次最短路树，所有偏离搜索都用它作 A* 启发值
+     * （禁用边和节点只会让距离变大，启发值始终可采纳）；
+     * 每条路线只从它的偏离位置开始生成候选，并跳过下界已不可能进入前 k 名的偏离点
+     *
+     * @param budgetNanos 时间预算，超时后返回已经确定的路线，并把 complete 标记为 false
+     */
+    public RouteList findAlternativeRoutes(Item from, Item to, int k, EdgeCost cost, long budgetNanos) {
+        int source = Registries.ITEM.getRawId(from);
+        int target = Registries.ITEM.getRawId(to);
+        if (k <= 0 || !isIndexed(source) || !isIndexed(target)) {
+            return new RouteList(Collections.emptyList(), true);
+        }
+
+        long deadline = System.nanoTime() + budgetNanos;
+        Scratch potential = acquire();
+        Scratch scratch = acquire();
+        try {
+            computePotential(potential, target, cost);
+
+            scratch.begin();
+            seedSources(scratch, source, potential);
+            int end = search(scratch, target, cost, potential);
+            if (end < 0) {
+                return new RouteList(Collections.emptyList(), true);
+            }
+
+            List<Route> accepted = new ArrayList<>(k);
+            List<Route> candidates = new ArrayList<>();
+            accepted.add(traceRoute(scratch, end, 0.0, null, -1));
+
+            boolean complete = true;
+            outer:
+            while (accepted.size() < k) {
+                Route last = accepted.get(accepted.size() - 1);
+                // 偏离点 -1 表示替换起始配方本身
+                for (int spur = last.deviation(); spur < last.nodes().length - 1; spur++) {
+                    if (System.nanoTime() > deadline) {
+                        complete = false;
+                        break outer;
+                    }
+                    double rootCost = 0.0;
+                    if (spur >= 0) {
+                        rootCost = prefixCost(last, spur, cost);
+                        double bound = rootCost + potentialOf(potential, last.nodes()[spur]);
+                        if (bound == Double.POSITIVE_INFINITY || !mayEnterTopK(bound, candidates, k - accepted.size())) {
+                            continue;
+                        }
+                    }
+
+                    Route candidate = spurSearch(scratch, potential, source, target, cost, last, spur, rootCost, accepted);
+                    if (candidate != null && !containsRoute(candidates, candidate)) {
+                        insertSorted(candidates, candidate);
+                    }
+                }
+
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                accepted.add(candidates.remove(0));
+            }
+
+            List<CraftingPath> routes = new ArrayList<>(accepted.size());
+            for (Route route : accepted) {
+                routes.add(toPath(route));
+            }
+            return new RouteList(routes, complete);
+        } finally {
+            release(scratch);
+            release(potential);
+        }
+    }
+
+    private boolean isIndexed(int item) {
+        return item >= 0 && item < index.getItemCount();
+    }
+
+    // ---------- 搜索 ----------
+
+    private void seedSources(Scratch scratch, int sourceItem, Scratch potential) {
+        for (int slot = index.getConsumerStart(sourceItem); slot < index.getConsumerEnd(sourceItem); slot++) {
+            int node = index.getConsumer(slot);
+            if (!scratch.isNodeBanned(node)) {
+                scratch.offer(node, 0.0, potentialOf(potential, node), -1);
+            }
+        }
+    }
+
+    /**
+     * 运行 Dijkstra（提供 potential 时为 A*）直到弹出第一个产出目标物品的节点
+     * 调用前需要 begin() 并放入起点；跳过 scratch 中被禁用的节点和边
+     * @return 终点节点，不可达时返回 -1
+     */
+    private int search(Scratch scratch, int targetItem, EdgeCost cost, Scratch potential) {
+        while (scratch.heapSize > 0) {
+            int node = scratch.poll();
+            if (index.getOutputItem(node) == targetItem) {
+                return node;
+            }
+            double base = scratch.dist[node];
+            for (int slot = index.getOutStart(node); slot < index.getOutEnd(node); slot++) {
+                int edge = index.getOutEdge(slot);
+                int next = index.getEdgeTo(edge);
+                if (scratch.isEdgeBanned(edge) || scratch.isNodeBanned(next)) {
+                    continue;
+                }
+                double edgeCost = cost.cost(index, edge);
+                if (!isPassable(edgeCost)) {
+                    continue;
+                }
+                double estimate = potentialOf(potential, next);
+                if (estimate == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                double distance = base + edgeCost;
+                scratch.offer(next, distance, distance + estimate, edge);
+            }
+        }
+        return -1;
+    }
+
+    // 从所有产出目标物品的配方沿入边反向求最短路，结果留在 potential 中作为各节点到终点的精确距离
+    private void computePotential(Scratch potential, int targetItem, EdgeCost cost) {
+        potential.begin();
+        for (int slot = index.getProducerStart(targetItem); slot < index.getProducerEnd(targetItem); slot++) {
+            potential.offer(index.getProducer(slot), 0.0, 0.0, -1);
+        }
+        while (potential.heapSize > 0) {
+            int node = potential.poll();
+            double base = potential.dist[node];
+            for (int slot = index.getInStart(node); slot < index.getInEnd(node); slot++) {
+                int edge = index.getInEdge(slot);
+                double edgeCost = cost.cost(index, edge);
+                if (!isPassable(edgeCost)) {
+                    continue;
+                }
+                double distance = base + edgeCost;
+                potential.offer(index.getEdgeFrom(edge), distance, distance, edge);
+            }
+        }
+    }
+
+    private static double potentialOf(Scratch potential, int node) {
+        if (potential == null) {
+            return 0.0;
+        }
+        return potential.isReached(node) ? potential.dist[node] : Double.POSITIVE_INFINITY;
+    }
+
+    private static boolean isPassable(double edgeCost) {
+        return edgeCost >= 0 && edgeCost != Double.POSITIVE_INFINITY;
+    }
+
+    // ---------- Yen 算法 ----------
+
+    /**
+     * 保留 last 的前 spur 个节点作为根路径并禁用它们，同时禁用已确定路线在偏离点使用过的边，
+     * 然后从偏离点重新搜索到终点
+     */
+    private Route spurSearch(Scratch scratch, Scratch potential, int source, int target, EdgeCost cost,
+                             Route last, int spur, double rootCost, List<Route> accepted) {
+        scratch.begin();
+        for (int i = 0; i < spur; i++) {
+            scratch.banNode(last.nodes()[i]);
+        }
+        for (Route route : accepted) {
+            if (!sharesRoot(route, last, spur)) continue;
+            if (spur < 0) {
+                scratch.banNode(route.nodes()[0]);
+            } else if (spur < route.edges().length) {
+                scratch.banEdge(route.edges()[spur]);
+            }
+        }
+
+        if (spur < 0) {
+            seedSources(scratch, source, potential);
+        } else {
+            int spurNode = last.nodes()[spur];
+            scratch.offer(spurNode, 0.0, potentialOf(potential, spurNode), -1);
+        }
+        int end = search(scratch, target, cost, potential);
+        return end < 0 ? null : traceRoute(scratch, end, rootCost, last, spur);
+    }
+
+    // 两条路线在偏离点之前（含偏离点）是否完全相同
+    private static boolean sharesRoot(Route route, Route root, int spur) {
+        if (route.nodes().length <= spur) return false;
+        for (int i = 0; i <= spur; i++) {
+            if (route.nodes()[i] != root.nodes()[i]) return false;
+        }
+        return true;
+    }
+
+    private double prefixCost(Route route, int spur, EdgeCost cost) {
+        double total = 0.0;
+        for (int i = 0; i < spur; i++) {
+            total += cost.cost(index, route.edges()[i]);
+        }
+        return total;
+    }
+
+    // 候选已经足够多且下界不优于第 needed 名时，这个偏离点不可能产生入选路线
+    private static boolean mayEnterTopK(double bound, List<Route> candidates, int needed) {
+        return candidates.size() < needed || bound < candidates.get(needed - 1).cost();
+    }
+
+    private static boolean containsRoute(List<Route> routes, Route route) {
+        for (Route other : routes) {
+            if (Arrays.equals(other.nodes(), route.nodes()) && Arrays.equals(other.edges(), route.edges())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void insertSorted(List<Route> routes, Route route) {
+        int pos = routes.size();
+        while (pos > 0 && routes.get(pos - 1).cost() > route.cost()) {
+            pos--;
+        }
+        routes.add(pos, route);
+    }
+
+    /**
+     * 沿前驱边回溯得到路线；root 非空时在前面拼接 root 的前 spur 个节点和边
+     */
+    private Route traceRoute(Scratch scratch, int end, double rootCost, Route root, int spur) {
+        int spurLength = 1;
+        for (int node = end; scratch.prevEdge[node] >= 0; node = index.getEdgeFrom(scratch.prevEdge[node])) {
+            spurLength++;
+        }
+        int prefix = root == null ? 0 : Math.max(spur, 0);
+        int[] nodes = new int[prefix + spurLength];
+        int[] edges = new int[nodes.length - 1];
+        if (prefix > 0) {
+            System.arraycopy(root.nodes(), 0, nodes, 0, prefix);
+            System.arraycopy(root.edges(), 0, edges, 0, prefix);
+        }
+        int node = end;
+        for (int i = nodes.length - 1; i >= prefix; i--) {
+            nodes[i] = node;
+            int edge = scratch.prevEdge[node];
+            if (edge >= 0) {
+                edges[i - 1] = edge;
+                node = index.getEdgeFrom(edge);
+            }
+        }
+        return new Route(nodes, edges, rootCost + scratch.dist[end], spur);
+    }
+
+    private CraftingPath toPath(Route route) {
+        RecipeNode[] recipes = new RecipeNode[route.nodes().length];
+        for (int i = 0; i < recipes.length; i++) {
+            recipes[i] = index.getNode(route.nodes()[i]);
+        }
+        RecipeEdge[] edges = new RecipeEdge[route.edges().length];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = index.getEdge(route.edges()[i]);
+        }
+        return new CraftingPath(List.of(recipes), List.of(edges), route.cost());
+    }
+
+    private Scratch acquire() {
+        Scratch scratch = scratchPool.poll();
+        return scratch != null ? scratch : new Scratch(index.getNodeCount(), index.getEdgeCount());
+    }
+
+    private void release(Scratch scratch) {
+        scratchPool.offer(scratch);
+    }
+
+    /**
+     * 路线的内部表示
+     * @param deviation 与上一条路线开始不同的位置（-1 表示起始配方不同），之前的偏离点不必再尝试
+     */
+    private record Route(int[] nodes, int[] edges, double cost, int deviation) {
+    }
+
+    /**
+     * 一次查询的工作区：距离、前驱边、禁用标记和带位置表的二叉最小堆
+     * 标记与当前版本不同即视为未访问/未禁用，开始新查询只需递增版本
+     */
+    static final class Scratch {
+        final double[] dist;
+        final double[] priority;
+        final int[] prevEdge;
+        final int[] stamp;
+        final boolean[] settled;
+        final int[] bannedNode;
+        final int[] bannedEdge;
+        final int[] heap;
+        final int[] heapPos;
+        int heapSize;
+        int version;
+
+        Scratch(int nodeCount, int edgeCount) {
+            dist = new double[nodeCount];
+            priority = new double[nodeCount];
+            prevEdge = new int[nodeCount];
+            stamp = new int[nodeCount];
+            settled = new boolean[nodeCount];
+            bannedNode = new int[nodeCount];
+            bannedEdge = new int[edgeCount];
+            heap = new int[nodeCount];
+            heapPos = new int[nodeCount];
+        }
+
+        void begin() {
+            heapSize = 0;
+            if (++version == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                Arrays.fill(bannedNode, 0);
+                Arrays.fill(bannedEdge, 0);
+                version = 1;
+            }
+        }
+
+        boolean isReached(int node) {
+            return stamp[node] == version;
+        }
+
+        void banNode(int node) {
+            bannedNode[node] = version;
+        }
+
+        void banEdge(int edge) {
+            bannedEdge[edge] = version;
+        }
+
+        boolean isNodeBanned(int node) {
+            return bannedNode[node] == version;
+        }
+
+        boolean isEdgeBanned(int edge) {
+            return bannedEdge[edge] == version;
+        }
+
+        // 插入节点或降低其距离，堆按 key（距离 + 启发值）排序
+        void offer(int node, double distance, double key, int edge) {
+            if (stamp[node] != version) {
+                stamp[node] = version;
+                settled[node] = false;
+                dist[node] = distance;
+                priority[node] = key;
+                prevEdge[node] = edge;
+                heap[heapSize] = node;
+                heapPos[node] = heapSize;
+                siftUp(heapSize++);
+            } else if (!settled[node] && distance < dist[node]) {
+                dist[node] = distance;
+                priority[node] = key;
+                prevEdge[node] = edge;
+                siftUp(heapPos[node]);
+            }
+        }
+
+        int poll() {
+            int top = heap[0];
+            settled[top] = true;
+            int last = heap[--heapSize];
+            if (heapSize > 0) {
+                heap[0] = last;
+                heapPos[last] = 0;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private void siftUp(int pos) {
+            int node = heap[pos];
+            double key = priority[node];
+            while (pos > 0) {
+                int parent = (pos - 1) >>> 1;
+                int parentNode = heap[parent];
+                if (priority[parentNode] <= key) break;
+                heap[pos] = parentNode;
+                heapPos[parentNode] = pos;
+                pos = parent;
+            }
+            heap[pos] = node;
+            heapPos[node] = pos;
+        }
+
+        private void siftDown(int pos) {
+            int node = heap[pos];
+            double key = priority[node];
+            int half = heapSize >>> 1;
+            while (pos < half) {
+                int child = 2 * pos + 1;
+                int right = child + 1;
+                if (right < heapSize && priority[heap[right]] < priority[heap[child]]) {
+                    child = right;
+                }
+                if (key <= priority[heap[child]]) break;
+                heap[pos] = heap[child];
+                heapPos[heap[pos]] = pos;
+                pos = child;
+            }
+            heap[pos] = node;
+            heapPos[node] = pos;
+        }
+    }
+
+    /**
+     * 一条配方链
+     * @param recipes 依次执行的配方，第一个消耗源物品，最后一个产出目标物品
+     * @param edges 相邻配方之间的边，比 recipes 少一个
+     * @param cost 沿途边代价之和
+     */
+    public record CraftingPath(List<RecipeNode> recipes, List<RecipeEdge> edges, double cost) {
+        public int length() {
+            return recipes.size();
+        }
+    }
+
+    /**
+     * 备选路线查询结果
+     * @param routes 按代价升序排列的路线
+     * @param complete 是否在时间预算内完成（false 表示结果可能少于请求的数量）
+     */
+    public record RouteList(List<CraftingPath> routes, boolean complete) {
+    }
+}
@@ -0,0 +1,482 @@
+package com.cp.data;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * 不可变的哈希映射（哈希数组映射字典树，CHAMP 布局）
+ *
+ * 每层用哈希的 5 位选择 32 路分支，节点中键值对在前、子节点在后，由两个位图定位。
+ * plus/minus 只复制从根到被修改位置的一条路径（约 log32(n) 个节点），
+ * 其余子树与旧版本共享。删除后只剩一个条目的子节点会被收回父节点，
+ * 因此相同内容总是得到相同的结构，diff 可以跳过两个版本中引用相同的子树，
+ * 耗时与变化量成正比。值按引用比较，且不允许为 null
+ */
+public final class PersistentHashMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int HASH_BITS = 32;
+
+    @SuppressWarnings("rawtypes")
+    private static final PersistentHashMap EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentHashMap(Node<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public V get(Object key) {
+        return root.get(key, key.hashCode(), 0);
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    // 返回加入（或替换）该键后的新映射；值与原值是同一对象时返回自身
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(value);
+        Change change = new Change();
+        Node<K, V> newRoot = root.put(key, value, key.hashCode(), 0, change);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, change.added ? size + 1 : size);
+    }
+
+    // 返回去掉该键后的新映射；键不存在时返回自身
+    public PersistentHashMap<K, V> minus(Object key) {
+        Change change = new Change();
+        Node<K, V> newRoot = root.remove(key, key.hashCode(), 0, change);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach(action);
+    }
+
+    /**
+     * 比较本映射（旧）与 other（新），依次报告新增、删除和值被替换的键
+     */
+    public void diff(PersistentHashMap<K, V> other, DiffVisitor<K, V> visitor) {
+        diff(root, other.root, 0, visitor);
+    }
+
+    public interface DiffVisitor<K, V> {
+        void added(K key, V value);
+
+        void removed(K key, V value);
+
+        void changed(K key, V oldValue, V newValue);
+    }
+
+    // 与另一个版本共享的节点数，用于观察结构共享的程度
+    public int countSharedNodes(PersistentHashMap<K, V> other) {
+        Set<Node<K, V>> mine = Collections.newSetFromMap(new IdentityHashMap<>());
+        root.collect(mine);
+        Set<Node<K, V>> theirs = Collections.newSetFromMap(new IdentityHashMap<>());
+        other.root.collect(theirs);
+        mine.retainAll(theirs);
+        return mine.size();
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static final class Change {
+        boolean added;
+    }
+
+    // ---------- 节点 ----------
+
+    private abstract static class Node<K, V> {
+        abstract V get(Object key, int hash, int shift);
+
+        abstract Node<K, V> put(K key, V value, int hash, int shift, Change change);
+
+        abstract Node<K, V> remove(Object key, int hash, int shift, Change change);
+
+        abstract void forEach(BiConsumer<? super K, ? super V> action);
+
+        // 只剩一个键值对（没有子节点）时，父节点会把它收回
+        abstract boolean isSingleEntry();
+
+        abstract K firstKey();
+
+        abstract V firstValue();
+
+        void collect(Set<Node<K, V>> nodes) {
+            nodes.add(this);
+        }
+    }
+
+    private static final class BitmapNode<K, V> extends Node<K, V> {
+        @SuppressWarnings("rawtypes")
+        static final BitmapNode EMPTY = new BitmapNode<>(0, 0, new Object[0]);
+
+        final int dataMap;
+        final int nodeMap;
+        // [k0, v0, k1, v1, ..., 子节点逆序存放在末尾]
+        final Object[] content;
+
+        BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        int nodeSlot(int bit) {
+            return content.length - 1 - Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        @SuppressWarnings("unchecked")
+        K keyAt(int i) {
+            return (K) content[2 * i];
+        }
+
+        @SuppressWarnings("unchecked")
+        V valueAt(int i) {
+            return (V) content[2 * i + 1];
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<K, V> nodeAt(int bit) {
+            return (Node<K, V>) content[nodeSlot(bit)];
+        }
+
+        @Override
+        V get(Object key, int hash, int shift) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                return key.equals(content[2 * i]) ? valueAt(i) : null;
+            }
+            if ((nodeMap & bit) != 0) {
+                return nodeAt(bit).get(key, hash, shift + BITS);
+            }
+            return null;
+        }
+
+        @Override
+        Node<K, V> put(K key, V value, int hash, int shift, Change change) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                K existing = keyAt(i);
+                if (key.equals(existing)) {
+                    if (valueAt(i) == value) return this;
+                    Object[] copy = content.clone();
+                    copy[2 * i + 1] = value;
+                    return new BitmapNode<>(dataMap, nodeMap, copy);
+                }
+                // 哈希前缀冲突：两个条目下沉为一个子节点
+                change.added = true;
+                Node<K, V> sub = merge(existing, valueAt(i), existing.hashCode(), key, value, hash, shift + BITS);
+                return migrateToNode(bit, i, sub);
+            }
+            if ((nodeMap & bit) != 0) {
+                Node<K, V> sub = nodeAt(bit);
+                Node<K, V> newSub = sub.put(key, value, hash, shift + BITS, change);
+                if (newSub == sub) return this;
+                Object[] copy = content.clone();
+                copy[nodeSlot(bit)] = newSub;
+                return new BitmapNode<>(dataMap, nodeMap, copy);
+            }
+            change.added = true;
+            int i = dataIndex(bit);
+            Object[] copy = new Object[content.length + 2];
+            System.arraycopy(content, 0, copy, 0, 2 * i);
+            copy[2 * i] = key;
+            copy[2 * i + 1] = value;
+            System.arraycopy(content, 2 * i, copy, 2 * i + 2, content.length - 2 * i);
+            return new BitmapNode<>(dataMap | bit, nodeMap, copy);
+        }
+
+        @Override
+        Node<K, V> remove(Object key, int hash, int shift, Change change) {
+            int bit = bitpos(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                if (!key.equals(content[2 * i])) return this;
+                Object[] copy = new Object[content.length - 2];
+                System.arraycopy(content, 0, copy, 0, 2 * i);
+                System.arraycopy(content, 2 * i + 2, copy, 2 * i, content.length - 2 * i - 2);
+                return new BitmapNode<>(dataMap ^ bit, nodeMap, copy);
+            }
+            if ((nodeMap & bit) != 0) {
+                Node<K, V> sub = nodeAt(bit);
+                Node<K, V> newSub = sub.remove(key, hash, shift + BITS, change);
+                if (newSub == sub) return this;
+                if (newSub.isSingleEntry()) {
+                    // 保持规范形式：只剩一个条目的子节点收回为本节点的键值对
+                    return migrateToData(bit, newSub.firstKey(), newSub.firstValue());
+                }
+                Object[] copy = content.clone();
+                copy[nodeSlot(bit)] = newSub;
+                return new BitmapNode<>(dataMap, nodeMap, copy);
+            }
+            return this;
+        }
+
+        private Node<K, V> migrateToNode(int bit, int dataIndex, Node<K, V> sub) {
+            int oldSlot = 2 * dataIndex;
+            int newSlot = content.length - 2 - Integer.bitCount(nodeMap & (bit - 1));
+            Object[] copy = new Object[content.length - 1];
+            System.arraycopy(content, 0, copy, 0, oldSlot);
+            System.arraycopy(content, oldSlot + 2, copy, oldSlot, newSlot - oldSlot);
+            copy[newSlot] = sub;
+            System.arraycopy(content, newSlot + 2, copy, newSlot + 1, content.length - newSlot - 2);
+            return new BitmapNode<>(dataMap ^ bit, nodeMap | bit, copy);
+        }
+
+        private Node<K, V> migrateToData(int bit, K key, V value) {
+            int oldSlot = nodeSlot(bit);
+            int newSlot = 2 * Integer.bitCount(dataMap & (bit - 1));
+            Object[] copy = new Object[content.length + 1];
+            System.arraycopy(content, 0, copy, 0, newSlot);
+            copy[newSlot] = key;
+            copy[newSlot + 1] = value;
+            System.arraycopy(content, newSlot, copy, newSlot + 2, oldSlot - newSlot);
+            System.arraycopy(content, oldSlot + 1, copy, oldSlot + 2, content.length - oldSlot - 1);
+            return new BitmapNode<>(dataMap | bit, nodeMap ^ bit, copy);
+        }
+
+        @Override
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            int dataCount = Integer.bitCount(dataMap);
+            for (int i = 0; i < dataCount; i++) {
+                action.accept(keyAt(i), valueAt(i));
+            }
+            for (int slot = 2 * dataCount; slot < content.length; slot++) {
+                @SuppressWarnings("unchecked")
+                Node<K, V> sub = (Node<K, V>) content[slot];
+                sub.forEach(action);
+            }
+        }
+
+        @Override
+        boolean isSingleEntry() {
+            return nodeMap == 0 && Integer.bitCount(dataMap) == 1;
+        }
+
+        @Override
+        K firstKey() {
+            return keyAt(0);
+        }
+
+        @Override
+        V firstValue() {
+            return valueAt(0);
+        }
+
+        @Override
+        void collect(Set<Node<K, V>> nodes) {
+            nodes.add(this);
+            int dataCount = Integer.bitCount(dataMap);
+            for (int slot = 2 * dataCount; slot < content.length; slot++) {
+                @SuppressWarnings("unchecked")
+                Node<K, V> sub = (Node<K, V>) content[slot];
+                sub.collect(nodes);
+            }
+        }
+    }
+
+    // 32 位哈希完全相同的键，线性存放
+    private static final class CollisionNode<K, V> extends Node<K, V> {
+        final int hash;
+        final Object[] content;
+
+        CollisionNode(int hash, Object[] content) {
+            this.hash = hash;
+            this.content = content;
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < content.length; i += 2) {
+                if (key.equals(content[i])) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V get(Object key, int hash, int shift) {
+            int i = find(key);
+            return i >= 0 ? (V) content[i + 1] : null;
+        }
+
+        @Override
+        Node<K, V> put(K key, V value, int hash, int shift, Change change) {
+            int i = find(key);
+            if (i >= 0) {
+                if (content[i + 1] == value) return this;
+                Object[] copy = content.clone();
+                copy[i + 1] = value;
+                return new CollisionNode<>(this.hash, copy);
+            }
+            change.added = true;
+            Object[] copy = Arrays.copyOf(content, content.length + 2);
+            copy[content.length] = key;
+            copy[content.length + 1] = value;
+            return new CollisionNode<>(this.hash, copy);
+        }
+
+        @Override
+        Node<K, V> remove(Object key, int hash, int shift, Change change) {
+            int i = find(key);
+            if (i < 0) return this;
+            Object[] copy = new Object[content.length - 2];
+            System.arraycopy(content, 0, copy, 0, i);
+            System.arraycopy(content, i + 2, copy, i, content.length - i - 2);
+            return new CollisionNode<>(this.hash, copy);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (int i = 0; i < content.length; i += 2) {
+                action.accept((K) content[i], (V) content[i + 1]);
+            }
+        }
+
+        @Override
+        boolean isSingleEntry() {
+            return content.length == 2;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        K firstKey() {
+            return (K) content[0];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V firstValue() {
+            return (V) content[1];
+        }
+    }
+
+    // 把两个哈希前缀相同的条目放进从 shift 开始的新子树
+    private static <K, V> Node<K, V> merge(K key0, V value0, int hash0, K key1, V value1, int hash1, int shift) {
+        if (shift >= HASH_BITS) {
+            return new CollisionNode<>(hash0, new Object[]{key0, value0, key1, value1});
+        }
+        int bit0 = bitpos(hash0, shift);
+        int bit1 = bitpos(hash1, shift);
+        if (bit0 != bit1) {
+            Object[] content = Integer.compareUnsigned(bit0, bit1) < 0
+                    ? new Object[]{key0, value0, key1, value1}
+                    : new Object[]{key1, value1, key0, value0};
+            return new BitmapNode<>(bit0 | bit1, 0, content);
+        }
+        return new BitmapNode<>(0, bit0, new Object[]{merge(key0, value0, hash0, key1, value1, hash1, shift + BITS)});
+    }
+
+    // ---------- 差异 ----------
+
+    private static <K, V> void diff(Node<K, V> a, Node<K, V> b, int shift, DiffVisitor<K, V> visitor) {
+        if (a == b) {
+            return;
+        }
+        if (!(a instanceof BitmapNode<K, V> x) || !(b instanceof BitmapNode<K, V> y)) {
+            diffByLookup(a, b, shift, visitor);
+            return;
+        }
+        int bits = x.dataMap | x.nodeMap | y.dataMap | y.nodeMap;
+        while (bits != 0) {
+            int bit = Integer.lowestOneBit(bits);
+            bits ^= bit;
+            boolean xData = (x.dataMap & bit) != 0;
+            boolean yData = (y.dataMap & bit) != 0;
+            boolean xNode = (x.nodeMap & bit) != 0;
+            boolean yNode = (y.nodeMap & bit) != 0;
+            if (xData && yData) {
+                int i = x.dataIndex(bit);
+                int j = y.dataIndex(bit);
+                K xk = x.keyAt(i);
+                K yk = y.keyAt(j);
+                if (xk.equals(yk)) {
+                    if (x.valueAt(i) != y.valueAt(j)) visitor.changed(xk, x.valueAt(i), y.valueAt(j));
+                } else {
+                    visitor.removed(xk, x.valueAt(i));
+                    visitor.added(yk, y.valueAt(j));
+                }
+            } else if (xNode && yNode) {
+                diff(x.nodeAt(bit), y.nodeAt(bit), shift + BITS, visitor);
+            } else if (xData && yNode) {
+                int i = x.dataIndex(bit);
+                diffEntryAgainstNode(x.keyAt(i), x.valueAt(i), y.nodeAt(bit), shift + BITS, visitor, false);
+            } else if (xNode && yData) {
+                int j = y.dataIndex(bit);
+                diffEntryAgainstNode(y.keyAt(j), y.valueAt(j), x.nodeAt(bit), shift + BITS, visitor, true);
+            } else if (xData) {
+                int i = x.dataIndex(bit);
+                visitor.removed(x.keyAt(i), x.valueAt(i));
+            } else if (yData) {
+                int j = y.dataIndex(bit);
+                visitor.added(y.keyAt(j), y.valueAt(j));
+            } else if (xNode) {
+                x.nodeAt(bit).forEach(visitor::removed);
+            } else {
+                y.nodeAt(bit).forEach(visitor::added);
+            }
+        }
+    }
+
+    /**
+     * 一侧是单个条目、另一侧是子树：子树中的其他条目都是新增（或删除）
+     * @param entryIsNew 单个条目属于新版本
+     */
+    private static <K, V> void diffEntryAgainstNode(K key, V value, Node<K, V> node, int shift,
+                                                    DiffVisitor<K, V> visitor, boolean entryIsNew) {
+        V other = node.get(key, key.hashCode(), shift);
+        node.forEach((k, v) -> {
+            if (k.equals(key)) return;
+            if (entryIsNew) visitor.removed(k, v);
+            else visitor.added(k, v);
+        });
+        if (other == null) {
+            if (entryIsNew) visitor.added(key, value);
+            else visitor.removed(key, value);
+        } else if (other != value) {
+            if (entryIsNew) visitor.changed(key, other, value);
+            else visitor.changed(key, value, other);
+        }
+    }
+
+    // 结构不同的两个子树（只在变化处出现）：逐个查找比较
+    private static <K, V> void diffByLookup(Node<K, V> a, Node<K, V> b, int shift, DiffVisitor<K, V> visitor) {
+        a.forEach((k, v) -> {
+            V other = b.get(k, k.hashCode(), shift);
+            if (other == null) visitor.removed(k, v);
+            else if (other != v) visitor.changed(k, v, other);
+        });
+        b.forEach((k, v) -> {
+            if (a.get(k, k.hashCode(), shift) == null) visitor.added(k, v);
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "PersistentHashMap{size=" + size + '}';
+    }
+}
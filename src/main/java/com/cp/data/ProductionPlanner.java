@@ -0,0 +1,216 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+
+import java.util.*;
+
+/**
+ * 产线速率规划：“每分钟生产 R 个目标物品，每个配方每分钟要合成几次？”
+ *
+ * 每个非原材料物品使用与 MaterialResolver 相同的配方选择，变量为该配方每分钟的合成次数 x。
+ * 对物品 i（选定配方 r_i）列出速率平衡方程：
+ *   产出(r_i) · x_i − Σ_j 消耗_i(r_j) · x_j = 需求_i
+ * 方程组以 CSR 形式存放在原始数组上，用 Gauss–Seidel 迭代求解（环路和自消耗配方同样适用，
+ * 只要每个配方的净产出为正）。
+ *
+ * 方程组对需求是线性的：每个目标只求解一次单位速率的解并缓存，
+ * 交互式修改速率时直接按比例缩放，不需要重新迭代
+ */
+public class ProductionPlanner {
+    public static final double TOLERANCE = 1e-10;
+    public static final int MAX_ITERATIONS = 500;
+    private static final int MAX_CACHED_TARGETS = 64;
+
+    private final GraphIndex index;
+    private final MaterialResolver resolver;
+
+    // 目标物品（原始ID）-> 单位速率的解，按访问顺序淘汰
+    private final LinkedHashMap<Integer, UnitPlan> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, UnitPlan> eldest) {
+            return size() > MAX_CACHED_TARGETS;
+        }
+    };
+
+    /**
+     * 目标每分钟 1 个时的解
+     * @param items 变量对应的物品（原始ID），下标 0 为目标
+     * @param recipes 变量对应的配方（节点下标）
+     * @param crafts 每分钟合成次数
+     * @param rawItems 消耗的原材料（原始ID，升序）
+     * @param rawRates 对应的每分钟消耗量
+     */
+    private record UnitPlan(int[] items, int[] recipes, double[] crafts, int[] rawItems, double[] rawRates,
+                            int iterations, boolean converged) {
+    }
+
+    ProductionPlanner(GraphIndex index, MaterialResolver resolver) {
+        this.index = index;
+        this.resolver = resolver;
+    }
+
+    /**
+     * 每分钟生产 perMinute 个 target 的产线
+     */
+    public ProductionPlan plan(Item target, double perMinute) {
+        int rawId = Registries.ITEM.getRawId(target);
+        UnitPlan unit;
+        synchronized (this) {
+            unit = cache.get(rawId);
+        }
+        if (unit == null) {
+            unit = solve(target);
+            synchronized (this) {
+                cache.put(rawId, unit);
+            }
+        }
+
+        List<Step> steps = new ArrayList<>(unit.items().length);
+        for (int i = 0; i < unit.items().length; i++) {
+            RecipeNode recipe = index.getNode(unit.recipes()[i]);
+            double crafts = unit.crafts()[i] * perMinute;
+            steps.add(new Step(recipe, Registries.ITEM.get(unit.items()[i]), crafts, crafts * recipe.getOutputCount()));
+        }
+        Map<Item, Double> raw = new LinkedHashMap<>();
+        for (int k = 0; k < unit.rawItems().length; k++) {
+            raw.put(Registries.ITEM.get(unit.rawItems()[k]), unit.rawRates()[k] * perMinute);
+        }
+        return new ProductionPlan(target, perMinute, List.copyOf(steps), Collections.unmodifiableMap(raw),
+                unit.iterations(), unit.converged());
+    }
+
+    public synchronized int getCachedTargetCount() {
+        return cache.size();
+    }
+
+    private UnitPlan solve(Item target) {
+        // 1. 从目标出发收集需要合成的物品，每个物品一个变量
+        Map<Integer, Integer> variableOf = new HashMap<>();
+        List<Integer> itemList = new ArrayList<>();
+        List<Integer> recipeList = new ArrayList<>();
+        int targetId = Registries.ITEM.getRawId(target);
+        RecipeNode targetRecipe = resolver.getChosenRecipe(target);
+        if (targetRecipe == null) {
+            // 目标本身就是原材料
+            return new UnitPlan(new int[0], new int[0], new double[0], new int[]{targetId}, new double[]{1.0}, 0, true);
+        }
+        variableOf.put(targetId, 0);
+        itemList.add(targetId);
+        recipeList.add(index.indexOf(targetRecipe.getRecipeId()));
+        for (int head = 0; head < itemList.size(); head++) {
+            int recipe = recipeList.get(head);
+            for (int k = index.getInputStart(recipe); k < index.getInputEnd(recipe); k++) {
+                int input = index.getInputItem(k);
+                if (variableOf.containsKey(input)) continue;
+                RecipeNode chosen = resolver.getChosenRecipe(Registries.ITEM.get(input));
+                if (chosen != null) {
+                    variableOf.put(input, itemList.size());
+                    itemList.add(input);
+                    recipeList.add(index.indexOf(chosen.getRecipeId()));
+                }
+            }
+        }
+        int n = itemList.size();
+        int[] items = new int[n];
+        int[] recipes = new int[n];
+        double[] diagonal = new double[n];
+        for (int i = 0; i < n; i++) {
+            items[i] = itemList.get(i);
+            recipes[i] = recipeList.get(i);
+            diagonal[i] = index.getNode(recipes[i]).getOutputCount();
+        }
+
+        // 2. 稀疏行：第 i 行记录消耗物品 i 的变量 j 及每次合成的消耗量；原材料单独统计
+        int[] rowCounts = new int[n + 1];
+        Map<Integer, List<double[]>> rawTerms = new TreeMap<>();
+        for (int j = 0; j < n; j++) {
+            for (int k = index.getInputStart(recipes[j]); k < index.getInputEnd(recipes[j]); k++) {
+                Integer i = variableOf.get(index.getInputItem(k));
+                if (i == null) {
+                    rawTerms.computeIfAbsent(index.getInputItem(k), key -> new ArrayList<>())
+                            .add(new double[]{j, index.getInputQuantity(k)});
+                } else if (i == j) {
+                    diagonal[i] -= index.getInputQuantity(k);
+                } else {
+                    rowCounts[i + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            rowCounts[i + 1] += rowCounts[i];
+        }
+        int[] columns = new int[rowCounts[n]];
+        double[] values = new double[rowCounts[n]];
+        int[] fill = Arrays.copyOf(rowCounts, n);
+        for (int j = 0; j < n; j++) {
+            for (int k = index.getInputStart(recipes[j]); k < index.getInputEnd(recipes[j]); k++) {
+                Integer i = variableOf.get(index.getInputItem(k));
+                if (i != null && i != j) {
+                    columns[fill[i]] = j;
+                    values[fill[i]++] = index.getInputQuantity(k);
+                }
+            }
+        }
+
+        // 3. Gauss–Seidel：x_i = (b_i + Σ 消耗 · x_j) / 净产出_i
+        double[] x = new double[n];
+        int iterations = 0;
+        boolean converged = true;
+        for (int i = 0; i < n; i++) {
+            if (diagonal[i] <= 0) {
+                converged = false;
+            }
+        }
+        if (converged) {
+            converged = false;
+            while (iterations < MAX_ITERATIONS && !converged) {
+                double maxChange = 0.0;
+                double maxValue = 0.0;
+                for (int i = 0; i < n; i++) {
+                    double sum = i == 0 ? 1.0 : 0.0;
+                    for (int slot = rowCounts[i]; slot < rowCounts[i + 1]; slot++) {
+                        sum += values[slot] * x[columns[slot]];
+                    }
+                    double value = sum / diagonal[i];
+                    maxChange = Math.max(maxChange, Math.abs(value - x[i]));
+                    maxValue = Math.max(maxValue, Math.abs(value));
+                    x[i] = value;
+                }
+                iterations++;
+                converged = maxChange <= TOLERANCE * Math.max(1.0, maxValue);
+            }
+        }
+
+        // 4. 原材料消耗速率
+        int[] rawItems = new int[rawTerms.size()];
+        double[] rawRates = new double[rawTerms.size()];
+        int r = 0;
+        for (Map.Entry<Integer, List<double[]>> entry : rawTerms.entrySet()) {
+            rawItems[r] = entry.getKey();
+            for (double[] term : entry.getValue()) {
+                rawRates[r] += term[1] * x[(int) term[0]];
+            }
+            r++;
+        }
+        return new UnitPlan(items, recipes, x, rawItems, rawRates, iterations, converged);
+    }
+
+    /**
+     * 产线中的一步
+     * @param craftsPerMinute 每分钟合成次数（未取整）
+     * @param itemsPerMinute 每分钟产出的物品数
+     */
+    public record Step(RecipeNode recipe, Item item, double craftsPerMinute, double itemsPerMinute) {
+    }
+
+    /**
+     * 规划结果
+     * @param steps 需要运行的配方，第一个为目标物品的配方
+     * @param rawPerMinute 每分钟消耗的原材料
+     * @param converged 迭代是否收敛；存在净产出不为正的配方时为 false
+     */
+    public record ProductionPlan(Item target, double perMinute, List<Step> steps, Map<Item, Double> rawPerMinute,
+                                 int iterations, boolean converged) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.cp.data;
+
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * 查询结果缓存
+ * 键为 (查询类型, 参数)，按访问顺序做 LRU 淘汰，同时限制条目数和总权重
+ *
+ * 每个图对象（快照、筛选视图、邻域子图）各有一个缓存，通过 RecipeGraph.getQueryCache() 获取，
+ * 随图对象一起被回收；在不同视图上查询互不影响，快照更换时也不需要发布方手动通知
+ */
+public class QueryCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final long DEFAULT_MAX_WEIGHT = 256 * 1024;
+
+    /**
+     * 缓存键
+     * @param args 查询参数，需要实现 equals/hashCode
+     */
+    public record Key(String kind, List<?> args) {
+    }
+
+    private record Entry(Object value, int weight) {
+    }
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalWeight = 0;
+
+    // 统计
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public QueryCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * @param maxEntries 最多保留的条目数
+     * @param maxWeight 所有条目权重之和的上限（权重由调用方估算，大致对应结果中的元素个数）
+     */
+    public QueryCache(int maxEntries, long maxWeight) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * 读取缓存，未命中时计算并写入
+     * 计算在锁外进行，同一个键并发未命中时可能重复计算，结果以先写入的为准
+     *
+     * @param weigher 估算结果的权重，返回负数表示该结果不写入缓存；结果为null时不会调用
+     */
+    public <V> V get(String kind, List<?> args, Supplier<V> compute, ToIntFunction<V> weigher) {
+        Key key = new Key(kind, args);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                @SuppressWarnings("unchecked")
+                V value = (V) entry.value();
+                return value;
+            }
+            misses++;
+        }
+
+        V value = compute.get();
+        int weight = value == null ? 1 : weigher.applyAsInt(value);
+        if (weight < 0) {
+            return value;
+        }
+        weight++;
+
+        synchronized (this) {
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                @SuppressWarnings("unchecked")
+                V winner = (V) existing.value();
+                return winner;
+            }
+            if (weight <= maxWeight) {
+                entries.put(key, new Entry(value, weight));
+                totalWeight += weight;
+                evict();
+            }
+        }
+        return value;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeight) && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            totalWeight -= eldest.weight();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalWeight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalWeight() {
+        return totalWeight;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : hits / (double) total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QueryCache{" +
+                "entries=" + entries.size() +
+                ", weight=" + totalWeight +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
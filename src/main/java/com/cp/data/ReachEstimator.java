@@ -0,0 +1,179 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+
+import java.util.*;
+
+/**
+ * “这个物品能解锁多少配方”的近似估计，每个快照计算一次
+ *
+ * 配方 r 的下游是所有直接或间接使用 r 的输出的配方。精确计算需要对每个物品做一次 DFS，
+ * 在整个注册表上是平方级的；这里给每个强连通分量一个 HyperLogLog 草图（2^PRECISION 个字节寄存器），
+ * 按“依赖者在前”的顺序把下游分量的寄存器逐个取最大值合并，一次线性遍历即可得到全部估计，
+ * 内存为 分量数 × 寄存器数 字节。标准误差约为 1.04 / sqrt(寄存器数)
+ */
+public class ReachEstimator {
+    public static final int PRECISION = 8;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1.0 + 1.079 / REGISTERS);
+
+    private final GraphIndex index;
+    private final StronglyConnectedComponents components;
+
+    // 每个分量的寄存器，连续存放
+    private final byte[] sketches;
+
+    // 每个物品被多少配方（直接或间接）依赖的估计值
+    private final int[] itemEstimates;
+    private final int[] topItems;
+
+    ReachEstimator(GraphIndex index) {
+        this.index = index;
+        int nodeCount = index.getNodeCount();
+
+        // 1. 配方级依赖图：r -> 所有使用 r 的输出物品的配方
+        int[] offsets = new int[nodeCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] = offsets[node] + index.getConsumerCount(index.getOutputItem(node));
+        }
+        int[] targets = new int[offsets[nodeCount]];
+        for (int node = 0; node < nodeCount; node++) {
+            int output = index.getOutputItem(node);
+            int cursor = offsets[node];
+            for (int slot = index.getConsumerStart(output); slot < index.getConsumerEnd(output); slot++) {
+                targets[cursor++] = index.getConsumer(slot);
+            }
+        }
+
+        // 2. 缩点；依赖者所在分量的编号总是更小，按编号递增处理即可保证下游先完成
+        components = new StronglyConnectedComponents(nodeCount, offsets, targets);
+        int componentCount = components.getComponentCount();
+        sketches = new byte[componentCount * REGISTERS];
+        int[] memberOffsets = new int[componentCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            memberOffsets[components.getComponent(node) + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            memberOffsets[c + 1] += memberOffsets[c];
+        }
+        int[] members = new int[nodeCount];
+        int[] fill = Arrays.copyOf(memberOffsets, componentCount);
+        for (int node = 0; node < nodeCount; node++) {
+            members[fill[components.getComponent(node)]++] = node;
+        }
+
+        int[] mergedFrom = new int[componentCount];
+        Arrays.fill(mergedFrom, -1);
+        for (int c = 0; c < componentCount; c++) {
+            int base = c * REGISTERS;
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                int node = members[m];
+                add(sketches, base, node);
+                for (int slot = offsets[node]; slot < offsets[node + 1]; slot++) {
+                    int d = components.getComponent(targets[slot]);
+                    // 同一个下游分量只合并一次
+                    if (d != c && mergedFrom[d] != c) {
+                        mergedFrom[d] = c;
+                        merge(sketches, base, sketches, d * REGISTERS);
+                    }
+                }
+            }
+        }
+
+        // 3. 物品的估计：合并所有直接使用它的配方所在分量
+        itemEstimates = new int[index.getItemCount()];
+        byte[] scratch = new byte[REGISTERS];
+        Arrays.fill(mergedFrom, -1);
+        for (int item = 0; item < itemEstimates.length; item++) {
+            if (index.getConsumerCount(item) == 0) continue;
+            Arrays.fill(scratch, (byte) 0);
+            for (int slot = index.getConsumerStart(item); slot < index.getConsumerEnd(item); slot++) {
+                int d = components.getComponent(index.getConsumer(slot));
+                if (mergedFrom[d] != item) {
+                    mergedFrom[d] = item;
+                    merge(scratch, 0, sketches, d * REGISTERS);
+                }
+            }
+            itemEstimates[item] = (int) Math.round(estimate(scratch, 0));
+        }
+        topItems = GraphStatistics.topK(itemEstimates, GraphStatistics.TOP_K);
+    }
+
+    // ---------- HyperLogLog ----------
+
+    private static void add(byte[] registers, int base, int value) {
+        long hash = mix(value);
+        int register = (int) (hash >>> (64 - PRECISION));
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[base + register]) {
+            registers[base + register] = (byte) rank;
+        }
+    }
+
+    private static void merge(byte[] target, int targetBase, byte[] source, int sourceBase) {
+        for (int r = 0; r < REGISTERS; r++) {
+            if (source[sourceBase + r] > target[targetBase + r]) {
+                target[targetBase + r] = source[sourceBase + r];
+            }
+        }
+    }
+
+    private static double estimate(byte[] registers, int base) {
+        double sum = 0.0;
+        int zeros = 0;
+        for (int r = 0; r < REGISTERS; r++) {
+            int value = registers[base + r];
+            sum += 1.0 / (1L << value);
+            if (value == 0) zeros++;
+        }
+        double raw = ALPHA * REGISTERS * REGISTERS / sum;
+        // 小基数时改用线性计数
+        if (raw <= 2.5 * REGISTERS && zeros > 0) {
+            return REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return raw;
+    }
+
+    // SplitMix64 终结函数
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // ---------- 查询 ----------
+
+    // 直接或间接使用该物品的配方数（估计值）
+    public int estimateDependents(int rawItemId) {
+        return rawItemId >= 0 && rawItemId < itemEstimates.length ? itemEstimates[rawItemId] : 0;
+    }
+
+    public int estimateDependents(Item item) {
+        return estimateDependents(Registries.ITEM.getRawId(item));
+    }
+
+    // 配方自身以及所有直接或间接使用它的输出的配方数（估计值）
+    public int estimateRecipeReach(int node) {
+        return (int) Math.round(estimate(sketches, components.getComponent(node) * REGISTERS));
+    }
+
+    // 估计解锁配方最多的物品原始ID，最多 TOP_K 个
+    public int[] getTopItems() {
+        return topItems.clone();
+    }
+
+    // 草图占用的字节数
+    public int getSketchBytes() {
+        return sketches.length;
+    }
+
+    @Override
+    public String toString() {
+        return "ReachEstimator{" +
+                "components=" + components.getComponentCount() +
+                ", sketchBytes=" + sketches.length +
+                '}';
+    }
+}
@@ -1,47 +1,153 @@
 // RecipeCollector.java - 重构后的主收集器类
 package com.cp.data;
 
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeEntry;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.Identifier;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 
 public class RecipeCollector {
     private final RecipeDataManager dataManager = new RecipeDataManager();
     private final RecipeProcessor processor;
     private final GraphBuilder graphBuilder;
 
+    // 当前发布的图快照，只在重新收集后替换；分片存储模式下是 ShardedRecipeGraph
+    private volatile GraphSnapshot snapshot;
+    private long snapshotVersion = 0;
+
+    // 分片存储模式：启用后快照写入磁盘，内存中只保留全局索引和正在浏览的分片
+    private Path shardDirectory;
+    private long shardMemoryBudget;
+
+    // 快照更新监听器，发布新快照后在发布线程上依次调用
+    private final List<GraphUpdateListener> listeners = new CopyOnWriteArrayList<>();
+
+    // 最近几个版本的历史（相邻版本共享结构），用于比较重载前后的变化
+    private final GraphHistory history = new GraphHistory();
+
+    // 串行化收集过程，与快照发布用的对象锁分开，收集期间仍可读取当前快照
+    private final Object collectLock = new Object();
+
     public RecipeCollector() {
         this.processor = new RecipeProcessor(dataManager);
         this.graphBuilder = new GraphBuilder(dataManager);
+        addListener(history);
+    }
+
+    /**
+     * 重新收集配方并发布新快照
+     * @return 本次发布的事件，其中带有与上一快照之间的差异
+     */
+    public GraphUpdateEvent collectAllRecipes(MinecraftServer server) {
+        GraphUpdateEvent event;
+        // 收集可能在后台线程进行，同一时间只允许一次收集使用 dataManager
+        synchronized (collectLock) {
+            dataManager.clear();
+            processor.processAllRecipes(server);
+            graphBuilder.buildGraph();
+            event = publishSnapshot(
+                    id -> server.getRecipeManager().get(id).map(RecipeEntry::value).orElse(null));
+        }
+        // 在锁外通知，监听器可以安全地回调收集器
+        GraphUpdateEvent.dispatch(listeners, event);
+        return event;
+    }
+
+    /**
+     * 注册快照更新监听器；事件中带有发布时算好的差异，监听器可以据此增量更新自己的派生数据
+     */
+    public void addListener(GraphUpdateListener listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeListener(GraphUpdateListener listener) {
+        listeners.remove(listener);
     }
 
-    public void collectAllRecipes(MinecraftServer server) {
-        dataManager.clear();
-        processor.processAllRecipes(server);
-        graphBuilder.buildGraph();
+    /**
+     * 启用按命名空间分片的磁盘存储
+     * @param directory 分片目录
+     * @param memoryBudget 已加载分片的内存预算（字节）
+     */
+    public synchronized void enableShardedStorage(Path directory, long memoryBudget) {
+        this.shardDirectory = directory;
+        this.shardMemoryBudget = memoryBudget;
     }
 
-    public RecipeGraph getRecipeGraph() {
-        return dataManager.createRecipeGraph();
+    public synchronized boolean isShardedStorageEnabled() {
+        return shardDirectory != null;
+    }
+
+    /**
+     * 当前发布的快照；需要整图分析时用 loadUpstream/loadAround 取得 RecipeGraph
+     */
+    public GraphSnapshot getSnapshot() {
+        GraphSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = dataManager.createRecipeGraph(snapshotVersion);
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    public GraphHistory getHistory() {
+        return history;
+    }
+
+    public long getSnapshotVersion() {
+        return getSnapshot().getSnapshotVersion();
+    }
+
+    private synchronized GraphUpdateEvent publishSnapshot(Function<Identifier, Recipe<?>> recipeResolver) {
+        GraphSnapshot previous = snapshot;
+        snapshotVersion++;
+        RecipeGraph graph = dataManager.createRecipeGraph(snapshotVersion);
+
+        if (shardDirectory != null) {
+            try {
+                ShardedGraphStore store = ShardedGraphStore.write(graph, shardDirectory,
+                        shardMemoryBudget, recipeResolver);
+                // 上一快照也是分片时只对比内容摘要变化的分片，否则趁新图还在内存里直接对比
+                GraphDelta delta = previous instanceof ShardedRecipeGraph old
+                        ? GraphDelta.between(old.getStore(), store)
+                        : GraphDelta.between(previous, graph);
+                snapshot = new ShardedRecipeGraph(store, snapshotVersion);
+                // 构建用的数据已经写入分片，释放内存
+                dataManager.clear();
+                return new GraphUpdateEvent(GraphUpdateEvent.Kind.REBUILD, previous, snapshot, delta);
+            } catch (IOException e) {
+                System.err.println("写入配方分片失败，改用内存存储: " + e.getMessage());
+            }
+        }
+        GraphDelta delta = GraphDelta.between(previous, graph);
+        snapshot = graph;
+        return new GraphUpdateEvent(GraphUpdateEvent.Kind.REBUILD, previous, snapshot, delta);
     }
 
     public void printGraphSummary() {
-        RecipeGraph graph = dataManager.createRecipeGraph();
+        GraphSnapshot graph = getSnapshot();
         System.out.println("=== 配方关系图摘要 ===");
         System.out.println("总节点数: " + graph.getNodeCount());
         System.out.println("总边数: " + graph.getEdgeCount());
+        System.out.println("合并的重复配方: " + processor.getDuplicateCount());
 
         // 统计边类型
-        Map<String, Integer> edgeTypeCount = new HashMap<>();
-        for (RecipeEdge edge : graph.getEdges()) {
-            String type = edge.getRelationshipType();
-            edgeTypeCount.put(type, edgeTypeCount.getOrDefault(type, 0) + 1);
-        }
+        GraphStatistics statistics = graph.getStatistics();
 
         System.out.println("边类型分布:");
-        for (Map.Entry<String, Integer> entry : edgeTypeCount.entrySet()) {
-            System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+        for (Map.Entry<String, Integer> entry : statistics.getEdgeTypeCounts().entrySet()) {
+            System.out.printf("  %s: %d (%.1f%%)%n", entry.getKey(), entry.getValue(),
+                    statistics.getEdgeTypePercent(entry.getKey()));
         }
 
         // 检查循环
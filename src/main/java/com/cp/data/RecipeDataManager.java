@@ -11,7 +11,7 @@ public class RecipeDataManager {
     private final Map<Identifier, RecipeNode> nodes = new HashMap<>();
     private final List<RecipeEdge> edges = new ArrayList<>();
     private final Map<Item, List<Identifier>> itemToRecipeMap = new HashMap<>();
-    private final Set<String> processedEdges = new HashSet<>();
+    private final Set<EdgeKey> processedEdges = new HashSet<>();
     private final Map<Item, Set<Item>> itemDependencyGraph = new HashMap<>();
 
     public void clear() {
@@ -49,11 +49,11 @@ public class RecipeDataManager {
         return itemToRecipeMap.getOrDefault(item, Collections.emptyList());
     }
 
-    public boolean hasEdge(String edgeKey) {
+    public boolean hasEdge(EdgeKey edgeKey) {
         return processedEdges.contains(edgeKey);
     }
 
-    public void markEdgeProcessed(String edgeKey) {
+    public void markEdgeProcessed(EdgeKey edgeKey) {
         processedEdges.add(edgeKey);
     }
 
@@ -67,12 +67,21 @@ public class RecipeDataManager {
     }
 
     public RecipeGraph createRecipeGraph() {
+        return createRecipeGraph(0L);
+    }
+
+    public RecipeGraph createRecipeGraph(long snapshotVersion) {
         return new RecipeGraph(
                 Collections.unmodifiableMap(new HashMap<>(nodes)),
-                Collections.unmodifiableList(new ArrayList<>(edges))
+                Collections.unmodifiableList(new ArrayList<>(edges)),
+                snapshotVersion
         );
     }
 
+    // 已处理边的键，直接比较ID而不拼接字符串
+    public record EdgeKey(Identifier from, Identifier to, String type) {
+    }
+
     // 内部类：循环检测器
     private static class CycleDetector {
         private final RecipeDataManager dataManager;
@@ -3,23 +3,62 @@ package com.cp.data;
 import net.minecraft.util.Identifier;
 import java.util.*;
 
-public class RecipeGraph {
+public class RecipeGraph implements GraphSnapshot {
     private final Map<Identifier, RecipeNode> nodes;
     private final List<RecipeEdge> edges;
 
     // 图的元数据
     private final long buildTimestamp;
+    private final long snapshotVersion;
     private int nodeCount;
     private int edgeCount;
 
+    // 按快照缓存的派生数据，首次使用时构建
+    private volatile GraphIndex index;
+    private volatile GraphStatistics statistics;
+    private volatile StringTable stringTable;
+    private volatile MaterialResolver materialResolver;
+    private volatile PathFinder pathFinder;
+    private volatile SearchIndex searchIndex;
+    private volatile TransitiveReduction transitiveReduction;
+    private volatile Centrality centrality;
+    private volatile DominatorTree dominatorTree;
+    private volatile ReachEstimator reachEstimator;
+    private volatile ClusterHierarchy clusterHierarchy;
+    private volatile ProductionPlanner productionPlanner;
+    private volatile EdgeWeightIndex edgeWeightIndex;
+    private volatile NodeMasks nodeMasks;
+    private volatile QueryCache queryCache;
+    // 被合并的重复配方ID -> 代表它的节点ID，第一次按ID查找失败时构建
+    private volatile Map<Identifier, Identifier> aliases;
+
     public RecipeGraph(Map<Identifier, RecipeNode> nodes, List<RecipeEdge> edges) {
+        this(nodes, edges, 0L);
+    }
+
+    public RecipeGraph(Map<Identifier, RecipeNode> nodes, List<RecipeEdge> edges, long snapshotVersion) {
         this.nodes = Collections.unmodifiableMap(new HashMap<>(nodes));
         this.edges = Collections.unmodifiableList(new ArrayList<>(edges));
         this.buildTimestamp = System.currentTimeMillis();
+        this.snapshotVersion = snapshotVersion;
         this.nodeCount = nodes.size();
         this.edgeCount = edges.size();
     }
 
+    // 直接包装只读视图，不复制节点和边（由 NodeMasks 构建筛选视图时使用）
+    private RecipeGraph(long snapshotVersion, Map<Identifier, RecipeNode> nodeView, List<RecipeEdge> edgeView) {
+        this.nodes = Collections.unmodifiableMap(nodeView);
+        this.edges = Collections.unmodifiableList(edgeView);
+        this.buildTimestamp = System.currentTimeMillis();
+        this.snapshotVersion = snapshotVersion;
+        this.nodeCount = nodeView.size();
+        this.edgeCount = edgeView.size();
+    }
+
+    static RecipeGraph view(Map<Identifier, RecipeNode> nodeView, List<RecipeEdge> edgeView, long snapshotVersion) {
+        return new RecipeGraph(snapshotVersion, nodeView, edgeView);
+    }
+
     public Map<Identifier, RecipeNode> getNodes() {
         return nodes;
     }
@@ -29,7 +68,41 @@ public class RecipeGraph {
     }
 
     public RecipeNode getNodeById(Identifier recipeId) {
-        return nodes.get(recipeId);
+        RecipeNode node = nodes.get(recipeId);
+        if (node == null) {
+            Identifier canonical = getAliases().get(recipeId);
+            if (canonical != null) {
+                node = nodes.get(canonical);
+            }
+        }
+        return node;
+    }
+
+    @Override
+    public Identifier resolveAlias(Identifier recipeId) {
+        if (nodes.containsKey(recipeId)) {
+            return recipeId;
+        }
+        return getAliases().getOrDefault(recipeId, recipeId);
+    }
+
+    private Map<Identifier, Identifier> getAliases() {
+        Map<Identifier, Identifier> result = aliases;
+        if (result == null) {
+            synchronized (this) {
+                if (aliases == null) {
+                    Map<Identifier, Identifier> map = new HashMap<>();
+                    for (RecipeNode node : nodes.values()) {
+                        for (Identifier alias : node.getAliasIds()) {
+                            map.put(alias, node.getRecipeId());
+                        }
+                    }
+                    aliases = map;
+                }
+                result = aliases;
+            }
+        }
+        return result;
     }
 
     public List<RecipeEdge> getEdgesFromNode(Identifier recipeId) {
@@ -74,10 +147,266 @@ public class RecipeGraph {
         return result;
     }
 
+    // 整数索引（CSR 邻接表），每个快照只构建一次
+    public GraphIndex getIndex() {
+        GraphIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                if (index == null) {
+                    index = new GraphIndex(this);
+                }
+                result = index;
+            }
+        }
+        return result;
+    }
+
+    // 统计信息，每个快照只计算一次
+    public GraphStatistics getStatistics() {
+        GraphStatistics result = statistics;
+        if (result == null) {
+            synchronized (this) {
+                if (statistics == null) {
+                    statistics = new GraphStatistics(getIndex());
+                }
+                result = statistics;
+            }
+        }
+        return result;
+    }
+
+    // 字符串表，每个快照只构建一次
+    public StringTable getStringTable() {
+        StringTable result = stringTable;
+        if (result == null) {
+            synchronized (this) {
+                if (stringTable == null) {
+                    stringTable = new StringTable(getIndex());
+                }
+                result = stringTable;
+            }
+        }
+        return result;
+    }
+
+    // 原材料分解器，每个快照只求解一次
+    public MaterialResolver getMaterialResolver() {
+        MaterialResolver result = materialResolver;
+        if (result == null) {
+            synchronized (this) {
+                if (materialResolver == null) {
+                    materialResolver = new MaterialResolver(getIndex());
+                }
+                result = materialResolver;
+            }
+        }
+        return result;
+    }
+
+    // 路径查询器，每个快照只构建一次
+    public PathFinder getPathFinder() {
+        PathFinder result = pathFinder;
+        if (result == null) {
+            synchronized (this) {
+                if (pathFinder == null) {
+                    pathFinder = new PathFinder(getIndex());
+                }
+                result = pathFinder;
+            }
+        }
+        return result;
+    }
+
+    // 物品/配方搜索索引，每个快照只构建一次
+    public SearchIndex getSearchIndex() {
+        SearchIndex result = searchIndex;
+        if (result == null) {
+            synchronized (this) {
+                if (searchIndex == null) {
+                    searchIndex = new SearchIndex(getIndex(), getStringTable());
+                }
+                result = searchIndex;
+            }
+        }
+        return result;
+    }
+
+    // 链式边的传递约简，每个快照只计算一次
+    public TransitiveReduction getTransitiveReduction() {
+        TransitiveReduction result = transitiveReduction;
+        if (result == null) {
+            synchronized (this) {
+                if (transitiveReduction == null) {
+                    transitiveReduction = new TransitiveReduction(this);
+                }
+                result = transitiveReduction;
+            }
+        }
+        return result;
+    }
+
+    // 去掉冗余链式边后的视图，用于渲染和导出
+    public RecipeGraph getReducedGraph() {
+        return getTransitiveReduction().getReducedGraph();
+    }
+
+    // PageRank 与度中心性，每个快照只计算一次
+    public Centrality getCentrality() {
+        Centrality result = centrality;
+        if (result == null) {
+            synchronized (this) {
+                if (centrality == null) {
+                    centrality = new Centrality(getIndex());
+                }
+                result = centrality;
+            }
+        }
+        return result;
+    }
+
+    // 从原材料出发的支配树，每个快照只构建一次
+    public DominatorTree getDominatorTree() {
+        DominatorTree result = dominatorTree;
+        if (result == null) {
+            synchronized (this) {
+                if (dominatorTree == null) {
+                    dominatorTree = new DominatorTree(getIndex(), getMaterialResolver());
+                }
+                result = dominatorTree;
+            }
+        }
+        return result;
+    }
+
+    // 下游依赖数量的近似估计，每个快照只计算一次
+    public ReachEstimator getReachEstimator() {
+        ReachEstimator result = reachEstimator;
+        if (result == null) {
+            synchronized (this) {
+                if (reachEstimator == null) {
+                    reachEstimator = new ReachEstimator(getIndex());
+                }
+                result = reachEstimator;
+            }
+        }
+        return result;
+    }
+
+    // 多层聚类，每个快照只构建一次
+    public ClusterHierarchy getClusterHierarchy() {
+        ClusterHierarchy result = clusterHierarchy;
+        if (result == null) {
+            synchronized (this) {
+                if (clusterHierarchy == null) {
+                    clusterHierarchy = new ClusterHierarchy(this);
+                }
+                result = clusterHierarchy;
+            }
+        }
+        return result;
+    }
+
+    // 产线速率规划器，每个快照只构建一次（内部按目标缓存单位解）
+    public ProductionPlanner getProductionPlanner() {
+        ProductionPlanner result = productionPlanner;
+        if (result == null) {
+            synchronized (this) {
+                if (productionPlanner == null) {
+                    productionPlanner = new ProductionPlanner(getIndex(), getMaterialResolver());
+                }
+                result = productionPlanner;
+            }
+        }
+        return result;
+    }
+
+    // 按类型分组、按权重排序的边索引，每个快照只构建一次
+    public EdgeWeightIndex getEdgeWeightIndex() {
+        EdgeWeightIndex result = edgeWeightIndex;
+        if (result == null) {
+            synchronized (this) {
+                if (edgeWeightIndex == null) {
+                    edgeWeightIndex = new EdgeWeightIndex(getIndex());
+                }
+                result = edgeWeightIndex;
+            }
+        }
+        return result;
+    }
+
+    // 配方类型/命名空间位掩码及筛选视图，每个快照只构建一次
+    public NodeMasks getNodeMasks() {
+        NodeMasks result = nodeMasks;
+        if (result == null) {
+            synchronized (this) {
+                if (nodeMasks == null) {
+                    nodeMasks = new NodeMasks(this);
+                }
+                result = nodeMasks;
+            }
+        }
+        return result;
+    }
+
+    // 本图对象专用的查询结果缓存（GraphQueries 使用），视图和子图各有自己的缓存
+    public QueryCache getQueryCache() {
+        QueryCache result = queryCache;
+        if (result == null) {
+            synchronized (this) {
+                if (queryCache == null) {
+                    queryCache = new QueryCache();
+                }
+                result = queryCache;
+            }
+        }
+        return result;
+    }
+
+    // 内存中的图已经包含所有配方，下面三个方法直接返回自身
+    @Override
+    public RecipeGraph loadUpstream(net.minecraft.item.Item item) {
+        return this;
+    }
+
+    @Override
+    public RecipeGraph loadAround(net.minecraft.item.Item item, int hops) {
+        return this;
+    }
+
+    @Override
+    public RecipeGraph loadAround(Identifier recipeId, int hops) {
+        return this;
+    }
+
+    // 只保留给定类型和命名空间的节点的视图，掩码见 NodeMasks
+    public RecipeGraph filter(long typeMask, long namespaceMask) {
+        return getNodeMasks().filter(typeMask, namespaceMask);
+    }
+
+    // 从源物品到目标物品代价最低的配方链，不可达时返回null
+    public PathFinder.CraftingPath findCheapestPath(net.minecraft.item.Item from, net.minecraft.item.Item to) {
+        return getPathFinder().findCheapestPath(from, to);
+    }
+
+    public PathFinder.CraftingPath findCheapestPath(net.minecraft.item.Item from, net.minecraft.item.Item to,
+                                                    PathFinder.EdgeCost cost) {
+        return getPathFinder().findCheapestPath(from, to, cost);
+    }
+
+    // 按代价从低到高的最多 k 条备选配方链，在默认时间预算内返回
+    public PathFinder.RouteList findAlternativeRoutes(net.minecraft.item.Item from, net.minecraft.item.Item to, int k) {
+        return getPathFinder().findAlternativeRoutes(from, to, k);
+    }
+
     public long getBuildTimestamp() {
         return buildTimestamp;
     }
 
+    // 快照版本号，每次重新收集配方后递增（0 表示尚未发布的临时图）
+    public long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+
     public int getNodeCount() {
         return nodeCount;
     }
@@ -91,7 +420,7 @@ public class RecipeGraph {
         Set<Identifier> visited = new HashSet<>();
         Set<Identifier> recursionStack = new HashSet<>();
 
-        for (Identifier nodeId : nodes.keySet()) {
+        for (Identifier nodeId : getNodes().keySet()) {
             if (hasCycleDFS(nodeId, visited, recursionStack)) {
                 return true;
             }
@@ -124,8 +453,9 @@ public class RecipeGraph {
     @Override
     public String toString() {
         return "RecipeGraph{" +
-                "nodes=" + nodeCount +
-                ", edges=" + edgeCount +
+                "nodes=" + getNodeCount() +
+                ", edges=" + getEdgeCount() +
+                ", version=" + snapshotVersion +
                 ", builtAt=" + new java.util.Date(buildTimestamp) +
                 '}';
     }
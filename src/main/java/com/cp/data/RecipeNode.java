@@ -2,6 +2,7 @@ package com.cp.data;
 
 import net.minecraft.item.Item;
 import net.minecraft.recipe.Recipe;
+import net.minecraft.registry.Registries;
 import net.minecraft.util.Identifier;
 import java.util.*;
 
@@ -12,16 +13,53 @@ public class RecipeNode {
     private final Item outputItem;
     private final int outputCount;
 
+    // 输入物品的原始ID（升序）及每次合成消耗的数量，两个数组一一对应
+    private final int[] inputItemIds;
+    private final int[] inputCounts;
+
+    // 内容完全相同、被合并到本节点的其他配方ID（按ID排序，不含本节点的ID）
+    private final List<Identifier> aliasIds;
+
     // 元数据，用于布局和显示
     private double x, y;
     private boolean visited;
 
     public RecipeNode(Identifier recipeId, Recipe<?> recipe, Set<Item> inputItems, Item outputItem, int outputCount) {
+        this(recipeId, recipe, outputItem, outputCount, sortedRawIds(inputItems), null);
+    }
+
+    /**
+     * @param inputItemIds 输入物品的原始ID，必须升序且不重复
+     * @param inputCounts 每种输入物品的数量，为null时每种按1个计算
+     */
+    public RecipeNode(Identifier recipeId, Recipe<?> recipe, Item outputItem, int outputCount,
+                      int[] inputItemIds, int[] inputCounts) {
+        this(recipeId, recipe, outputItem, outputCount, inputItemIds, inputCounts, List.of());
+    }
+
+    /**
+     * @param aliasIds 合并到本节点的重复配方ID
+     */
+    public RecipeNode(Identifier recipeId, Recipe<?> recipe, Item outputItem, int outputCount,
+                      int[] inputItemIds, int[] inputCounts, List<Identifier> aliasIds) {
         this.recipeId = recipeId;
         this.recipe = recipe;
-        this.inputItems = Set.copyOf(inputItems);
         this.outputItem = outputItem;
         this.outputCount = outputCount;
+        this.inputItemIds = inputItemIds;
+        if (inputCounts == null) {
+            inputCounts = new int[inputItemIds.length];
+            Arrays.fill(inputCounts, 1);
+        }
+        this.inputCounts = inputCounts;
+        this.aliasIds = List.copyOf(aliasIds);
+
+        Set<Item> items = new HashSet<>();
+        for (int rawId : inputItemIds) {
+            items.add(Registries.ITEM.get(rawId));
+        }
+        this.inputItems = Set.copyOf(items);
+
         this.x = 0.0;
         this.y = 0.0;
         this.visited = false;
@@ -35,10 +73,45 @@ public class RecipeNode {
         return recipe;
     }
 
+    // 被合并的重复配方ID，没有重复时为空
+    public List<Identifier> getAliasIds() {
+        return aliasIds;
+    }
+
+    // 本节点代表的配方数量（自身加上被合并的重复配方）
+    public int getMultiplicity() {
+        return 1 + aliasIds.size();
+    }
+
     public Set<Item> getInputItems() {
         return inputItems;
     }
 
+    // 输入物品原始ID（升序），直接返回内部数组，调用方不得修改
+    public int[] getInputItemIds() {
+        return inputItemIds;
+    }
+
+    // 与 getInputItemIds 一一对应的输入数量，直接返回内部数组，调用方不得修改
+    public int[] getInputCounts() {
+        return inputCounts;
+    }
+
+    // 每次合成消耗该物品的数量，不是输入时返回0
+    public int getInputCount(Item item) {
+        int slot = Arrays.binarySearch(inputItemIds, Registries.ITEM.getRawId(item));
+        return slot >= 0 ? inputCounts[slot] : 0;
+    }
+
+    // 每次合成消耗的输入物品总数
+    public int getTotalInputCount() {
+        int total = 0;
+        for (int count : inputCounts) {
+            total += count;
+        }
+        return total;
+    }
+
     public Item getOutputItem() {
         return outputItem;
     }
@@ -69,6 +142,16 @@ public class RecipeNode {
         return visited;
     }
 
+    private static int[] sortedRawIds(Set<Item> items) {
+        int[] ids = new int[items.size()];
+        int i = 0;
+        for (Item item : items) {
+            ids[i++] = Registries.ITEM.getRawId(item);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
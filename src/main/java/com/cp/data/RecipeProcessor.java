@@ -4,6 +4,7 @@ package com.cp.data;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.recipe.*;
+import net.minecraft.registry.Registries;
 import net.minecraft.registry.RegistryWrapper;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.Identifier;
@@ -14,6 +15,9 @@ import java.util.*;
 public class RecipeProcessor {
     private final RecipeDataManager dataManager;
 
+    // 上一次处理时被合并掉的重复配方数
+    private int duplicateCount = 0;
+
     public RecipeProcessor(RecipeDataManager dataManager) {
         this.dataManager = dataManager;
     }
@@ -21,46 +25,84 @@ public class RecipeProcessor {
     public void processAllRecipes(MinecraftServer server) {
         RecipeManager recipeManager = server.getRecipeManager();
         RegistryWrapper.WrapperLookup registries = server.getRegistryManager();
+        duplicateCount = 0;
 
         List<RecipeEntry<CraftingRecipe>> recipes =
                 recipeManager.listAllOfType(RecipeType.CRAFTING);
 
         if (recipes == null || recipes.isEmpty()) return;
 
+        // 按内容分组，内容相同的配方合并为一个规范节点
+        Map<CanonicalKey, List<RecipeNode>> groups = new LinkedHashMap<>();
         for (RecipeEntry<CraftingRecipe> recipeEntry : recipes) {
-            processRecipe(recipeEntry, registries);
+            RecipeNode node = processRecipe(recipeEntry, registries);
+            if (node != null) {
+                groups.computeIfAbsent(CanonicalKey.of(node), k -> new ArrayList<>(1)).add(node);
+            }
+        }
+
+        for (List<RecipeNode> group : groups.values()) {
+            RecipeNode node = canonicalize(group);
+            dataManager.addNode(node);
+            updateItemMappings(node.getRecipeId(), node.getInputItems(), node.getOutputItem());
         }
     }
 
-    private void processRecipe(RecipeEntry<CraftingRecipe> recipeEntry,
-                               RegistryWrapper.WrapperLookup registries) {
+    private RecipeNode processRecipe(RecipeEntry<CraftingRecipe> recipeEntry,
+                                     RegistryWrapper.WrapperLookup registries) {
         try {
             Identifier recipeId = recipeEntry.id();
             CraftingRecipe recipe = recipeEntry.value();
 
-            if (recipe == null) return;
+            if (recipe == null) return null;
 
             ItemStack outputStack = recipe.getResult(registries);
-            if (outputStack.isEmpty()) return;
+            if (outputStack.isEmpty()) return null;
 
             Item outputItem = outputStack.getItem();
             int outputCount = outputStack.getCount();
-            Set<Item> inputItems = extractInputItems(recipe);
-
-            RecipeNode node = new RecipeNode(recipeId, recipe, inputItems, outputItem, outputCount);
-            dataManager.addNode(node);
+            int[][] inputs = extractInputItems(recipe);
 
-            updateItemMappings(recipeId, inputItems, outputItem);
+            return new RecipeNode(recipeId, recipe, outputItem, outputCount, inputs[0], inputs[1]);
 
         } catch (Exception e) {
             System.err.println("处理配方时出错: " + e.getMessage());
             e.printStackTrace();
+            return null;
         }
     }
 
-    private Set<Item> extractInputItems(CraftingRecipe recipe) {
-        Set<Item> inputItems = new HashSet<>();
+    /**
+     * 把内容相同的一组配方合并为一个节点：ID最小的作为规范节点，其余记为别名
+     * 这样兼容性模组重复注册的配方不会各自产生一整组 SHARED_INPUT/ALTERNATIVE_OUTPUT 边
+     */
+    private RecipeNode canonicalize(List<RecipeNode> group) {
+        if (group.size() == 1) {
+            return group.get(0);
+        }
+        group.sort(Comparator.comparing(RecipeNode::getRecipeId));
+        RecipeNode canonical = group.get(0);
+        List<Identifier> aliases = new ArrayList<>(group.size() - 1);
+        for (int i = 1; i < group.size(); i++) {
+            aliases.add(group.get(i).getRecipeId());
+        }
+        duplicateCount += aliases.size();
+        return new RecipeNode(canonical.getRecipeId(), canonical.getRecipe(), canonical.getOutputItem(),
+                canonical.getOutputCount(), canonical.getInputItemIds(), canonical.getInputCounts(), aliases);
+    }
+
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * 提取输入物品及其数量
+     * @return [0] 升序的物品原始ID，[1] 对应的数量
+     */
+    private int[][] extractInputItems(CraftingRecipe recipe) {
         DefaultedList<Ingredient> ingredients = recipe.getIngredients();
+        int[] rawIds = new int[ingredients.size()];
+        int size = 0;
 
         for (Ingredient ingredient : ingredients) {
             if (ingredient.isEmpty()) continue;
@@ -69,11 +111,71 @@ public class RecipeProcessor {
             if (matchingStacks.length > 0) {
                 Item item = matchingStacks[0].getItem();
                 if (item != null) {
-                    inputItems.add(item);
+                    rawIds[size++] = Registries.ITEM.getRawId(item);
                 }
             }
         }
-        return inputItems;
+
+        // 排序后合并相同物品，得到每种物品的数量
+        Arrays.sort(rawIds, 0, size);
+        int[] itemIds = new int[size];
+        int[] counts = new int[size];
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct > 0 && itemIds[distinct - 1] == rawIds[i]) {
+                counts[distinct - 1]++;
+            } else {
+                itemIds[distinct] = rawIds[i];
+                counts[distinct] = 1;
+                distinct++;
+            }
+        }
+        return new int[][]{Arrays.copyOf(itemIds, distinct), Arrays.copyOf(counts, distinct)};
+    }
+
+    /**
+     * 配方内容的规范键：输出物品、数量、配方类型以及排序后的输入（物品和数量）
+     */
+    private static final class CanonicalKey {
+        private final int outputItem;
+        private final int outputCount;
+        private final RecipeType<?> type;
+        private final int[] inputItemIds;
+        private final int[] inputCounts;
+        private final int hash;
+
+        private CanonicalKey(int outputItem, int outputCount, RecipeType<?> type, int[] inputItemIds, int[] inputCounts) {
+            this.outputItem = outputItem;
+            this.outputCount = outputCount;
+            this.type = type;
+            this.inputItemIds = inputItemIds;
+            this.inputCounts = inputCounts;
+            this.hash = 31 * (31 * (31 * (31 * outputItem + outputCount) + Objects.hashCode(type))
+                    + Arrays.hashCode(inputItemIds)) + Arrays.hashCode(inputCounts);
+        }
+
+        static CanonicalKey of(RecipeNode node) {
+            return new CanonicalKey(Registries.ITEM.getRawId(node.getOutputItem()), node.getOutputCount(),
+                    node.getRecipe() != null ? node.getRecipe().getType() : null,
+                    node.getInputItemIds(), node.getInputCounts());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CanonicalKey that)) return false;
+            return hash == that.hash &&
+                    outputItem == that.outputItem &&
+                    outputCount == that.outputCount &&
+                    type == that.type &&
+                    Arrays.equals(inputItemIds, that.inputItemIds) &&
+                    Arrays.equals(inputCounts, that.inputCounts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 
     private void updateItemMappings(Identifier recipeId, Set<Item> inputItems, Item outputItem) {
@@ -0,0 +1,315 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+/**
+ * 物品与配方的搜索索引，每个快照构建一次
+ * 被索引的文本包括物品ID、本地化名称和配方ID（取自快照的字符串表），以及被合并的重复配方ID
+ *
+ * 前缀匹配：把每段文本在分隔符（: _ / 空格等）之后的每个后缀放进排序数组，
+ * 二分查找定位，因此 "planks" 也能匹配 "minecraft:oak_planks"
+ * 模糊匹配：三元组倒排表，按 Dice 系数打分，容忍少量错字
+ */
+public class SearchIndex {
+    private static final int GRAM = 3;
+    private static final double MIN_FUZZY_SCORE = 0.35;
+    private static final int MAX_QUERY_LENGTH = 64;
+    private static final String SEPARATORS = ":_/ -.";
+
+    // 文档：一段可搜索的文本及其指向的物品/配方
+    private final String[] docText;
+    private final int[] docItem;
+    private final int[] docNode;
+
+    // 前缀匹配用的排序后缀数组，termLeading 标记该后缀是否就是整段文本
+    private final String[] terms;
+    private final int[] termDoc;
+    private final boolean[] termLeading;
+
+    // 三元组倒排表（键升序），以及每个文档的不同三元组个数
+    private final long[] gramKeys;
+    private final int[] gramOffsets;
+    private final int[] gramDocs;
+    private final int[] docGramCount;
+
+    private final GraphIndex index;
+
+    // 查询缓冲区
+    private final int[] hitCount;
+    private final int[] docStamp;
+    private final int[] touched;
+    private final long[] queryGrams = new long[MAX_QUERY_LENGTH + GRAM];
+    private int stampVersion = 0;
+
+    SearchIndex(GraphIndex index, StringTable strings) {
+        this.index = index;
+
+        // 1. 收集文档
+        List<String> texts = new ArrayList<>();
+        List<int[]> targets = new ArrayList<>();
+        for (int node = 0; node < index.getNodeCount(); node++) {
+            texts.add(strings.getRecipeId(node));
+            targets.add(new int[]{index.getOutputItem(node), node});
+            // 被合并的重复配方ID也能搜到规范节点
+            for (Identifier alias : index.getNode(node).getAliasIds()) {
+                texts.add(alias.toString());
+                targets.add(new int[]{index.getOutputItem(node), node});
+            }
+        }
+        for (int rawId = 0; rawId < index.getItemCount(); rawId++) {
+            int idHandle = strings.getItemIdHandle(rawId);
+            if (idHandle < 0) continue;
+            int focus = focusNode(rawId);
+            texts.add(strings.get(idHandle));
+            targets.add(new int[]{rawId, focus});
+            int nameHandle = strings.getItemNameHandle(rawId);
+            if (nameHandle != idHandle) {
+                texts.add(strings.get(nameHandle));
+                targets.add(new int[]{rawId, focus});
+            }
+        }
+
+        int docCount = texts.size();
+        docText = texts.toArray(new String[0]);
+        docItem = new int[docCount];
+        docNode = new int[docCount];
+        for (int doc = 0; doc < docCount; doc++) {
+            docItem[doc] = targets.get(doc)[0];
+            docNode[doc] = targets.get(doc)[1];
+        }
+
+        // 2. 分隔符之后的后缀
+        List<String> termList = new ArrayList<>();
+        List<Integer> termDocList = new ArrayList<>();
+        List<Boolean> termLeadingList = new ArrayList<>();
+        for (int doc = 0; doc < docCount; doc++) {
+            String lower = normalize(docText[doc]);
+            for (int i = 0; i < lower.length(); i++) {
+                if (i == 0 || SEPARATORS.indexOf(lower.charAt(i - 1)) >= 0) {
+                    termList.add(lower.substring(i));
+                    termDocList.add(doc);
+                    termLeadingList.add(i == 0);
+                }
+            }
+        }
+        Integer[] order = new Integer[termList.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparing(termList::get));
+        terms = new String[order.length];
+        termDoc = new int[order.length];
+        termLeading = new boolean[order.length];
+        for (int i = 0; i < order.length; i++) {
+            terms[i] = termList.get(order[i]);
+            termDoc[i] = termDocList.get(order[i]);
+            termLeading[i] = termLeadingList.get(order[i]);
+        }
+
+        // 3. 三元组倒排表
+        docGramCount = new int[docCount];
+        Map<Long, List<Integer>> postings = new HashMap<>();
+        long[] buffer = new long[16];
+        for (int doc = 0; doc < docCount; doc++) {
+            String lower = normalize(docText[doc]);
+            if (buffer.length < lower.length() + GRAM) {
+                buffer = new long[lower.length() + GRAM];
+            }
+            int grams = grams(lower, buffer);
+            docGramCount[doc] = grams;
+            for (int g = 0; g < grams; g++) {
+                postings.computeIfAbsent(buffer[g], k -> new ArrayList<>()).add(doc);
+            }
+        }
+        gramKeys = new long[postings.size()];
+        int k = 0;
+        for (long key : postings.keySet()) gramKeys[k++] = key;
+        Arrays.sort(gramKeys);
+        gramOffsets = new int[gramKeys.length + 1];
+        for (int g = 0; g < gramKeys.length; g++) {
+            gramOffsets[g + 1] = gramOffsets[g] + postings.get(gramKeys[g]).size();
+        }
+        gramDocs = new int[gramOffsets[gramKeys.length]];
+        for (int g = 0; g < gramKeys.length; g++) {
+            int cursor = gramOffsets[g];
+            for (int doc : postings.get(gramKeys[g])) gramDocs[cursor++] = doc;
+        }
+
+        hitCount = new int[docCount];
+        docStamp = new int[docCount];
+        touched = new int[docCount];
+    }
+
+    // 物品搜索结果定位到的节点：优先生产它的配方，其次使用它的配方
+    private int focusNode(int rawId) {
+        if (index.getProducerCount(rawId) > 0) {
+            return index.getProducer(index.getProducerStart(rawId));
+        }
+        if (index.getConsumerCount(rawId) > 0) {
+            return index.getConsumer(index.getConsumerStart(rawId));
+        }
+        return -1;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    // 去重后的三元组（首尾用 \0 填充），返回个数
+    private static int grams(String text, long[] out) {
+        int length = text.length() + 2;
+        int count = 0;
+        for (int i = 0; i + GRAM <= length; i++) {
+            out[count++] = ((long) charAt(text, i - 1) << 32) | ((long) charAt(text, i) << 16) | charAt(text, i + 1);
+        }
+        Arrays.sort(out, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || out[unique - 1] != out[i]) {
+                out[unique++] = out[i];
+            }
+        }
+        return unique;
+    }
+
+    private static char charAt(String text, int i) {
+        return i < 0 || i >= text.length() ? '\0' : text.charAt(i);
+    }
+
+    /**
+     * 搜索物品和配方：先返回前缀匹配（完整开头匹配优先，其次较短的文本），
+     * 不足 limit 个时再用三元组相似度补充模糊匹配
+     */
+    public synchronized List<SearchResult> search(String query, int limit) {
+        String lower = normalize(query.strip());
+        if (lower.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (lower.length() > MAX_QUERY_LENGTH) {
+            lower = lower.substring(0, MAX_QUERY_LENGTH);
+        }
+        if (++stampVersion == Integer.MAX_VALUE) {
+            Arrays.fill(docStamp, 0);
+            stampVersion = 1;
+        }
+
+        List<SearchResult> results = new ArrayList<>(limit);
+        prefixSearch(lower, limit, results);
+        if (results.size() < limit) {
+            fuzzySearch(lower, limit, results);
+        }
+        return results;
+    }
+
+    private void prefixSearch(String prefix, int limit, List<SearchResult> results) {
+        int lo = 0, hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].compareTo(prefix) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+
+        int end = lo;
+        while (end < terms.length && terms[end].startsWith(prefix)) end++;
+
+        // 所有命中都参与排名（开头匹配优先，其次较短的文本），用大小为 limit 的堆只保留最好的几个。
+        // 排名键：最高位区分是否开头匹配，中间是文本长度，低 32 位是文档号（同分时保证顺序稳定）；
+        // 先扫开头匹配的后缀，同一文档也可能以非开头的后缀命中，第二遍只接收还没出现过的文档
+        PriorityQueue<Long> best = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+        for (int pass = 0; pass < 2; pass++) {
+            // 开头匹配已经够数时，非开头匹配不可能进入前 limit 个
+            if (pass == 1 && best.size() >= limit) break;
+            boolean leading = pass == 0;
+            for (int i = lo; i < end; i++) {
+                if (termLeading[i] != leading) continue;
+                int doc = termDoc[i];
+                if (docStamp[doc] == stampVersion) continue;
+                docStamp[doc] = stampVersion;
+                best.add(((leading ? 0L : 1L) << 62) | ((long) docText[doc].length() << 32) | doc);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        SearchResult[] ranked = new SearchResult[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            long key = best.poll();
+            ranked[i] = toResult((int) key, (key >>> 62) == 0 ? 1.0 : 0.9);
+        }
+        results.addAll(Arrays.asList(ranked));
+    }
+
+    private void fuzzySearch(String query, int limit, List<SearchResult> results) {
+        int queryGramCount = grams(query, queryGrams);
+        int touchedCount = 0;
+        for (int g = 0; g < queryGramCount; g++) {
+            int slot = Arrays.binarySearch(gramKeys, queryGrams[g]);
+            if (slot < 0) continue;
+            for (int p = gramOffsets[slot]; p < gramOffsets[slot + 1]; p++) {
+                int doc = gramDocs[p];
+                if (hitCount[doc]++ == 0) {
+                    touched[touchedCount++] = doc;
+                }
+            }
+        }
+
+        // 固定大小的有序候选表
+        int needed = limit - results.size();
+        int[] bestDoc = new int[needed];
+        double[] bestScore = new double[needed];
+        int bestCount = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            double score = 2.0 * hitCount[doc] / (queryGramCount + docGramCount[doc]);
+            hitCount[doc] = 0;
+            if (score < MIN_FUZZY_SCORE || docStamp[doc] == stampVersion) continue;
+            if (bestCount == needed && score <= bestScore[needed - 1]) continue;
+
+            int pos = bestCount < needed ? bestCount++ : needed - 1;
+            while (pos > 0 && bestScore[pos - 1] < score) {
+                bestDoc[pos] = bestDoc[pos - 1];
+                bestScore[pos] = bestScore[pos - 1];
+                pos--;
+            }
+            bestDoc[pos] = doc;
+            bestScore[pos] = score;
+        }
+
+        // 同一物品可能同时以ID和名称命中，只保留得分较高的一条
+        for (int i = 0; i < bestCount; i++) {
+            SearchResult result = toResult(bestDoc[i], bestScore[i] * 0.8);
+            boolean duplicate = false;
+            for (SearchResult existing : results) {
+                if (existing.node() == result.node() && existing.item() == result.item()) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                results.add(result);
+            }
+        }
+    }
+
+    private SearchResult toResult(int doc, double score) {
+        RecipeNode node = docNode[doc] >= 0 ? index.getNode(docNode[doc]) : null;
+        return new SearchResult(docText[doc], Registries.ITEM.get(docItem[doc]), node, score);
+    }
+
+    public int getDocumentCount() {
+        return docText.length;
+    }
+
+    /**
+     * 搜索结果
+     * @param text 命中的文本（物品ID、名称或配方ID）
+     * @param item 对应的物品（配方结果为其输出物品）
+     * @param node 界面上用于定位的配方节点，物品既不被生产也不被使用时为null
+     * @param score 匹配程度，前缀匹配接近 1，模糊匹配较低
+     */
+    public record SearchResult(String text, Item item, RecipeNode node, double score) {
+    }
+}
@@ -0,0 +1,567 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.io.*;
+import java.lang.ref.Cleaner;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 按配方命名空间分片的磁盘图存储
+ * 每个命名空间写成一个分片文件，跨分片的边和物品到命名空间的映射保存在一个小的全局索引里；
+ * 查询时按需加载分片，超出内存预算时淘汰最久未使用的分片
+ *
+ * 每个快照版本写入自己的子目录 v<版本>（先写临时目录再整体改名），旧快照仍可以继续按需读取自己的文件；
+ * 存储对象被回收后删除它的目录，下次写入时清理不再被任何存储引用的旧目录
+ */
+public class ShardedGraphStore {
+    private static final int SHARD_FORMAT_VERSION = 4;
+    private static final Pattern VERSION_DIRECTORY = Pattern.compile("v\\d+(\\.tmp)?");
+
+    // 仍有存储对象引用的版本目录
+    private static final Set<Path> liveDirectories = ConcurrentHashMap.newKeySet();
+    private static final Cleaner cleaner = Cleaner.create();
+
+    // 估算内存占用时使用的粗略大小（字节）
+    private static final long NODE_BYTES = 160;
+    private static final long INPUT_BYTES = 16;
+    private static final long EDGE_BYTES = 64;
+
+    private final Path directory;
+    private final long snapshotVersion;
+    private final long memoryBudget;
+    private final Function<Identifier, Recipe<?>> recipeResolver;
+
+    // 全局索引：分片列表、跨分片边、物品所在的命名空间
+    private final Set<String> namespaces;
+    private final Map<Identifier, List<RecipeEdge>> crossEdgesFrom;
+    private final Map<Identifier, List<RecipeEdge>> crossEdgesTo;
+    private final Map<Item, Set<String>> producerNamespaces;
+    private final Map<Item, Set<String>> consumerNamespaces;
+    // 被合并的重复配方ID -> 代表它的节点ID（两者可能在不同命名空间）
+    private final Map<Identifier, Identifier> aliases;
+    // 每个分片加载后的估算内存占用，组装局部子图前用来检查预算
+    private final Map<String, Long> shardBytes;
+    // 每个分片内容（节点和分片内的边）与顺序无关的摘要，比较两个存储时跳过未变化的分片
+    private final Map<String, Long> shardDigests;
+    private final int nodeCount;
+    private final int edgeCount;
+    // 写入时从完整图计算一次，之后不再需要整图
+    private final GraphStatistics statistics;
+    private final boolean cyclic;
+
+    // 已加载的分片，按访问顺序排列
+    private final LinkedHashMap<String, Shard> loadedShards = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes = 0;
+    private int shardLoads = 0;
+    private int shardEvictions = 0;
+
+    private ShardedGraphStore(Path directory, long snapshotVersion, long memoryBudget, Function<Identifier, Recipe<?>> recipeResolver,
+                              Set<String> namespaces,
+                              Map<Identifier, List<RecipeEdge>> crossEdgesFrom,
+                              Map<Identifier, List<RecipeEdge>> crossEdgesTo,
+                              Map<Item, Set<String>> producerNamespaces,
+                              Map<Item, Set<String>> consumerNamespaces,
+                              Map<Identifier, Identifier> aliases,
+                              Map<String, Long> shardBytes, Map<String, Long> shardDigests,
+                              int nodeCount, int edgeCount,
+                              GraphStatistics statistics, boolean cyclic) {
+        this.directory = directory;
+        this.snapshotVersion = snapshotVersion;
+        this.memoryBudget = memoryBudget;
+        this.recipeResolver = recipeResolver;
+        this.namespaces = Collections.unmodifiableSet(namespaces);
+        this.crossEdgesFrom = crossEdgesFrom;
+        this.crossEdgesTo = crossEdgesTo;
+        this.producerNamespaces = producerNamespaces;
+        this.consumerNamespaces = consumerNamespaces;
+        this.aliases = aliases;
+        this.shardBytes = shardBytes;
+        this.shardDigests = shardDigests;
+        this.nodeCount = nodeCount;
+        this.edgeCount = edgeCount;
+        this.statistics = statistics;
+        this.cyclic = cyclic;
+        liveDirectories.add(directory);
+        cleaner.register(this, new DirectoryCleanup(directory));
+    }
+
+    // 存储对象不可达后删除它的版本目录；不能引用存储本身
+    private record DirectoryCleanup(Path directory) implements Runnable {
+        @Override
+        public void run() {
+            liveDirectories.remove(directory);
+            deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * 把配方图按命名空间写入磁盘，并返回只保留全局索引的存储
+     * @param graph 配方关系图
+     * @param directory 分片根目录，本次快照写入其中的 v<快照版本> 子目录
+     * @param memoryBudget 已加载分片的内存预算（字节）
+     * @param recipeResolver 重新加载节点时用于找回配方对象，可以返回null
+     */
+    public static ShardedGraphStore write(RecipeGraph graph, Path directory, long memoryBudget,
+                                          Function<Identifier, Recipe<?>> recipeResolver) throws IOException {
+        Files.createDirectories(directory);
+        deleteStaleVersions(directory);
+        long snapshotVersion = graph.getSnapshotVersion();
+        Path versionDirectory = directory.resolve("v" + snapshotVersion);
+        Path temporary = directory.resolve("v" + snapshotVersion + ".tmp");
+        Files.createDirectories(temporary);
+
+        Map<String, List<RecipeNode>> nodesByNamespace = new TreeMap<>();
+        Map<Item, Set<String>> producerNamespaces = new HashMap<>();
+        Map<Item, Set<String>> consumerNamespaces = new HashMap<>();
+        Map<Identifier, Identifier> aliases = new HashMap<>();
+        for (RecipeNode node : graph.getNodes().values()) {
+            String namespace = node.getRecipeId().getNamespace();
+            for (Identifier alias : node.getAliasIds()) {
+                aliases.put(alias, node.getRecipeId());
+            }
+            nodesByNamespace.computeIfAbsent(namespace, k -> new ArrayList<>()).add(node);
+            producerNamespaces.computeIfAbsent(node.getOutputItem(), k -> new HashSet<>()).add(namespace);
+            for (Item input : node.getInputItems()) {
+                consumerNamespaces.computeIfAbsent(input, k -> new HashSet<>()).add(namespace);
+            }
+        }
+
+        Map<String, List<RecipeEdge>> edgesByNamespace = new HashMap<>();
+        Map<Identifier, List<RecipeEdge>> crossEdgesFrom = new HashMap<>();
+        Map<Identifier, List<RecipeEdge>> crossEdgesTo = new HashMap<>();
+        for (RecipeEdge edge : graph.getEdges()) {
+            String fromNamespace = edge.getFromRecipeId().getNamespace();
+            if (fromNamespace.equals(edge.getToRecipeId().getNamespace())) {
+                edgesByNamespace.computeIfAbsent(fromNamespace, k -> new ArrayList<>()).add(edge);
+            } else {
+                crossEdgesFrom.computeIfAbsent(edge.getFromRecipeId(), k -> new ArrayList<>()).add(edge);
+                crossEdgesTo.computeIfAbsent(edge.getToRecipeId(), k -> new ArrayList<>()).add(edge);
+            }
+        }
+
+        Map<String, Long> shardBytes = new HashMap<>();
+        Map<String, Long> shardDigests = new HashMap<>();
+        for (Map.Entry<String, List<RecipeNode>> entry : nodesByNamespace.entrySet()) {
+            String namespace = entry.getKey();
+            List<RecipeEdge> shardEdges = edgesByNamespace.getOrDefault(namespace, Collections.emptyList());
+            writeShard(shardPath(temporary, namespace), snapshotVersion, entry.getValue(), shardEdges);
+            long bytes = EDGE_BYTES * shardEdges.size();
+            for (RecipeNode node : entry.getValue()) {
+                bytes += NODE_BYTES + INPUT_BYTES * node.getInputItemIds().length;
+            }
+            shardBytes.put(namespace, bytes);
+            shardDigests.put(namespace, digest(entry.getValue(), shardEdges));
+        }
+
+        // 写完整个版本后再改名，读取方不会看到写了一半的目录
+        Files.move(temporary, versionDirectory, StandardCopyOption.ATOMIC_MOVE);
+
+        // 统计信息和是否有环只能在整图上计算，趁完整图还在内存里算好
+        GraphIndex index = graph.getIndex();
+        return new ShardedGraphStore(versionDirectory, snapshotVersion, memoryBudget, recipeResolver,
+                new TreeSet<>(nodesByNamespace.keySet()),
+                crossEdgesFrom, crossEdgesTo, producerNamespaces, consumerNamespaces, aliases, shardBytes, shardDigests,
+                graph.getNodeCount(), graph.getEdgeCount(),
+                new GraphStatistics(index), hasCycles(index));
+    }
+
+    // 逐项散列后求和，与节点和边的顺序无关；比较的内容与 GraphDelta 一致
+    private static long digest(List<RecipeNode> nodes, List<RecipeEdge> edges) {
+        long digest = 0;
+        for (RecipeNode node : nodes) {
+            digest += mix(Objects.hash(node.getRecipeId(), Registries.ITEM.getRawId(node.getOutputItem()),
+                    node.getOutputCount(), Arrays.hashCode(node.getInputItemIds()),
+                    Arrays.hashCode(node.getInputCounts()), node.getAliasIds()));
+        }
+        for (RecipeEdge edge : edges) {
+            digest += mix(((long) edge.hashCode() << 32) ^ Double.hashCode(edge.getWeight()));
+        }
+        return digest;
+    }
+
+    private static long mix(long h) {
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    // 存在自环或大小超过 1 的强连通分量即有环
+    private static boolean hasCycles(GraphIndex index) {
+        int nodeCount = index.getNodeCount();
+        int[] offsets = new int[nodeCount + 1];
+        int[] targets = new int[index.getEdgeCount()];
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] = offsets[node];
+            for (int slot = index.getOutStart(node); slot < index.getOutEnd(node); slot++) {
+                int to = index.getEdgeTo(index.getOutEdge(slot));
+                if (to == node) {
+                    return true;
+                }
+                targets[offsets[node + 1]++] = to;
+            }
+        }
+        StronglyConnectedComponents components = new StronglyConnectedComponents(nodeCount, offsets, targets);
+        for (int c = 0; c < components.getComponentCount(); c++) {
+            if (components.getComponentSize(c) > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Path shardPath(Path directory, String namespace) {
+        return directory.resolve(namespace + ".shard");
+    }
+
+    /**
+     * 删除根目录下不再被任何存储引用的版本目录和临时目录，以及旧格式直接放在根目录下的分片文件
+     * 版本号在每次启动后从头计数，上次运行留下的同名目录也在这里清掉
+     */
+    private static void deleteStaleVersions(Path directory) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                boolean stale = VERSION_DIRECTORY.matcher(name).matches() ? !liveDirectories.contains(entry)
+                        : name.endsWith(".shard");
+                if (stale) {
+                    deleteRecursively(entry);
+                }
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        try {
+            if (Files.isDirectory(path)) {
+                try (DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+                    for (Path child : children) {
+                        deleteRecursively(child);
+                    }
+                }
+            }
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("删除旧配方分片失败: " + path + " - " + e.getMessage());
+        }
+    }
+
+    private static void writeShard(Path path, long snapshotVersion, List<RecipeNode> nodes,
+                                   List<RecipeEdge> edges) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(SHARD_FORMAT_VERSION);
+            out.writeLong(snapshotVersion);
+
+            out.writeInt(nodes.size());
+            for (RecipeNode node : nodes) {
+                out.writeUTF(node.getRecipeId().toString());
+                out.writeUTF(Registries.ITEM.getId(node.getOutputItem()).toString());
+                out.writeInt(node.getOutputCount());
+                int[] inputs = node.getInputItemIds();
+                int[] counts = node.getInputCounts();
+                out.writeInt(inputs.length);
+                for (int k = 0; k < inputs.length; k++) {
+                    out.writeUTF(Registries.ITEM.getId(Registries.ITEM.get(inputs[k])).toString());
+                    out.writeInt(counts[k]);
+                }
+                out.writeInt(node.getAliasIds().size());
+                for (Identifier alias : node.getAliasIds()) {
+                    out.writeUTF(alias.toString());
+                }
+            }
+
+            // 分片内的边只需记录路径部分
+            out.writeInt(edges.size());
+            for (RecipeEdge edge : edges) {
+                out.writeUTF(edge.getFromRecipeId().getPath());
+                out.writeUTF(edge.getToRecipeId().getPath());
+                out.writeUTF(edge.getRelationshipType());
+                out.writeDouble(edge.getWeight());
+            }
+        }
+    }
+
+    private Shard readShard(String namespace) throws IOException {
+        Shard shard = new Shard();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(shardPath(directory, namespace))))) {
+            int formatVersion = in.readInt();
+            if (formatVersion != SHARD_FORMAT_VERSION) {
+                throw new IOException("不支持的分片格式版本: " + formatVersion);
+            }
+            long fileVersion = in.readLong();
+            if (fileVersion != snapshotVersion) {
+                throw new IOException("分片快照版本不匹配: " + fileVersion + " != " + snapshotVersion);
+            }
+
+            int nodes = in.readInt();
+            for (int i = 0; i < nodes; i++) {
+                Identifier recipeId = Identifier.of(in.readUTF());
+                Item outputItem = readItem(in);
+                int outputCount = in.readInt();
+                int inputs = in.readInt();
+                // 分片中按物品ID字符串保存，重新映射为原始ID后需要再排序
+                long[] packed = new long[inputs];
+                for (int k = 0; k < inputs; k++) {
+                    int rawId = Registries.ITEM.getRawId(readItem(in));
+                    packed[k] = ((long) rawId << 32) | in.readInt();
+                }
+                Arrays.sort(packed);
+                int[] inputIds = new int[inputs];
+                int[] inputCounts = new int[inputs];
+                for (int k = 0; k < inputs; k++) {
+                    inputIds[k] = (int) (packed[k] >>> 32);
+                    inputCounts[k] = (int) packed[k];
+                }
+                int aliasCount = in.readInt();
+                List<Identifier> aliases = new ArrayList<>(aliasCount);
+                for (int k = 0; k < aliasCount; k++) {
+                    aliases.add(Identifier.of(in.readUTF()));
+                }
+
+                Recipe<?> recipe = recipeResolver != null ? recipeResolver.apply(recipeId) : null;
+                RecipeNode node = new RecipeNode(recipeId, recipe, outputItem, outputCount, inputIds, inputCounts, aliases);
+                shard.nodes.put(recipeId, node);
+                shard.byOutput.computeIfAbsent(outputItem, k -> new ArrayList<>()).add(node);
+                for (Item input : node.getInputItems()) {
+                    shard.byInput.computeIfAbsent(input, k -> new ArrayList<>()).add(node);
+                }
+                shard.estimatedBytes += NODE_BYTES + INPUT_BYTES * inputs;
+            }
+
+            int edges = in.readInt();
+            for (int i = 0; i < edges; i++) {
+                RecipeEdge edge = new RecipeEdge(
+                        Identifier.of(namespace, in.readUTF()),
+                        Identifier.of(namespace, in.readUTF()),
+                        in.readUTF(),
+                        in.readDouble()
+                );
+                shard.edges.add(edge);
+                shard.edgesFrom.computeIfAbsent(edge.getFromRecipeId(), k -> new ArrayList<>()).add(edge);
+                shard.edgesTo.computeIfAbsent(edge.getToRecipeId(), k -> new ArrayList<>()).add(edge);
+                shard.estimatedBytes += EDGE_BYTES;
+            }
+        }
+        return shard;
+    }
+
+    // 注册表里不存在的物品不能映射成空气（会产生重复的原始ID），整个分片按损坏处理
+    private static Item readItem(DataInputStream in) throws IOException {
+        Identifier itemId = Identifier.of(in.readUTF());
+        if (!Registries.ITEM.containsId(itemId)) {
+            throw new IOException("分片引用了未注册的物品: " + itemId);
+        }
+        return Registries.ITEM.get(itemId);
+    }
+
+    /**
+     * 获取分片，未加载时从磁盘读取，并按内存预算淘汰冷分片
+     * 分片文件损坏或缺失时返回空分片
+     */
+    private synchronized Shard shard(String namespace) {
+        Shard shard = loadedShards.get(namespace);
+        if (shard != null) {
+            return shard;
+        }
+        if (!namespaces.contains(namespace)) {
+            return Shard.EMPTY;
+        }
+
+        try {
+            shard = readShard(namespace);
+        } catch (IOException e) {
+            System.err.println("加载配方分片失败: " + namespace + " - " + e.getMessage());
+            return Shard.EMPTY;
+        }
+        loadedShards.put(namespace, shard);
+        residentBytes += shard.estimatedBytes;
+        shardLoads++;
+
+        // 淘汰最久未使用的分片，刚加载的分片总是保留
+        Iterator<Map.Entry<String, Shard>> iterator = loadedShards.entrySet().iterator();
+        while (residentBytes > memoryBudget && loadedShards.size() > 1 && iterator.hasNext()) {
+            Map.Entry<String, Shard> eldest = iterator.next();
+            if (eldest.getValue() == shard) break;
+            residentBytes -= eldest.getValue().estimatedBytes;
+            iterator.remove();
+            shardEvictions++;
+        }
+        return shard;
+    }
+
+    // ---------- 与 RecipeGraph 对应的查询 ----------
+
+    public RecipeNode getNodeById(Identifier recipeId) {
+        Identifier canonical = resolveAlias(recipeId);
+        return shard(canonical.getNamespace()).nodes.get(canonical);
+    }
+
+    // 被合并的重复配方ID换成代表它的节点ID，只查全局索引，不加载分片
+    public Identifier resolveAlias(Identifier recipeId) {
+        return aliases.getOrDefault(recipeId, recipeId);
+    }
+
+    public List<RecipeEdge> getEdgesFromNode(Identifier recipeId) {
+        List<RecipeEdge> result = new ArrayList<>(
+                shard(recipeId.getNamespace()).edgesFrom.getOrDefault(recipeId, Collections.emptyList()));
+        result.addAll(crossEdgesFrom.getOrDefault(recipeId, Collections.emptyList()));
+        return result;
+    }
+
+    public List<RecipeEdge> getEdgesToNode(Identifier recipeId) {
+        List<RecipeEdge> result = new ArrayList<>(
+                shard(recipeId.getNamespace()).edgesTo.getOrDefault(recipeId, Collections.emptyList()));
+        result.addAll(crossEdgesTo.getOrDefault(recipeId, Collections.emptyList()));
+        return result;
+    }
+
+    public List<RecipeNode> getNodesByOutputItem(Item item) {
+        List<RecipeNode> result = new ArrayList<>();
+        for (String namespace : producerNamespaces.getOrDefault(item, Collections.emptySet())) {
+            result.addAll(shard(namespace).byOutput.getOrDefault(item, Collections.emptyList()));
+        }
+        return result;
+    }
+
+    public List<RecipeNode> getNodesByInputItem(Item item) {
+        List<RecipeNode> result = new ArrayList<>();
+        for (String namespace : consumerNamespaces.getOrDefault(item, Collections.emptySet())) {
+            result.addAll(shard(namespace).byInput.getOrDefault(item, Collections.emptyList()));
+        }
+        return result;
+    }
+
+    /**
+     * 把指定命名空间的分片组装成一个普通的配方图（包含它们之间的跨分片边）
+     * 适合只浏览少数几个模组的场景
+     */
+    public RecipeGraph loadGraph(Collection<String> selectedNamespaces, long snapshotVersion) {
+        Map<Identifier, RecipeNode> nodes = new HashMap<>();
+        List<RecipeEdge> edges = new ArrayList<>();
+        Set<String> selected = new HashSet<>(selectedNamespaces);
+
+        for (String namespace : selected) {
+            Shard shard = shard(namespace);
+            nodes.putAll(shard.nodes);
+            edges.addAll(shard.edges);
+        }
+        for (List<RecipeEdge> crossEdges : crossEdgesFrom.values()) {
+            for (RecipeEdge edge : crossEdges) {
+                if (selected.contains(edge.getFromRecipeId().getNamespace()) &&
+                        selected.contains(edge.getToRecipeId().getNamespace())) {
+                    edges.add(edge);
+                }
+            }
+        }
+        return new RecipeGraph(nodes, edges, snapshotVersion);
+    }
+
+    // ---------- 按分片遍历 ----------
+
+    // 一个命名空间的全部节点，只加载这一个分片
+    public Collection<RecipeNode> getShardNodes(String namespace) {
+        return Collections.unmodifiableCollection(shard(namespace).nodes.values());
+    }
+
+    // 一个命名空间内部的边（不含跨分片边）
+    public List<RecipeEdge> getShardEdges(String namespace) {
+        return Collections.unmodifiableList(shard(namespace).edges);
+    }
+
+    // 所有跨分片边，只来自全局索引，不加载分片
+    public Iterator<RecipeEdge> crossEdgeIterator() {
+        return crossEdgesFrom.values().stream().flatMap(List::stream).iterator();
+    }
+
+    // 这些分片全部加载后的估算内存占用（字节），不读取分片
+    public long estimateBytes(Collection<String> selectedNamespaces) {
+        long bytes = 0;
+        for (String namespace : selectedNamespaces) {
+            bytes += shardBytes.getOrDefault(namespace, 0L);
+        }
+        return bytes;
+    }
+
+    // 分片的内容摘要，没有这个命名空间时返回null
+    public Long getShardDigest(String namespace) {
+        return shardDigests.get(namespace);
+    }
+
+    // 生产该物品的配方所在的命名空间
+    public Set<String> getProducerNamespaces(Item item) {
+        return Collections.unmodifiableSet(producerNamespaces.getOrDefault(item, Collections.emptySet()));
+    }
+
+    public Set<String> getNamespaces() {
+        return namespaces;
+    }
+
+    public long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+
+    // 本快照的版本目录
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public GraphStatistics getStatistics() {
+        return statistics;
+    }
+
+    public boolean hasCycles() {
+        return cyclic;
+    }
+
+    public synchronized Set<String> getLoadedNamespaces() {
+        return new LinkedHashSet<>(loadedShards.keySet());
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public synchronized int getShardLoads() {
+        return shardLoads;
+    }
+
+    public synchronized int getShardEvictions() {
+        return shardEvictions;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    // 一个已加载的分片
+    private static class Shard {
+        static final Shard EMPTY = new Shard();
+
+        final Map<Identifier, RecipeNode> nodes = new HashMap<>();
+        final List<RecipeEdge> edges = new ArrayList<>();
+        final Map<Identifier, List<RecipeEdge>> edgesFrom = new HashMap<>();
+        final Map<Identifier, List<RecipeEdge>> edgesTo = new HashMap<>();
+        final Map<Item, List<RecipeNode>> byOutput = new HashMap<>();
+        final Map<Item, List<RecipeNode>> byInput = new HashMap<>();
+        long estimatedBytes = 0;
+    }
+}
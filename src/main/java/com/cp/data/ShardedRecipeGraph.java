@@ -0,0 +1,316 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.util.Identifier;
+
+import java.util.*;
+
+/**
+ * 由 ShardedGraphStore 支撑的配方图快照
+ * 按ID、物品和边的查询只加载涉及的分片；getNodes()/getEdges() 返回逐个分片遍历的视图，
+ * 不会一次把所有分片留在内存里。统计信息和是否有环在写入分片时计算。
+ *
+ * 它不是 RecipeGraph：依赖 GraphIndex 的分析（约简、中心性、路径、分解等）没有整图可用，
+ * 需要先用 loadUpstream/loadAround 组装只包含相关命名空间的局部子图，再在子图上计算。
+ * 组装好的子图按命名空间集合缓存，总占用不超过分片存储的内存预算
+ */
+public class ShardedRecipeGraph implements GraphSnapshot {
+    private final ShardedGraphStore store;
+    private final long snapshotVersion;
+    private final long buildTimestamp;
+    private final QueryCache queryCache = new QueryCache();
+    private final Map<Identifier, RecipeNode> nodeView = new NodeView();
+    private final Collection<RecipeEdge> edgeView = new EdgeView();
+
+    // 已组装的局部子图，按访问顺序淘汰
+    private final LinkedHashMap<Set<String>, LoadedGraph> loadedGraphs = new LinkedHashMap<>(16, 0.75f, true);
+    private long loadedBytes = 0;
+
+    private record LoadedGraph(RecipeGraph graph, long bytes) {}
+
+    public ShardedRecipeGraph(ShardedGraphStore store, long snapshotVersion) {
+        this.store = store;
+        this.snapshotVersion = snapshotVersion;
+        this.buildTimestamp = System.currentTimeMillis();
+    }
+
+    public ShardedGraphStore getStore() {
+        return store;
+    }
+
+    @Override
+    public RecipeGraph loadUpstream(Item item) {
+        Set<String> namespaces = new TreeSet<>();
+        Set<Item> visited = new HashSet<>();
+        ArrayDeque<Item> queue = new ArrayDeque<>();
+        visited.add(item);
+        queue.add(item);
+        while (!queue.isEmpty()) {
+            Item current = queue.poll();
+            namespaces.addAll(store.getProducerNamespaces(current));
+            for (RecipeNode producer : store.getNodesByOutputItem(current)) {
+                for (Item input : producer.getInputItems()) {
+                    if (visited.add(input)) {
+                        queue.add(input);
+                    }
+                }
+            }
+        }
+        return load(namespaces);
+    }
+
+    @Override
+    public RecipeGraph loadAround(Item item, int hops) {
+        Set<Identifier> seeds = new LinkedHashSet<>();
+        for (RecipeNode node : store.getNodesByOutputItem(item)) {
+            seeds.add(node.getRecipeId());
+        }
+        for (RecipeNode node : store.getNodesByInputItem(item)) {
+            seeds.add(node.getRecipeId());
+        }
+        return loadAround(seeds, hops);
+    }
+
+    @Override
+    public RecipeGraph loadAround(Identifier recipeId, int hops) {
+        RecipeNode node = store.getNodeById(recipeId);
+        if (node == null) {
+            return load(Collections.emptySet());
+        }
+        return loadAround(Set.of(node.getRecipeId()), hops);
+    }
+
+    private RecipeGraph loadAround(Set<Identifier> seeds, int hops) {
+        Set<Identifier> visited = new HashSet<>(seeds);
+        List<Identifier> frontier = new ArrayList<>(seeds);
+        for (int depth = 0; depth < hops && !frontier.isEmpty(); depth++) {
+            List<Identifier> next = new ArrayList<>();
+            for (Identifier id : frontier) {
+                for (RecipeEdge edge : store.getEdgesFromNode(id)) {
+                    if (visited.add(edge.getToRecipeId())) next.add(edge.getToRecipeId());
+                }
+                for (RecipeEdge edge : store.getEdgesToNode(id)) {
+                    if (visited.add(edge.getFromRecipeId())) next.add(edge.getFromRecipeId());
+                }
+            }
+            frontier = next;
+        }
+        Set<String> namespaces = new TreeSet<>();
+        for (Identifier id : visited) {
+            namespaces.add(id.getNamespace());
+        }
+        return load(namespaces);
+    }
+
+    /**
+     * 取得由这些命名空间组成的子图，已组装过的直接复用
+     * 超出内存预算的多命名空间子图拒绝组装；单个命名空间总是允许（与分片存储总保留最新分片一致）
+     */
+    private synchronized RecipeGraph load(Set<String> namespaces) {
+        Set<String> key = Set.copyOf(namespaces);
+        LoadedGraph loaded = loadedGraphs.get(key);
+        if (loaded != null) {
+            return loaded.graph();
+        }
+
+        long bytes = store.estimateBytes(key);
+        if (key.size() > 1 && bytes > store.getMemoryBudget()) {
+            throw new IllegalStateException("子图涉及 " + key.size() + " 个命名空间，估算 "
+                    + bytes / 1024 + "KB，超出内存预算 " + store.getMemoryBudget() / 1024 + "KB");
+        }
+
+        RecipeGraph graph = store.loadGraph(key, snapshotVersion);
+        loadedGraphs.put(key, new LoadedGraph(graph, bytes));
+        loadedBytes += bytes;
+        Iterator<LoadedGraph> eldest = loadedGraphs.values().iterator();
+        while (loadedBytes > store.getMemoryBudget() && loadedGraphs.size() > 1) {
+            loadedBytes -= eldest.next().bytes();
+            eldest.remove();
+        }
+        return graph;
+    }
+
+    @Override
+    public Map<Identifier, RecipeNode> getNodes() {
+        return nodeView;
+    }
+
+    @Override
+    public Collection<RecipeEdge> getEdges() {
+        return edgeView;
+    }
+
+    @Override
+    public GraphStatistics getStatistics() {
+        return store.getStatistics();
+    }
+
+    // 不缓存任何字符串，按需格式化
+    @Override
+    public StringTable getStringTable() {
+        return StringTable.UNCACHED;
+    }
+
+    @Override
+    public boolean hasCycles() {
+        return store.hasCycles();
+    }
+
+    @Override
+    public RecipeNode getNodeById(Identifier recipeId) {
+        return store.getNodeById(recipeId);
+    }
+
+    @Override
+    public Identifier resolveAlias(Identifier recipeId) {
+        return store.resolveAlias(recipeId);
+    }
+
+    @Override
+    public List<RecipeEdge> getEdgesFromNode(Identifier recipeId) {
+        return store.getEdgesFromNode(recipeId);
+    }
+
+    @Override
+    public List<RecipeEdge> getEdgesToNode(Identifier recipeId) {
+        return store.getEdgesToNode(recipeId);
+    }
+
+    @Override
+    public List<RecipeNode> getNodesByInputItem(Item item) {
+        return store.getNodesByInputItem(item);
+    }
+
+    @Override
+    public List<RecipeNode> getNodesByOutputItem(Item item) {
+        return store.getNodesByOutputItem(item);
+    }
+
+    @Override
+    public int getNodeCount() {
+        return store.getNodeCount();
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return store.getEdgeCount();
+    }
+
+    @Override
+    public long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+
+    @Override
+    public long getBuildTimestamp() {
+        return buildTimestamp;
+    }
+
+    @Override
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedRecipeGraph{" +
+                "version=" + snapshotVersion +
+                ", nodes=" + store.getNodeCount() +
+                ", edges=" + store.getEdgeCount() +
+                ", namespaces=" + store.getNamespaces().size() +
+                '}';
+    }
+
+    // 按命名空间顺序逐个分片迭代；查找只加载键所在的分片
+    private final class NodeView extends AbstractMap<Identifier, RecipeNode> {
+        @Override
+        public RecipeNode get(Object key) {
+            return key instanceof Identifier id ? store.getNodeById(id) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return store.getNodeCount();
+        }
+
+        @Override
+        public Set<Entry<Identifier, RecipeNode>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Identifier, RecipeNode>> iterator() {
+                    Iterator<String> namespaces = store.getNamespaces().iterator();
+                    return new Iterator<>() {
+                        private Iterator<RecipeNode> current = Collections.emptyIterator();
+
+                        @Override
+                        public boolean hasNext() {
+                            while (!current.hasNext() && namespaces.hasNext()) {
+                                current = store.getShardNodes(namespaces.next()).iterator();
+                            }
+                            return current.hasNext();
+                        }
+
+                        @Override
+                        public Entry<Identifier, RecipeNode> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            RecipeNode node = current.next();
+                            return Map.entry(node.getRecipeId(), node);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return store.getNodeCount();
+                }
+            };
+        }
+    }
+
+    // 先逐个分片给出分片内的边，再给出跨分片边；只能顺序遍历
+    private final class EdgeView extends AbstractCollection<RecipeEdge> {
+        @Override
+        public Iterator<RecipeEdge> iterator() {
+            Iterator<String> namespaces = store.getNamespaces().iterator();
+            return new Iterator<>() {
+                private Iterator<RecipeEdge> current = Collections.emptyIterator();
+                private boolean crossEdges = false;
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext()) {
+                        if (namespaces.hasNext()) {
+                            current = store.getShardEdges(namespaces.next()).iterator();
+                        } else if (!crossEdges) {
+                            crossEdges = true;
+                            current = store.crossEdgeIterator();
+                        } else {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public RecipeEdge next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return current.next();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return store.getEdgeCount();
+        }
+    }
+}
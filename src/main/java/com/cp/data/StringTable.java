@@ -0,0 +1,124 @@
+package com.cp.data;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+
+import java.util.*;
+
+/**
+ * 快照级字符串表
+ * 图中出现的每个物品ID、本地化名称和配方ID只格式化并保存一次，通过整数句柄引用，
+ * 导出、日志和界面提示共用同一份字符串
+ */
+public class StringTable {
+    private static final int NO_HANDLE = -1;
+
+    // 不保存任何字符串的空表，所有查询都临时格式化（分片模式下没有整图可以预先收集）
+    static final StringTable UNCACHED = new StringTable();
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> handles = new HashMap<>();
+
+    // 物品原始ID -> 句柄，只填充图中出现过的物品
+    private final int[] itemIdHandles;
+    private final int[] itemNameHandles;
+
+    // 节点下标（GraphIndex 编号）-> 配方ID句柄
+    private final int[] recipeIdHandles;
+
+    StringTable(GraphIndex index) {
+        itemIdHandles = new int[index.getItemCount()];
+        itemNameHandles = new int[index.getItemCount()];
+        Arrays.fill(itemIdHandles, NO_HANDLE);
+        Arrays.fill(itemNameHandles, NO_HANDLE);
+        recipeIdHandles = new int[index.getNodeCount()];
+
+        for (int node = 0; node < index.getNodeCount(); node++) {
+            recipeIdHandles[node] = intern(index.getNode(node).getRecipeId().toString());
+            registerItem(index.getOutputItem(node));
+            for (int slot = index.getInputStart(node); slot < index.getInputEnd(node); slot++) {
+                registerItem(index.getInputItem(slot));
+            }
+        }
+    }
+
+    private StringTable() {
+        itemIdHandles = new int[0];
+        itemNameHandles = new int[0];
+        recipeIdHandles = new int[0];
+    }
+
+    private void registerItem(int rawId) {
+        if (itemIdHandles[rawId] != NO_HANDLE) return;
+        Item item = Registries.ITEM.get(rawId);
+        itemIdHandles[rawId] = intern(Registries.ITEM.getId(item).toString());
+        itemNameHandles[rawId] = intern(item.getName().getString());
+    }
+
+    private int intern(String value) {
+        Integer handle = handles.get(value);
+        if (handle == null) {
+            handle = strings.size();
+            strings.add(value);
+            handles.put(value, handle);
+        }
+        return handle;
+    }
+
+    // 句柄对应的字符串
+    public String get(int handle) {
+        return strings.get(handle);
+    }
+
+    // 字符串对应的句柄，表中不存在时返回 -1
+    public int getHandle(String value) {
+        Integer handle = handles.get(value);
+        return handle == null ? NO_HANDLE : handle;
+    }
+
+    public int size() {
+        return strings.size();
+    }
+
+    public int getItemIdHandle(int rawItemId) {
+        return itemIdHandles[rawItemId];
+    }
+
+    public int getItemNameHandle(int rawItemId) {
+        return itemNameHandles[rawItemId];
+    }
+
+    public int getRecipeIdHandle(int node) {
+        return recipeIdHandles[node];
+    }
+
+    /**
+     * 物品ID字符串，不在图中的物品临时格式化（不缓存）
+     */
+    public String getItemId(Item item) {
+        int rawId = Registries.ITEM.getRawId(item);
+        int handle = rawId >= 0 && rawId < itemIdHandles.length ? itemIdHandles[rawId] : NO_HANDLE;
+        return handle != NO_HANDLE ? strings.get(handle) : Registries.ITEM.getId(item).toString();
+    }
+
+    /**
+     * 物品的本地化名称，不在图中的物品临时格式化（不缓存）
+     */
+    public String getItemName(Item item) {
+        int rawId = Registries.ITEM.getRawId(item);
+        int handle = rawId >= 0 && rawId < itemNameHandles.length ? itemNameHandles[rawId] : NO_HANDLE;
+        return handle != NO_HANDLE ? strings.get(handle) : item.getName().getString();
+    }
+
+    public String getItemId(int rawItemId) {
+        return getItemId(Registries.ITEM.get(rawItemId));
+    }
+
+    public String getItemName(int rawItemId) {
+        return getItemName(Registries.ITEM.get(rawItemId));
+    }
+
+    public String getRecipeId(int node) {
+        return strings.get(recipeIdHandles[node]);
+    }
+}
@@ -0,0 +1,105 @@
+package com.cp.data;
+
+import java.util.Arrays;
+
+/**
+ * 强连通分量（迭代版 Tarjan 算法），输入为 CSR 形式的有向图
+ * 分量按完成顺序编号：若存在边 u -> v 且两者不在同一分量，则 component(v) < component(u)，
+ * 即编号从小到大就是“依赖在前”的逆拓扑序
+ */
+public class StronglyConnectedComponents {
+    private final int[] component;
+    private final int[] componentSize;
+    private final int componentCount;
+
+    /**
+     * @param vertexCount 顶点数
+     * @param offsets 长度为 vertexCount + 1 的邻接表偏移
+     * @param targets 邻接表目标顶点
+     */
+    public StronglyConnectedComponents(int vertexCount, int[] offsets, int[] targets) {
+        component = new int[vertexCount];
+        Arrays.fill(component, -1);
+        int[] lowLink = new int[vertexCount];
+        int[] order = new int[vertexCount];
+        Arrays.fill(order, -1);
+
+        int[] stack = new int[vertexCount];
+        boolean[] onStack = new boolean[vertexCount];
+        int stackSize = 0;
+
+        // 显式调用栈：顶点和下一条待访问边的位置
+        int[] callVertex = new int[vertexCount];
+        int[] callEdge = new int[vertexCount];
+
+        int[] sizes = new int[vertexCount];
+        int counter = 0;
+        int components = 0;
+
+        for (int root = 0; root < vertexCount; root++) {
+            if (order[root] != -1) continue;
+
+            int depth = 0;
+            callVertex[0] = root;
+            callEdge[0] = offsets[root];
+            order[root] = lowLink[root] = counter++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int v = callVertex[depth];
+                if (callEdge[depth] < offsets[v + 1]) {
+                    int w = targets[callEdge[depth]++];
+                    if (order[w] == -1) {
+                        order[w] = lowLink[w] = counter++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        depth++;
+                        callVertex[depth] = w;
+                        callEdge[depth] = offsets[w];
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], order[w]);
+                    }
+                    continue;
+                }
+
+                // v 的所有边处理完毕
+                if (lowLink[v] == order[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        onStack[w] = false;
+                        component[w] = components;
+                        sizes[components]++;
+                    } while (w != v);
+                    components++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callVertex[depth];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                }
+            }
+        }
+
+        componentCount = components;
+        componentSize = Arrays.copyOf(sizes, components);
+    }
+
+    public int getComponent(int vertex) {
+        return component[vertex];
+    }
+
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    public int getComponentSize(int component) {
+        return componentSize[component];
+    }
+
+    // 每个顶点所属分量的副本
+    public int[] getComponents() {
+        return component.clone();
+    }
+}
@@ -0,0 +1,196 @@
+package com.cp.data;
+
+import java.util.*;
+
+/**
+ * 链式关系（DIRECT_CONSUMPTION、INDIRECT_CHAIN）的传递约简
+ * GraphBuilder 为每个 A -> B -> C 额外添加 INDIRECT_CHAIN 边，许多直接消费边也能由更长的路径推出，
+ * 这些边对可达性没有贡献，却让布局和渲染的工作量成倍增加
+ *
+ * 做法：先把链式边按强连通分量缩点得到 DAG，按“依赖在前”的顺序为每个分量计算可达位图；
+ * 后继分量 d 能经由同一分量的另一个后继到达时，到 d 的边就是冗余边。
+ * 可达位图按列分块计算，每一轮只保存所有分量对一段列（目标分量）的可达位，内存不超过固定上限，
+ * 大图只是多算几轮，不会放弃约简。
+ * 分量内部的边全部保留（环内每条边都可能是唯一的回路），每条保留的分量间关系只保留一条代表边
+ * （优先直接消费边，其次权重较高者）。其他类型的边原样保留
+ */
+public class TransitiveReduction {
+    private static final Set<String> CHAIN_TYPES = Set.of("DIRECT_CONSUMPTION", "INDIRECT_CHAIN");
+
+    // 每一轮可达位图的大小上限（long 个数，约 32MB）；分量很多时每轮至少算 64 列
+    private static final long MAX_BITSET_WORDS = 4L * 1024 * 1024;
+
+    private final RecipeGraph reducedGraph;
+    private final int chainEdgeCount;
+    private final int removedEdgeCount;
+
+    TransitiveReduction(RecipeGraph graph) {
+        GraphIndex index = graph.getIndex();
+        int nodeCount = index.getNodeCount();
+        int edgeCount = index.getEdgeCount();
+
+        boolean[] chainType = new boolean[index.getEdgeTypeNames().size()];
+        for (int t = 0; t < chainType.length; t++) {
+            chainType[t] = CHAIN_TYPES.contains(index.getEdgeTypeNames().get(t));
+        }
+        int directType = index.getEdgeTypeOrdinal("DIRECT_CONSUMPTION");
+
+        // 1. 只含链式边的 CSR
+        int[] offsets = new int[nodeCount + 1];
+        int chainEdges = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            for (int slot = index.getOutStart(node); slot < index.getOutEnd(node); slot++) {
+                if (chainType[index.getEdgeType(index.getOutEdge(slot))]) {
+                    chainEdges++;
+                }
+            }
+            offsets[node + 1] = chainEdges;
+        }
+        int[] chainEdge = new int[chainEdges];
+        int[] targets = new int[chainEdges];
+        for (int node = 0, cursor = 0; node < nodeCount; node++) {
+            for (int slot = index.getOutStart(node); slot < index.getOutEnd(node); slot++) {
+                int edge = index.getOutEdge(slot);
+                if (chainType[index.getEdgeType(edge)]) {
+                    chainEdge[cursor] = edge;
+                    targets[cursor++] = index.getEdgeTo(edge);
+                }
+            }
+        }
+        chainEdgeCount = chainEdges;
+
+        // 2. 缩点
+        StronglyConnectedComponents scc = new StronglyConnectedComponents(nodeCount, offsets, targets);
+        int componentCount = scc.getComponentCount();
+        boolean[] keep = new boolean[edgeCount];
+
+        // 分量成员表
+        int[] memberOffsets = new int[componentCount + 1];
+        for (int node = 0; node < nodeCount; node++) {
+            memberOffsets[scc.getComponent(node) + 1]++;
+        }
+        for (int c = 0; c < componentCount; c++) {
+            memberOffsets[c + 1] += memberOffsets[c];
+        }
+        int[] members = new int[nodeCount];
+        int[] fill = Arrays.copyOf(memberOffsets, componentCount);
+        for (int node = 0; node < nodeCount; node++) {
+            members[fill[scc.getComponent(node)]++] = node;
+        }
+
+        // 3. 分量间的后继表，每个后继分量只留一条代表边；分量内部的边全部保留
+        int[] successorOffsets = new int[componentCount + 1];
+        int[] successors = new int[chainEdges];
+        int[] successorEdge = new int[chainEdges];
+        int[] stamp = new int[componentCount];
+        int[] slotOf = new int[componentCount];
+        int successorCount = 0;
+        for (int c = 0; c < componentCount; c++) {
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                int node = members[m];
+                for (int slot = offsets[node]; slot < offsets[node + 1]; slot++) {
+                    int edge = chainEdge[slot];
+                    int d = scc.getComponent(targets[slot]);
+                    if (d == c) {
+                        keep[edge] = true;
+                    } else if (stamp[d] != c + 1) {
+                        stamp[d] = c + 1;
+                        slotOf[d] = successorCount;
+                        successors[successorCount] = d;
+                        successorEdge[successorCount++] = edge;
+                    } else if (better(index, edge, successorEdge[slotOf[d]], directType)) {
+                        successorEdge[slotOf[d]] = edge;
+                    }
+                }
+            }
+            successorOffsets[c + 1] = successorCount;
+        }
+
+        // 4. 按列分块计算可达位图（不含自身）。后继的编号总比自身小，按编号从小到大处理；
+        // 后继 d 出现在其他后继的可达位图中时，到 d 的边是冗余的
+        int words = (componentCount + 63) >>> 6;
+        int blockWords = (int) Math.max(1, Math.min(words, MAX_BITSET_WORDS / Math.max(componentCount, 1)));
+        long[] reach = new long[componentCount * blockWords];
+        long[] union = new long[blockWords];
+        for (int lo = 0; lo < componentCount; lo += blockWords * 64) {
+            int hi = Math.min(componentCount, lo + blockWords * 64);
+            Arrays.fill(reach, lo * blockWords, reach.length, 0L);
+            // 编号小于 lo 的分量只能到达更小的编号，与本块的列无关，它们的行不读也不写
+            for (int c = lo; c < componentCount; c++) {
+                Arrays.fill(union, 0L);
+                for (int s = successorOffsets[c]; s < successorOffsets[c + 1]; s++) {
+                    int d = successors[s];
+                    if (d < lo) continue;
+                    int other = d * blockWords;
+                    for (int w = 0; w < blockWords; w++) {
+                        union[w] |= reach[other + w];
+                    }
+                }
+                int row = c * blockWords;
+                for (int s = successorOffsets[c]; s < successorOffsets[c + 1]; s++) {
+                    int d = successors[s];
+                    if (d < lo || d >= hi) continue;
+                    int bit = d - lo;
+                    if ((union[bit >>> 6] & (1L << bit)) == 0) {
+                        keep[successorEdge[s]] = true;
+                    }
+                    reach[row + (bit >>> 6)] |= 1L << bit;
+                }
+                for (int w = 0; w < blockWords; w++) {
+                    reach[row + w] |= union[w];
+                }
+            }
+        }
+
+        // 其他类型的边不参与约简
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (!chainType[index.getEdgeType(edge)]) {
+                keep[edge] = true;
+            }
+        }
+
+        List<RecipeEdge> edges = new ArrayList<>();
+        for (int edge = 0; edge < edgeCount; edge++) {
+            if (keep[edge]) {
+                edges.add(index.getEdge(edge));
+            }
+        }
+        removedEdgeCount = edgeCount - edges.size();
+        reducedGraph = new RecipeGraph(graph.getNodes(), edges, graph.getSnapshotVersion());
+    }
+
+    // 同一对分量之间的代表边：直接消费边优先，其次权重较高
+    private static boolean better(GraphIndex index, int candidate, int current, int directType) {
+        boolean candidateDirect = index.getEdgeType(candidate) == directType;
+        boolean currentDirect = index.getEdgeType(current) == directType;
+        if (candidateDirect != currentDirect) {
+            return candidateDirect;
+        }
+        return index.getEdgeWeight(candidate) > index.getEdgeWeight(current);
+    }
+
+    /**
+     * 约简后的图：节点与原快照共享（布局坐标也共享），快照版本相同
+     */
+    public RecipeGraph getReducedGraph() {
+        return reducedGraph;
+    }
+
+    // 原图中链式边的数量
+    public int getChainEdgeCount() {
+        return chainEdgeCount;
+    }
+
+    // 被移除的冗余边数量
+    public int getRemovedEdgeCount() {
+        return removedEdgeCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TransitiveReduction{" +
+                "chainEdges=" + chainEdgeCount +
+                ", removed=" + removedEdgeCount +
+                '}';
+    }
+}
@@ -6,7 +6,7 @@ import com.cp.data.RecipeNode;
 import java.util.Random;
 
 public class GraphLayout {
-    private final RecipeGraph graph;
+    private RecipeGraph graph;
     private final double repulsion = 8000.0;  // 增大斥力
     private final double attraction = 0.05;   // 减小引力
     private final double damping = 0.85;      // 阻尼系数 (0-1)，越小越快稳定
@@ -37,6 +37,21 @@ public class GraphLayout {
         }
     }
 
+    /**
+     * 切换到另一个共享节点对象的视图（例如筛选视图）：保留节点当前位置，只重置速度，
+     * 布局从现有状态继续收敛而不是重新随机
+     */
+    public void setGraph(RecipeGraph graph) {
+        if (graph == this.graph) return;
+        this.graph = graph;
+        vx = new double[graph.getNodes().size()];
+        vy = new double[graph.getNodes().size()];
+    }
+
+    public RecipeGraph getGraph() {
+        return graph;
+    }
+
     // 每一帧更新节点位置（带速度的增量计算）
     public void step() {
         int i = 0;
@@ -10,6 +10,12 @@ public class InteractionHandler {
         offsetY += (float) deltaY;
     }
 
+    // 让图坐标 (x, y) 出现在屏幕中心
+    public void centerOn(double x, double y) {
+        offsetX = (float) (-x * zoom);
+        offsetY = (float) (-y * zoom);
+    }
+
     public void onMouseScroll(double amount) {
         float zoomSpeed = 0.1f;
         if (amount > 0) zoom += zoomSpeed * zoom;
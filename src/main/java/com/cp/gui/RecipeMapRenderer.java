@@ -1,56 +1,191 @@
 package com.cp.gui;
 
+import com.cp.data.ClusterHierarchy;
+import com.cp.data.CraftableClosure;
+import com.cp.data.DominatorTree;
+import com.cp.data.EdgeWeightIndex;
+import com.cp.data.GraphIndex;
+import com.cp.data.GraphQueries;
+import com.cp.data.NodeMasks;
 import com.cp.data.RecipeEdge;
 import com.cp.data.RecipeGraph;
 import com.cp.data.RecipeNode;
+import com.cp.data.StringTable;
 import com.mojang.blaze3d.systems.RenderSystem;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.render.*;
 import net.minecraft.item.ItemStack;
+import net.minecraft.text.Text;
 import net.minecraft.util.Identifier;
 import org.joml.Matrix4f;
 
+import java.util.List;
+
 public class RecipeMapRenderer {
-    public static void render(DrawContext context, RecipeGraph graph, InteractionHandler handler, int mouseX, int mouseY) {
+    /**
+     * @param craftable 背包可合成闭包，非空时给当前可以合成的配方加底色
+     */
+    public static void render(DrawContext context, RecipeGraph graph, InteractionHandler handler,
+                              CraftableClosure craftable, int mouseX, int mouseY) {
+        render(context, graph, handler, craftable, Double.NEGATIVE_INFINITY, mouseX, mouseY);
+    }
+
+    /**
+     * @param minEdgeWeight 只绘制权重不小于该值的边
+     */
+    public static void render(DrawContext context, RecipeGraph graph, InteractionHandler handler,
+                              CraftableClosure craftable, double minEdgeWeight, int mouseX, int mouseY) {
+        render(context, graph, graph.getReducedGraph(), null, handler, craftable, minEdgeWeight, mouseX, mouseY);
+    }
+
+    /**
+     * @param graph 完整快照（不是聚焦视图或聚类成员等子图），卡口边框、悬停提示里的支配数和可达估计都基于它，
+     *              子图上的分析只看得到子图内部，结果不对。这些分析按快照缓存，
+     *              应先在后台用 RecipeMapScreen.prepare 构建好，这里只取缓存
+     * @param reduced graph 的约简图，边用它的索引和权重索引绘制（每个快照只构建一次）
+     * @param selection 约简图上的筛选结果，只绘制其中可见的节点和边；null 表示全部绘制。
+     *                  筛选视图不单独构建索引，切换筛选不会在渲染线程上产生额外开销
+     */
+    public static void render(DrawContext context, RecipeGraph graph, RecipeGraph reduced, NodeMasks.Selection selection,
+                              InteractionHandler handler, CraftableClosure craftable, double minEdgeWeight,
+                              int mouseX, int mouseY) {
         context.getMatrices().push();
         // 应用平移和缩放
         context.getMatrices().translate(context.getScaledWindowWidth() / 2f + handler.offsetX,
                 context.getScaledWindowHeight() / 2f + handler.offsetY, 0);
         context.getMatrices().scale(handler.zoom, handler.zoom, 1.0f);
 
-        // 1. 绘制边 (线段) - 使用更精确的坐标
-        for (RecipeEdge edge : graph.getEdges()) {
-            RecipeNode from = graph.getNodeById(edge.getFromRecipeId());
-            RecipeNode to = graph.getNodeById(edge.getToRecipeId());
-            if (from != null && to != null) {
-                float x1 = (float) from.getX() + 8;  // 节点中心偏移
-                float y1 = (float) from.getY() + 8;
-                float x2 = (float) to.getX() + 8;
-                float y2 = (float) to.getY() + 8;
-
-                // 使用 drawLineWithThickness 或分段绘制
-                drawThickLine(context, x1, y1, x2, y2, 0xFF555555, 2.0f);
+        // 1. 绘制边 (线段) - 使用更精确的坐标；冗余的链式边已经约简掉，
+        //    按类型分组的权重索引直接给出满足阈值的连续区间，再用筛选的位集跳过不可见的边；
+        //    筛选结果的边比区间内的边还少时直接遍历筛选结果
+        GraphIndex edgeGraph = reduced.getIndex();
+        EdgeWeightIndex edgeIndex = reduced.getEdgeWeightIndex();
+        if (selection != null && selection.edges().length < edgeIndex.countAtLeast(minEdgeWeight)) {
+            for (int edge : selection.edges()) {
+                if (edgeGraph.getEdgeWeight(edge) >= minEdgeWeight) {
+                    drawEdge(context, edgeGraph, edge);
+                }
+            }
+        } else {
+            for (int type = 0; type < edgeIndex.getTypeCount(); type++) {
+                for (int slot = edgeIndex.rangeStart(type, minEdgeWeight); slot < edgeIndex.rangeEnd(type); slot++) {
+                    int edge = edgeIndex.getEdge(slot);
+                    if (selection == null || (selection.isVisible(edgeGraph.getEdgeFrom(edge))
+                            && selection.isVisible(edgeGraph.getEdgeTo(edge)))) {
+                        drawEdge(context, edgeGraph, edge);
+                    }
+                }
             }
         }
 
         // 2. 绘制节点 (物品)
         MinecraftClient client = MinecraftClient.getInstance();
-        for (RecipeNode node : graph.getNodes().values()) {
+        DominatorTree dominators = graph.getDominatorTree();
+        RecipeNode hovered = null;
+        RecipeGraph visible = selection != null ? selection.view() : reduced;
+        for (RecipeNode node : visible.getNodes().values()) {
             ItemStack stack = new ItemStack(node.getOutputItem());
             float x = (float) node.getX();
             float y = (float) node.getY();
 
+            // 用背包物品就能合成的配方加绿色底色
+            if (craftable != null && craftable.isRecipeCraftable(node)) {
+                context.fill((int)x - 1, (int)y - 1, (int)x + 17, (int)y + 17, 0x6633CC33);
+            }
+
+            // 卡口物品（支配科技树最大部分的物品）加橙色边框
+            if (dominators.isBottleneck(node.getOutputItem())) {
+                context.drawBorder((int)x - 2, (int)y - 2, 20, 20, 0xFFFF8800);
+            }
+
             // 绘制物品图标
             context.drawItem(stack, (int)x, (int)y);
 
             // 如果鼠标悬停，绘制高亮
             if (isMouseOver(x, y, mouseX, mouseY, handler, context)) {
                 context.fill((int)x, (int)y, (int)x + 16, (int)y + 16, 0x44FFFFFF);
+                hovered = node;
             }
         }
 
         context.getMatrices().pop();
+
+        // 3. 悬停提示（名称取自快照的字符串表）
+        if (hovered != null) {
+            StringTable strings = graph.getStringTable();
+            GraphQueries.ItemDetail detail = GraphQueries.itemDetail(graph, hovered.getOutputItem());
+            context.drawTooltip(client.textRenderer, List.of(
+                    Text.literal(strings.getItemName(hovered.getOutputItem())),
+                    Text.literal(hovered.getRecipeId().toString()),
+                    Text.literal("生产配方: " + detail.producers().size() + ", 用途: " + detail.consumers().size()),
+                    Text.literal("必经于它的物品: " + dominators.getDominatedCount(hovered.getOutputItem())),
+                    Text.literal("约解锁配方: " + graph.getReachEstimator().estimateDependents(hovered.getOutputItem()))
+            ), mouseX, mouseY);
+        }
+    }
+
+    /**
+     * 缩小视图时绘制聚类的超级节点图
+     * @param clusterGraph ClusterHierarchy 导出的某一层超级节点图
+     * @return 鼠标悬停的超级节点，没有时为null
+     */
+    public static RecipeNode renderClusters(DrawContext context, RecipeGraph clusterGraph, ClusterHierarchy clusters,
+                                            int level, InteractionHandler handler, int mouseX, int mouseY) {
+        context.getMatrices().push();
+        context.getMatrices().translate(context.getScaledWindowWidth() / 2f + handler.offsetX,
+                context.getScaledWindowHeight() / 2f + handler.offsetY, 0);
+        context.getMatrices().scale(handler.zoom, handler.zoom, 1.0f);
+
+        // 1. 聚合边
+        for (RecipeEdge edge : clusterGraph.getEdges()) {
+            RecipeNode from = clusterGraph.getNodeById(edge.getFromRecipeId());
+            RecipeNode to = clusterGraph.getNodeById(edge.getToRecipeId());
+            if (from != null && to != null) {
+                drawThickLine(context, (float) from.getX() + 8, (float) from.getY() + 8,
+                        (float) to.getX() + 8, (float) to.getY() + 8, 0xFF335577, 2.0f);
+            }
+        }
+
+        // 2. 超级节点：代表物品图标加底框
+        RecipeNode hovered = null;
+        for (RecipeNode node : clusterGraph.getNodes().values()) {
+            int x = (int) node.getX();
+            int y = (int) node.getY();
+            context.fill(x - 3, y - 3, x + 19, y + 19, 0x88224466);
+            context.drawItem(new ItemStack(node.getOutputItem()), x, y);
+            if (isMouseOver(x, y, mouseX, mouseY, handler, context)) {
+                context.fill(x, y, x + 16, y + 16, 0x44FFFFFF);
+                hovered = node;
+            }
+        }
+
+        context.getMatrices().pop();
+
+        // 3. 悬停提示
+        if (hovered != null) {
+            int cluster = ClusterHierarchy.clusterIndexOf(hovered.getRecipeId());
+            MinecraftClient client = MinecraftClient.getInstance();
+            context.drawTooltip(client.textRenderer, List.of(
+                    Text.literal("聚类 #" + cluster),
+                    Text.literal("配方数: " + clusters.getClusterSize(level, cluster)),
+                    Text.literal("代表配方: " + clusters.getRepresentative(level, cluster).getRecipeId()),
+                    Text.literal("点击展开")
+            ), mouseX, mouseY);
+        }
+        return hovered;
+    }
+
+    private static void drawEdge(DrawContext context, GraphIndex edgeGraph, int edge) {
+        RecipeNode from = edgeGraph.getNode(edgeGraph.getEdgeFrom(edge));
+        RecipeNode to = edgeGraph.getNode(edgeGraph.getEdgeTo(edge));
+        float x1 = (float) from.getX() + 8;  // 节点中心偏移
+        float y1 = (float) from.getY() + 8;
+        float x2 = (float) to.getX() + 8;
+        float y2 = (float) to.getY() + 8;
+
+        // 使用 drawLineWithThickness 或分段绘制
+        drawThickLine(context, x1, y1, x2, y2, 0xFF555555, 2.0f);
     }
 
     /**
@@ -1,50 +1,403 @@
 package com.cp.gui;
 
 import com.cp.MapCraft;
+import com.cp.data.ClusterHierarchy;
+import com.cp.data.CraftableClosure;
+import com.cp.data.GraphIndex;
+import com.cp.data.NodeMasks;
 import com.cp.data.RecipeGraph;
+import com.cp.data.RecipeNode;
+import com.cp.data.SearchIndex;
 import net.minecraft.client.gui.DrawContext;
 import net.minecraft.client.gui.screen.Screen;
+import net.minecraft.client.gui.widget.SliderWidget;
+import net.minecraft.client.gui.widget.TextFieldWidget;
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
 import net.minecraft.text.Text;
+import org.lwjgl.glfw.GLFW;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 public class RecipeMapScreen extends Screen {
+    // 完整快照；约简、索引、可合成闭包、聚类等都取它按快照缓存的结果，子图屏幕不重新构建
     private final RecipeGraph graph;
     private final GraphLayout layout;
     private final InteractionHandler interactionHandler;
+    private final CraftableClosure craftable;
     private boolean isDragging = false;
 
+    // 搜索框及当前结果
+    private static final int SEARCH_WIDTH = 160;
+    private static final int SEARCH_RESULT_LIMIT = 8;
+    private static final int RESULT_LINE_HEIGHT = 11;
+    // 子图屏幕共用快照的搜索索引，多取一些结果再跳过子图以外的
+    private static final int SCOPED_SEARCH_FACTOR = 8;
+    private TextFieldWidget searchField;
+    private List<SearchIndex.SearchResult> searchResults = Collections.emptyList();
+
+    // 视图跟随的节点（布局仍在移动节点），用户拖动后停止跟随
+    private RecipeNode followNode;
+
+    // 缩小到阈值以下时改为显示聚类超级节点，点击超级节点展开为成员子图
+    private static final int CLUSTER_MIN_NODES = 200;
+    private static final int MAX_SUPER_NODES = 120;
+    private static final float CLUSTER_ZOOM = 0.5f;
+    private ClusterHierarchy clusters;
+    private int clusterLevel;
+    private RecipeGraph clusterGraph;
+    private GraphLayout clusterLayout;
+    private RecipeNode hoveredCluster;
+
+    // 边权重阈值滑块
+    private static final int SLIDER_WIDTH = 120;
+    private double minEdgeWeight = 0.0;
+
+    // 按配方类型/命名空间筛选（T / N 键循环切换，-1 表示全部）；切换只是换一个缓存的筛选结果，
+    // 绘制仍使用约简图的索引，布局在共享的节点对象上继续收敛。
+    // 目前只收集合成台配方，类型筛选只能区分合成配方和没有配方对象的节点
+    private final RecipeGraph reduced;
+    // 子图屏幕（聚焦视图、聚类成员）在约简图上的成员，null 表示整个快照
+    private final NodeMasks.Selection scope;
+    private NodeMasks.Selection selection;
+    private int typeFilter = -1;
+    private int namespaceFilter = -1;
+
+    // 可合成闭包按快照共用，重新打开屏幕只同步背包里变化的格子；快照被替换时由 releaseCaches 释放
+    private static RecipeGraph craftableGraph;
+    private static CraftableClosure sharedCraftable;
+
     public RecipeMapScreen(Text title, RecipeGraph graph) {
+        this(title, graph, (RecipeGraph) null, null);
+    }
+
+    public RecipeMapScreen(Text title, RecipeGraph graph, Item focusItem) {
+        this(title, graph, (RecipeGraph) null, focusItem);
+    }
+
+    /**
+     * @param graph 完整快照（分片模式下为加载的局部子图）
+     * @param subgraph 只显示其中的节点，节点需来自 graph（如 EgoGraph 的结果）；null 表示整个快照
+     * @param focusItem 打开时居中显示的物品，null 表示不聚焦
+     */
+    public RecipeMapScreen(Text title, RecipeGraph graph, RecipeGraph subgraph, Item focusItem) {
+        this(title, graph, focusItem, subgraph != null ? subgraph.getNodes().values() : null);
+    }
+
+    private RecipeMapScreen(Text title, RecipeGraph graph, Item focusItem, Collection<RecipeNode> members) {
         super(title);
         this.graph = graph;
-        this.layout = new GraphLayout(graph);
+        // 布局只需要去掉冗余链式边后的视图，节点对象与原图共享
+        this.reduced = graph.getReducedGraph();
+        this.scope = members != null
+                ? reduced.getNodeMasks().select(NodeMasks.ALL, NodeMasks.ALL, reduced.getNodeMasks().bitsOf(members))
+                : null;
+        this.selection = scope;
+        this.layout = new GraphLayout(scope != null ? scope.view() : reduced);
         this.interactionHandler = new InteractionHandler();
+        this.craftable = craftableFor(graph);
+        // 聚焦视图只有邻域，不做聚类
+        if (members == null && graph.getNodeCount() > CLUSTER_MIN_NODES) {
+            ClusterHierarchy hierarchy = graph.getClusterHierarchy();
+            int level = hierarchy.getLevelFor(MAX_SUPER_NODES);
+            if (level > 0) {
+                showClusters(hierarchy, level, hierarchy.getClusterGraph(level));
+            }
+        }
+        if (focusItem != null) {
+            followNode = focusNode(focusItem);
+        }
+    }
+
+    /**
+     * 构建屏幕和渲染器用到的按快照缓存的分析：约简图及其索引和权重索引、筛选掩码、支配树、可达估计、搜索索引、
+     * 悬停提示用的原材料分解和可合成闭包，clustered 为 true 且快照较大时还有层次聚类。可以在后台线程调用，
+     * 打开屏幕前调用一次，渲染线程上就只剩取缓存；都已构建时立即返回
+     */
+    public static void prepare(RecipeGraph graph, boolean clustered) {
+        graph.getMaterialResolver();
+        craftableFor(graph);
+        RecipeGraph reduced = graph.getReducedGraph();
+        reduced.getEdgeWeightIndex();
+        reduced.getNodeMasks();
+        graph.getDominatorTree();
+        graph.getReachEstimator();
+        graph.getSearchIndex();
+        if (clustered && graph.getNodeCount() > CLUSTER_MIN_NODES) {
+            graph.getClusterHierarchy();
+        }
+    }
+
+    /**
+     * 展开一个聚类：成员取自同一个层次聚类，仍然过大时显示更细一层中属于它的聚类，不重新聚类
+     */
+    private static RecipeMapScreen forCluster(RecipeGraph graph, ClusterHierarchy hierarchy, int level, int cluster) {
+        RecipeMapScreen screen = new RecipeMapScreen(Text.literal("聚类 #" + cluster), graph, null,
+                hierarchy.getMemberGraph(level, cluster).getNodes().values());
+        if (level > 1 && hierarchy.getClusterSize(level, cluster) > CLUSTER_MIN_NODES) {
+            screen.showClusters(hierarchy, level - 1, hierarchy.getSubClusterGraph(level - 1, cluster));
+        }
+        return screen;
+    }
+
+    private void showClusters(ClusterHierarchy hierarchy, int level, RecipeGraph superNodes) {
+        clusters = hierarchy;
+        clusterLevel = level;
+        clusterGraph = superNodes;
+        clusterLayout = new GraphLayout(superNodes);
+    }
+
+    private static synchronized CraftableClosure craftableFor(RecipeGraph graph) {
+        if (craftableGraph != graph) {
+            sharedCraftable = new CraftableClosure(graph.getIndex());
+            craftableGraph = graph;
+        }
+        return sharedCraftable;
+    }
+
+    /**
+     * 释放按快照共用的可合成闭包，快照被替换或断开连接后调用，旧快照不再被屏幕类引用
+     */
+    public static synchronized void releaseCaches() {
+        craftableGraph = null;
+        sharedCraftable = null;
+    }
+
+    // 聚焦物品的第一个可见的生产配方，没有时取第一个可见的消费配方；直接查索引，不构建原材料分解
+    private RecipeNode focusNode(Item item) {
+        GraphIndex index = graph.getIndex();
+        int rawId = Registries.ITEM.getRawId(item);
+        if (rawId < 0 || rawId >= index.getItemCount()) {
+            return null;
+        }
+        for (int slot = index.getProducerStart(rawId); slot < index.getProducerEnd(rawId); slot++) {
+            RecipeNode node = index.getNode(index.getProducer(slot));
+            if (inScope(node)) {
+                return node;
+            }
+        }
+        for (int slot = index.getConsumerStart(rawId); slot < index.getConsumerEnd(rawId); slot++) {
+            RecipeNode node = index.getNode(index.getConsumer(slot));
+            if (inScope(node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private boolean inScope(RecipeNode node) {
+        if (scope == null) {
+            return true;
+        }
+        int index = reduced.getIndex().indexOf(node.getRecipeId());
+        return index >= 0 && scope.isVisible(index);
+    }
+
+    private List<SearchIndex.SearchResult> search(String text) {
+        if (scope == null) {
+            return graph.getSearchIndex().search(text, SEARCH_RESULT_LIMIT);
+        }
+        List<SearchIndex.SearchResult> results = new ArrayList<>();
+        for (SearchIndex.SearchResult result : graph.getSearchIndex().search(text, SEARCH_RESULT_LIMIT * SCOPED_SEARCH_FACTOR)) {
+            if (result.node() != null && inScope(result.node())) {
+                results.add(result);
+                if (results.size() == SEARCH_RESULT_LIMIT) break;
+            }
+        }
+        return results;
     }
 
     @Override
     protected void init() {
         super.init();
+        searchField = new TextFieldWidget(this.textRenderer, this.width - SEARCH_WIDTH - 10, 6,
+                SEARCH_WIDTH, 16, Text.literal("搜索"));
+        searchField.setMaxLength(64);
+        searchField.setPlaceholder(Text.literal("搜索物品或配方..."));
+        // 每次输入都重新查询，索引按快照缓存
+        searchField.setChangedListener(text -> searchResults = text.isBlank()
+                ? Collections.emptyList()
+                : search(text));
+        this.addDrawableChild(searchField);
+
+        // 拖动时只做一次二分查找，与边数无关
+        this.addDrawableChild(new SliderWidget(10, this.height - 26, SLIDER_WIDTH, 16,
+                Text.empty(), minEdgeWeight) {
+            {
+                updateMessage();
+            }
+
+            @Override
+            protected void updateMessage() {
+                setMessage(Text.literal(String.format("最小边权重: %.2f", value)));
+            }
+
+            @Override
+            protected void applyValue() {
+                minEdgeWeight = value;
+            }
+        });
     }
 
     @Override
     public void render(DrawContext context, int mouseX, int mouseY, float delta) {
-        // 1. 物理模拟步进 (可以根据需要限制执行次数)
-        layout.step();
+        // 1. 物理模拟步进 (可以根据需要限制执行次数)；聚类视图只模拟超级节点
+        boolean clustered = isClustered();
+        if (clustered) {
+            clusterLayout.step();
+        } else {
+            layout.step();
+        }
+
+        if (followNode != null) {
+            interactionHandler.centerOn(followNode.getX() + 8, followNode.getY() + 8);
+        }
 
         // 2. 渲染背景
         this.renderBackground(context, mouseX, mouseY, delta);
 
-        // 3. 渲染图表
-        RecipeMapRenderer.render(context, graph, interactionHandler, mouseX, mouseY);
+        // 3. 同步背包（只更新变化的格子），再渲染图表
+        if (this.client != null && this.client.player != null) {
+            craftable.syncInventory(this.client.player.getInventory());
+        }
+        if (clustered) {
+            hoveredCluster = RecipeMapRenderer.renderClusters(context, clusterGraph, clusters, clusterLevel,
+                    interactionHandler, mouseX, mouseY);
+        } else {
+            hoveredCluster = null;
+            RecipeMapRenderer.render(context, graph, reduced, selection, interactionHandler, craftable, minEdgeWeight,
+                    mouseX, mouseY);
+        }
 
         // 4. 渲染UI层
-        context.drawTextWithShadow(this.textRenderer, "节点数: " + graph.getNodeCount(), 10, 10, 0xFFFFFF);
-        context.drawTextWithShadow(this.textRenderer, "滚轮缩放, 左键拖拽", 10, 20, 0xAAAAAA);
+        context.drawTextWithShadow(this.textRenderer, "节点数: " + (scope != null ? scope.view() : graph).getNodeCount(), 10, 10, 0xFFFFFF);
+        context.drawTextWithShadow(this.textRenderer, "滚轮缩放, 左键拖拽, T/N 切换类型/命名空间筛选", 10, 20, 0xAAAAAA);
+        context.drawTextWithShadow(this.textRenderer, "背包可合成: " + craftable.getCraftableCount(), 10, 30, 0x55FF55);
+        if (clustered) {
+            context.drawTextWithShadow(this.textRenderer, "聚类视图: " + clusterGraph.getNodeCount() + " 个聚类", 10, 40, 0x55AAFF);
+        } else if (isFiltered()) {
+            NodeMasks masks = reduced.getNodeMasks();
+            context.drawTextWithShadow(this.textRenderer, "筛选: "
+                    + (typeFilter < 0 ? "全部类型" : masks.getTypeNames().get(typeFilter)) + " / "
+                    + (namespaceFilter < 0 ? "全部命名空间" : namespaceLabel(masks, namespaceFilter))
+                    + " (" + selection.view().getNodeCount() + " 个节点)", 10, 40, 0xFFAA00);
+        }
 
         super.render(context, mouseX, mouseY, delta);
+        renderSearchResults(context, mouseX, mouseY);
+    }
+
+    private void renderSearchResults(DrawContext context, int mouseX, int mouseY) {
+        int x = this.width - SEARCH_WIDTH - 10;
+        int y = 26;
+        for (int i = 0; i < searchResults.size(); i++) {
+            int top = y + i * RESULT_LINE_HEIGHT;
+            boolean hovered = mouseX >= x && mouseX < x + SEARCH_WIDTH && mouseY >= top && mouseY < top + RESULT_LINE_HEIGHT;
+            context.fill(x, top, x + SEARCH_WIDTH, top + RESULT_LINE_HEIGHT, hovered ? 0xCC333333 : 0xAA000000);
+            SearchIndex.SearchResult result = searchResults.get(i);
+            context.drawTextWithShadow(this.textRenderer, result.text(), x + 2, top + 1,
+                    result.node() != null ? 0xFFFFFF : 0x777777);
+        }
+    }
+
+    // 缩放低于阈值、没有跟随节点且没有筛选时显示聚类
+    private boolean isClustered() {
+        return clusterGraph != null && followNode == null && !isFiltered() && interactionHandler.zoom < CLUSTER_ZOOM;
+    }
+
+    private boolean isFiltered() {
+        return typeFilter >= 0 || namespaceFilter >= 0;
+    }
+
+    // 切换筛选：取（或构建一次）对应的筛选结果，布局保留节点位置增量更新
+    private void applyFilter() {
+        if (typeFilter < 0 && namespaceFilter < 0) {
+            selection = scope;
+            layout.setGraph(scope != null ? scope.view() : reduced);
+            return;
+        }
+        NodeMasks masks = reduced.getNodeMasks();
+        long typeMask = typeFilter < 0 ? NodeMasks.ALL : masks.typeMask(masks.getTypeNames().get(typeFilter));
+        long namespaceMask = namespaceFilter < 0 ? NodeMasks.ALL
+                : masks.namespaceMask(masks.getNamespaces().get(namespaceFilter));
+        selection = scope != null ? masks.select(typeMask, namespaceMask, scope.visible())
+                : masks.select(typeMask, namespaceMask);
+        layout.setGraph(selection.view());
+    }
+
+    // 在 -1（全部）和 0..count-1 之间循环
+    private static int nextFilter(int current, int count) {
+        return current + 1 < count ? current + 1 : -1;
+    }
+
+    // 把视图中心移到节点上，并在布局稳定前持续跟随；节点被当前筛选隐藏时先清除筛选
+    private void focusOn(RecipeNode node) {
+        if (node != null && isFiltered()) {
+            int index = reduced.getIndex().indexOf(node.getRecipeId());
+            if (index < 0 || !selection.isVisible(index)) {
+                typeFilter = -1;
+                namespaceFilter = -1;
+                applyFilter();
+            }
+        }
+        followNode = node;
+    }
+
+    @Override
+    public boolean mouseClicked(double mouseX, double mouseY, int button) {
+        int x = this.width - SEARCH_WIDTH - 10;
+        int y = 26;
+        if (button == 0 && mouseX >= x && mouseX < x + SEARCH_WIDTH && mouseY >= y) {
+            int row = (int) ((mouseY - y) / RESULT_LINE_HEIGHT);
+            if (row < searchResults.size()) {
+                focusOn(searchResults.get(row).node());
+                return true;
+            }
+        }
+        // 点击超级节点：打开该聚类的成员子图（仍然过大时显示更细一层的聚类）
+        if (button == 0 && hoveredCluster != null && isClustered() && this.client != null) {
+            int cluster = ClusterHierarchy.clusterIndexOf(hoveredCluster.getRecipeId());
+            this.client.setScreen(forCluster(graph, clusters, clusterLevel, cluster));
+            return true;
+        }
+        return super.mouseClicked(mouseX, mouseY, button);
+    }
+
+    // 合并组显示包含的命名空间个数，避免把整组当成其中一个模组
+    private static String namespaceLabel(NodeMasks masks, int group) {
+        String name = masks.getNamespaces().get(group);
+        int size = masks.getNamespaceGroupSize(group);
+        return size > 1 ? name + " (" + size + " 个命名空间)" : name;
+    }
+
+    @Override
+    public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
+        if (keyCode == GLFW.GLFW_KEY_ENTER && searchField.isFocused() && !searchResults.isEmpty()) {
+            focusOn(searchResults.get(0).node());
+            return true;
+        }
+        if (!searchField.isFocused()) {
+            if (keyCode == GLFW.GLFW_KEY_T) {
+                typeFilter = nextFilter(typeFilter, reduced.getNodeMasks().getTypeNames().size());
+                applyFilter();
+                return true;
+            }
+            if (keyCode == GLFW.GLFW_KEY_N) {
+                namespaceFilter = nextFilter(namespaceFilter, reduced.getNodeMasks().getNamespaces().size());
+                applyFilter();
+                return true;
+            }
+        }
+        return super.keyPressed(keyCode, scanCode, modifiers);
     }
 
     @Override
     public boolean mouseDragged(double mouseX, double mouseY, int button, double deltaX, double deltaY) {
         if (button == 0) { // 左键拖拽
+            followNode = null;
             interactionHandler.onDrag(deltaX, deltaY);
             return true;
         }
@@ -1,19 +1,37 @@
 package com.cp.input;
 
 import com.cp.MapCraft;
+import com.cp.data.EgoGraph;
+import com.cp.data.GraphQueries;
+import com.cp.data.GraphSnapshot;
 import com.cp.data.RecipeGraph;
 import com.cp.gui.RecipeMapScreen;
+import com.cp.network.GraphSyncClient;
 import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 import net.fabricmc.fabric.api.client.keybinding.v1.KeyBindingHelper;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.option.KeyBinding;
 import net.minecraft.client.util.InputUtil;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
 import net.minecraft.text.Text;
 import org.lwjgl.glfw.GLFW;
 
+import java.util.concurrent.CompletableFuture;
+
 public class KeybindHandler {
     public static KeyBinding openMapKeybind;
 
+    // 潜行时打开的聚焦视图包含的邻域步数
+    private static final int FOCUS_HOPS = 2;
+
+    // 正在后台准备的屏幕，准备完成前忽略重复按键
+    private static CompletableFuture<?> opening;
+
+    private record Target(RecipeGraph snapshot, RecipeGraph focused, Item focusItem) {
+    }
+
     public static void registerKeybinds() {
         openMapKeybind = KeyBindingHelper.registerKeyBinding(new KeyBinding(
                 "key.map-craft.open_map",
@@ -24,12 +42,46 @@ public class KeybindHandler {
 
         ClientTickEvents.END_CLIENT_TICK.register(client -> {
             while (openMapKeybind.wasPressed()) {
-                if (client.player != null && client.currentScreen == null) {
-                    // 打开配方图屏幕
-                    RecipeGraph graph = MapCraft.collector.getRecipeGraph();
-                    client.setScreen(new RecipeMapScreen(Text.of("gui.map-craft.title"), graph));
+                if (client.player != null && client.currentScreen == null && (opening == null || opening.isDone())) {
+                    open(client);
                 }
             }
         });
+
+        // 快照被替换或断开连接后，屏幕类不再持有旧快照的共用缓存
+        GraphSyncClient.addListener(event -> RecipeMapScreen.releaseCaches());
+        MapCraft.collector.addListener(event -> RecipeMapScreen.releaseCaches());
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> RecipeMapScreen.releaseCaches());
+    }
+
+    // 打开配方图屏幕（优先使用服务端同步的快照）；约简、支配树等分析在后台线程构建，完成后回到客户端线程打开
+    private static void open(MinecraftClient client) {
+        GraphSnapshot graph = GraphSyncClient.getGraph();
+        ItemStack held = client.player.getMainHandStack();
+        // 潜行 + 按键：只显示手持物品附近的配方，分析仍使用整个快照（分片模式下为加载的局部子图）的缓存
+        Item focusItem = client.player.isSneaking() && !held.isEmpty() ? held.getItem() : null;
+        if (focusItem == null && !(graph instanceof RecipeGraph)) {
+            // 分片存储的本地快照不在内存里保留整图，只能打开聚焦视图
+            client.player.sendMessage(Text.of("配方图使用分片存储，请手持物品潜行打开聚焦视图"), true);
+            return;
+        }
+        opening = CompletableFuture.supplyAsync(() -> {
+            if (focusItem == null) {
+                RecipeGraph whole = (RecipeGraph) graph;
+                RecipeMapScreen.prepare(whole, true);
+                return new Target(whole, null, null);
+            }
+            RecipeGraph snapshot = graph.loadAround(focusItem, FOCUS_HOPS);
+            RecipeGraph focused = GraphQueries.egoGraph(graph, focusItem, EgoGraph.Filter.hops(FOCUS_HOPS));
+            RecipeMapScreen.prepare(snapshot, false);
+            return new Target(snapshot, focused, focusItem);
+        }).whenCompleteAsync((target, error) -> {
+            if (error != null) {
+                MapCraft.LOGGER.error("准备配方图失败: {}", error.getMessage(), error);
+            } else if (client.player != null && client.currentScreen == null) {
+                client.setScreen(new RecipeMapScreen(Text.of("gui.map-craft.title"),
+                        target.snapshot(), target.focused(), target.focusItem()));
+            }
+        }, client);
     }
 }
\ No newline at end of file
@@ -0,0 +1,405 @@
+package com.cp.network;
+
+import com.cp.data.GraphDelta;
+import com.cp.data.GraphIndex;
+import com.cp.data.GraphSnapshot;
+import com.cp.data.RecipeEdge;
+import com.cp.data.RecipeGraph;
+import com.cp.data.RecipeNode;
+import net.minecraft.item.Item;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 配方图的紧凑二进制编码
+ * 整数一律使用 varint，物品使用注册表原始ID（客户端与服务端一致），整个数据块再做 deflate 压缩
+ *
+ * 完整快照：节点按 GraphIndex 编号，边只记录两端的节点编号和类型序号；
+ * 增量：直接写出配方ID，基线版本不一致时客户端需要重新请求完整快照
+ */
+public class GraphCodec {
+    public static final byte KIND_FULL = 0;
+    public static final byte KIND_DELTA = 1;
+
+    // 解压后的数据大小上限，超出时按损坏处理
+    public static final int MAX_DECODED_BYTES = 128 * 1024 * 1024;
+
+    // 各类元素编码后至少占用的字节数，用来检查读到的个数是否超出剩余数据
+    private static final int MIN_NODE_BYTES = 5;
+    private static final int MIN_EDGE_BYTES = 11;
+    private static final int MIN_INPUT_BYTES = 2;
+
+    /**
+     * 解码结果：完整快照（graph 非空）或增量（delta 非空）
+     */
+    public record Decoded(RecipeGraph graph, GraphDelta delta) {
+    }
+
+    // ---------- 编码 ----------
+
+    public static byte[] encodeFull(GraphSnapshot snapshot) throws IOException {
+        if (!(snapshot instanceof RecipeGraph graph)) {
+            return encodeSequential(snapshot);
+        }
+        GraphIndex index = graph.getIndex();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeByte(KIND_FULL);
+            writeVarLong(out, graph.getSnapshotVersion());
+
+            writeVarInt(out, index.getNodeCount());
+            for (int node = 0; node < index.getNodeCount(); node++) {
+                writeString(out, index.getNode(node).getRecipeId().toString());
+                writeNodeBody(out, index.getNode(node));
+            }
+
+            List<String> types = index.getEdgeTypeNames();
+            writeVarInt(out, types.size());
+            for (String type : types) {
+                writeString(out, type);
+            }
+
+            writeVarInt(out, index.getEdgeCount());
+            for (int e = 0; e < index.getEdgeCount(); e++) {
+                writeVarInt(out, index.getEdgeFrom(e));
+                writeVarInt(out, index.getEdgeTo(e));
+                writeVarInt(out, index.getEdgeType(e));
+                out.writeDouble(index.getEdgeWeight(e));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 分片快照没有整图索引：节点按分片遍历顺序编号，边再遍历一遍分片写出，
+     * 同一时刻只有预算内的分片在内存里，格式与普通完整快照相同
+     */
+    private static byte[] encodeSequential(GraphSnapshot graph) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeByte(KIND_FULL);
+            writeVarLong(out, graph.getSnapshotVersion());
+
+            Map<Identifier, Integer> numbering = new HashMap<>(graph.getNodeCount() * 2);
+            writeVarInt(out, graph.getNodeCount());
+            for (RecipeNode node : graph.getNodes().values()) {
+                numbering.put(node.getRecipeId(), numbering.size());
+                writeString(out, node.getRecipeId().toString());
+                writeNodeBody(out, node);
+            }
+            if (numbering.size() != graph.getNodeCount()) {
+                throw new IOException("分片中的节点数与全局索引不一致: " + numbering.size() + " / " + graph.getNodeCount());
+            }
+
+            List<String> types = new ArrayList<>(graph.getStatistics().getEdgeTypeCounts().keySet());
+            Map<String, Integer> typeOrdinals = new HashMap<>();
+            writeVarInt(out, types.size());
+            for (String type : types) {
+                typeOrdinals.put(type, typeOrdinals.size());
+                writeString(out, type);
+            }
+
+            int written = 0;
+            writeVarInt(out, graph.getEdgeCount());
+            for (RecipeEdge edge : graph.getEdges()) {
+                Integer from = numbering.get(edge.getFromRecipeId());
+                Integer to = numbering.get(edge.getToRecipeId());
+                Integer type = typeOrdinals.get(edge.getRelationshipType());
+                if (from == null || to == null || type == null || ++written > graph.getEdgeCount()) {
+                    throw new IOException("分片中的边与全局索引不一致: " + edge);
+                }
+                writeVarInt(out, from);
+                writeVarInt(out, to);
+                writeVarInt(out, type);
+                out.writeDouble(edge.getWeight());
+            }
+            if (written != graph.getEdgeCount()) {
+                throw new IOException("分片中的边数与全局索引不一致: " + written + " / " + graph.getEdgeCount());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    public static byte[] encodeDelta(GraphDelta delta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeByte(KIND_DELTA);
+            writeVarLong(out, delta.getBaseVersion());
+            writeVarLong(out, delta.getTargetVersion());
+
+            writeVarInt(out, delta.getRemovedNodes().size());
+            for (Identifier recipeId : delta.getRemovedNodes()) {
+                writeString(out, recipeId.toString());
+            }
+
+            writeVarInt(out, delta.getAddedNodes().size());
+            for (RecipeNode node : delta.getAddedNodes()) {
+                writeString(out, node.getRecipeId().toString());
+                writeNodeBody(out, node);
+            }
+
+            writeEdges(out, delta.getRemovedEdges());
+            writeEdges(out, delta.getAddedEdges());
+            writeEdges(out, delta.getChangedWeights());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeNodeBody(DataOutputStream out, RecipeNode node) throws IOException {
+        writeVarInt(out, Registries.ITEM.getRawId(node.getOutputItem()));
+        writeVarInt(out, node.getOutputCount());
+
+        // 输入物品已按ID升序，差分编码，后跟数量
+        int[] inputs = node.getInputItemIds();
+        int[] counts = node.getInputCounts();
+        writeVarInt(out, inputs.length);
+        int previous = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            writeVarInt(out, inputs[i] - previous);
+            writeVarInt(out, counts[i]);
+            previous = inputs[i];
+        }
+
+        // 被合并的重复配方ID
+        writeVarInt(out, node.getAliasIds().size());
+        for (Identifier alias : node.getAliasIds()) {
+            writeString(out, alias.toString());
+        }
+    }
+
+    private static void writeEdges(DataOutputStream out, List<RecipeEdge> edges) throws IOException {
+        writeVarInt(out, edges.size());
+        for (RecipeEdge edge : edges) {
+            writeString(out, edge.getFromRecipeId().toString());
+            writeString(out, edge.getToRecipeId().toString());
+            writeString(out, edge.getRelationshipType());
+            out.writeDouble(edge.getWeight());
+        }
+    }
+
+    // ---------- 解码 ----------
+
+    /**
+     * 解码压缩后的数据块
+     * 数据来自网络，不可信：先整体解压（有大小上限），每个个数都与剩余字节数比较，
+     * 下标、物品原始ID和配方ID越界或无效时抛出 IOException，不会抛出运行时异常
+     * @param recipeResolver 用于找回配方对象（例如客户端世界的配方管理器），可以返回null
+     */
+    public static Decoded decode(byte[] data, Function<Identifier, Recipe<?>> recipeResolver) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(inflate(data)))) {
+            byte kind = in.readByte();
+            if (kind == KIND_FULL) {
+                return new Decoded(decodeFull(in, recipeResolver), null);
+            } else if (kind == KIND_DELTA) {
+                return new Decoded(null, decodeDelta(in, recipeResolver));
+            }
+            throw new IOException("未知的配方图数据类型: " + kind);
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                if (out.size() + read > MAX_DECODED_BYTES) {
+                    throw new IOException("配方图数据解压后超过 " + MAX_DECODED_BYTES + " 字节");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static RecipeGraph decodeFull(DataInputStream in, Function<Identifier, Recipe<?>> recipeResolver) throws IOException {
+        long version = readVarLong(in);
+
+        int nodeCount = readCount(in, MIN_NODE_BYTES);
+        Identifier[] ids = new Identifier[nodeCount];
+        Map<Identifier, RecipeNode> nodes = new HashMap<>(nodeCount * 2);
+        for (int i = 0; i < nodeCount; i++) {
+            ids[i] = readIdentifier(in);
+            nodes.put(ids[i], readNodeBody(in, ids[i], recipeResolver));
+        }
+
+        int typeCount = readCount(in, 1);
+        String[] types = new String[typeCount];
+        for (int t = 0; t < typeCount; t++) {
+            types[t] = readString(in);
+        }
+
+        int edgeCount = readCount(in, MIN_EDGE_BYTES);
+        List<RecipeEdge> edges = new ArrayList<>(edgeCount);
+        for (int e = 0; e < edgeCount; e++) {
+            Identifier from = ids[readIndex(in, nodeCount)];
+            Identifier to = ids[readIndex(in, nodeCount)];
+            String type = types[readIndex(in, typeCount)];
+            edges.add(new RecipeEdge(from, to, type, in.readDouble()));
+        }
+
+        return new RecipeGraph(nodes, edges, version);
+    }
+
+    private static GraphDelta decodeDelta(DataInputStream in, Function<Identifier, Recipe<?>> recipeResolver) throws IOException {
+        long baseVersion = readVarLong(in);
+        long targetVersion = readVarLong(in);
+
+        int removedCount = readCount(in, 1);
+        List<Identifier> removedNodes = new ArrayList<>(removedCount);
+        for (int i = 0; i < removedCount; i++) {
+            removedNodes.add(readIdentifier(in));
+        }
+
+        int addedCount = readCount(in, MIN_NODE_BYTES);
+        List<RecipeNode> addedNodes = new ArrayList<>(addedCount);
+        for (int i = 0; i < addedCount; i++) {
+            Identifier recipeId = readIdentifier(in);
+            addedNodes.add(readNodeBody(in, recipeId, recipeResolver));
+        }
+
+        List<RecipeEdge> removedEdges = readEdges(in);
+        List<RecipeEdge> addedEdges = readEdges(in);
+        List<RecipeEdge> changedWeights = readEdges(in);
+
+        return new GraphDelta(baseVersion, targetVersion,
+                addedNodes, removedNodes, addedEdges, removedEdges, changedWeights);
+    }
+
+    private static RecipeNode readNodeBody(DataInputStream in, Identifier recipeId,
+                                           Function<Identifier, Recipe<?>> recipeResolver) throws IOException {
+        Item outputItem = Registries.ITEM.get(readIndex(in, Registries.ITEM.size()));
+        int outputCount = readVarInt(in);
+
+        // 差分还原后的ID必须严格递增且在注册表范围内
+        int inputCount = readCount(in, MIN_INPUT_BYTES);
+        int[] inputs = new int[inputCount];
+        int[] counts = new int[inputCount];
+        long previous = 0;
+        for (int i = 0; i < inputCount; i++) {
+            int gap = readVarInt(in);
+            previous += Integer.toUnsignedLong(gap);
+            if ((i > 0 && gap == 0) || previous >= Registries.ITEM.size()) {
+                throw new IOException("配方 " + recipeId + " 的输入物品ID无效: " + previous);
+            }
+            inputs[i] = (int) previous;
+            counts[i] = readVarInt(in);
+        }
+
+        int aliasCount = readCount(in, 1);
+        List<Identifier> aliases = new ArrayList<>(aliasCount);
+        for (int i = 0; i < aliasCount; i++) {
+            aliases.add(readIdentifier(in));
+        }
+
+        Recipe<?> recipe = recipeResolver != null ? recipeResolver.apply(recipeId) : null;
+        return new RecipeNode(recipeId, recipe, outputItem, outputCount, inputs, counts, aliases);
+    }
+
+    private static List<RecipeEdge> readEdges(DataInputStream in) throws IOException {
+        int count = readCount(in, MIN_EDGE_BYTES);
+        List<RecipeEdge> edges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Identifier from = readIdentifier(in);
+            Identifier to = readIdentifier(in);
+            String type = readString(in);
+            edges.add(new RecipeEdge(from, to, type, in.readDouble()));
+        }
+        return edges;
+    }
+
+    // 元素个数：每个元素至少占 minBytes 字节，个数超出剩余数据时说明数据损坏，不按它预分配
+    private static int readCount(DataInputStream in, int minBytes) throws IOException {
+        int count = readVarInt(in);
+        if (count < 0 || (long) count * minBytes > in.available()) {
+            throw new IOException("元素个数超出剩余数据: " + count);
+        }
+        return count;
+    }
+
+    // [0, bound) 范围内的下标
+    private static int readIndex(DataInputStream in, int bound) throws IOException {
+        int index = readVarInt(in);
+        if (index < 0 || index >= bound) {
+            throw new IOException("下标越界: " + index + " / " + bound);
+        }
+        return index;
+    }
+
+    private static Identifier readIdentifier(DataInputStream in) throws IOException {
+        String value = readString(in);
+        Identifier id = Identifier.tryParse(value);
+        if (id == null) {
+            throw new IOException("无效的配方ID: " + value);
+        }
+        return id;
+    }
+
+    // ---------- varint ----------
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift >= 35) {
+                throw new IOException("varint 过长");
+            }
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift >= 70) {
+                throw new IOException("varlong 过长");
+            }
+            b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[readCount(in, 1)];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,463 @@
+package com.cp.network;
+
+import com.cp.MapCraft;
+import com.cp.data.GraphQueries;
+import com.cp.data.PathFinder;
+import com.cp.data.RecipeEdge;
+import com.cp.data.GraphSnapshot;
+import com.cp.data.RecipeNode;
+import com.cp.data.StringTable;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * 本机查询服务（可选）：供网页面板和脚本直接查询当前配方图，不需要解析导出文件
+ *
+ * 只监听回环地址，并且只接受 Host 为 127.0.0.1 或 localhost 的请求（防止 DNS 重绑定让网页借浏览器访问），
+ * 请求在虚拟线程上处理，所有查询都经过 GraphQueries（与界面共用结果缓存），
+ * 结果用 JsonWriter 直接流式写入响应体。
+ *   GET  /status                                 快照版本、节点数、边数
+ *   GET  /item?id=minecraft:stick                物品详情
+ *   GET  /path?from=..&to=..[&k=3]               代价最低的配方链（k > 1 时返回备选路线）
+ *   GET  /breakdown?item=..[&amount=1]           原材料分解
+ *   GET  /neighborhood?recipe=..[&hops=1]        配方邻域
+ *   POST /batch   [{"type":"item","id":".."}, ...]  批量查询，各条并发执行，结果按请求顺序返回
+ * 一次请求（包括整个批量请求）只读取一次快照，结果来自同一个版本
+ */
+public class GraphQueryServer {
+    public static final String PORT_PROPERTY = "mapcraft.queryPort";
+    public static final int MAX_BATCH_SIZE = 64;
+    public static final int MAX_BODY_BYTES = 64 * 1024;
+    public static final int MAX_HOPS = 4;
+    public static final int MAX_ROUTES = 10;
+
+    private static final String ITEM = "item";
+    private static final String PATH = "path";
+    private static final String BREAKDOWN = "breakdown";
+    private static final String NEIGHBORHOOD = "neighborhood";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Supplier<GraphSnapshot> graphSource;
+
+    private GraphQueryServer(HttpServer server, ExecutorService executor, Supplier<GraphSnapshot> graphSource) {
+        this.server = server;
+        this.executor = executor;
+        this.graphSource = graphSource;
+    }
+
+    /**
+     * 在回环地址上启动服务
+     * @param port 端口，0 表示由系统分配（用 getPort 取得实际端口）
+     * @param graphSource 每个请求开始时读取一次的当前快照
+     */
+    public static GraphQueryServer start(int port, Supplier<GraphSnapshot> graphSource) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        GraphQueryServer queryServer = new GraphQueryServer(server, executor, graphSource);
+        server.setExecutor(executor);
+        server.createContext("/status", exchange -> queryServer.handle(exchange, "status"));
+        server.createContext("/" + ITEM, exchange -> queryServer.handle(exchange, ITEM));
+        server.createContext("/" + PATH, exchange -> queryServer.handle(exchange, PATH));
+        server.createContext("/" + BREAKDOWN, exchange -> queryServer.handle(exchange, BREAKDOWN));
+        server.createContext("/" + NEIGHBORHOOD, exchange -> queryServer.handle(exchange, NEIGHBORHOOD));
+        server.createContext("/batch", exchange -> queryServer.handle(exchange, "batch"));
+        // 分发线程继承启动线程的守护属性：在守护线程里启动，服务不会阻止游戏退出
+        Thread starter = Thread.ofPlatform().daemon().name("MapCraft-QueryServer-Start").start(server::start);
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queryServer.stop();
+            throw new InterruptedIOException("启动查询服务时被中断");
+        }
+        return queryServer;
+    }
+
+    /**
+     * 根据系统属性启动（-Dmapcraft.queryPort=<端口>），未设置或启动失败时返回null
+     */
+    public static GraphQueryServer startFromProperty(Supplier<GraphSnapshot> graphSource) {
+        String port = System.getProperty(PORT_PROPERTY);
+        if (port == null) {
+            return null;
+        }
+        try {
+            GraphQueryServer queryServer = start(Integer.parseInt(port.trim()), graphSource);
+            MapCraft.LOGGER.info("配方图查询服务已启动: http://127.0.0.1:{}/", queryServer.getPort());
+            return queryServer;
+        } catch (NumberFormatException e) {
+            MapCraft.LOGGER.warn("无效的查询服务端口: {}", port);
+        } catch (IOException e) {
+            MapCraft.LOGGER.error("启动配方图查询服务失败: {}", e.getMessage(), e);
+        }
+        return null;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ---------- 请求处理 ----------
+
+    private void handle(HttpExchange exchange, String endpoint) throws IOException {
+        try (exchange) {
+            try {
+                dispatch(exchange, endpoint);
+            } catch (RuntimeException e) {
+                MapCraft.LOGGER.error("处理查询请求失败: {}", e.getMessage(), e);
+                // 还没发送响应头时回复 500；已经开始流式输出时只能断开连接
+                if (exchange.getResponseCode() == -1) {
+                    sendError(exchange, 500, "服务器内部错误: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void dispatch(HttpExchange exchange, String endpoint) throws IOException {
+        // 只监听回环地址，这里再确认一次来源
+        if (!exchange.getRemoteAddress().getAddress().isLoopbackAddress()) {
+            sendError(exchange, 403, "只接受本机请求");
+            return;
+        }
+        // 重绑定到 127.0.0.1 的外部域名仍会带着原来的 Host
+        if (!isLocalHost(exchange.getRequestHeaders().getFirst("Host"))) {
+            sendError(exchange, 403, "Host 必须是 127.0.0.1 或 localhost");
+            return;
+        }
+        boolean batch = endpoint.equals("batch");
+        String expectedMethod = batch ? "POST" : "GET";
+        if (!expectedMethod.equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", expectedMethod);
+            sendError(exchange, 405, "请使用 " + expectedMethod);
+            return;
+        }
+
+        GraphSnapshot graph = graphSource.get();
+        if (graph == null) {
+            sendError(exchange, 503, "配方图尚未就绪");
+            return;
+        }
+
+        if (batch) {
+            handleBatch(exchange, graph);
+        } else if (endpoint.equals("status")) {
+            try (JsonWriter out = beginResponse(exchange, 200)) {
+                out.beginObject();
+                out.name("snapshotVersion").value(graph.getSnapshotVersion());
+                out.name("nodeCount").value(graph.getNodeCount());
+                out.name("edgeCount").value(graph.getEdgeCount());
+                out.endObject();
+            }
+        } else {
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            Object result;
+            try {
+                result = run(graph, endpoint, params);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+            try (JsonWriter out = beginResponse(exchange, 200)) {
+                writeResult(out, graph, endpoint, result);
+            }
+        }
+    }
+
+    // Host 头（可带端口）是否为 127.0.0.1 或 localhost
+    private static boolean isLocalHost(String host) {
+        if (host == null) {
+            return false;
+        }
+        int colon = host.lastIndexOf(':');
+        String name = colon >= 0 ? host.substring(0, colon) : host;
+        return name.equals("127.0.0.1") || name.equalsIgnoreCase("localhost");
+    }
+
+    private void handleBatch(HttpExchange exchange, GraphSnapshot graph) throws IOException {
+        List<Map<String, String>> queries;
+        try {
+            queries = parseBatch(exchange.getRequestBody());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+
+        // 各条查询并发执行；写出时按请求顺序等待
+        List<Future<Object>> results = new ArrayList<>(queries.size());
+        for (Map<String, String> query : queries) {
+            results.add(executor.submit(() -> run(graph, query.get("type"), query)));
+        }
+
+        try (JsonWriter out = beginResponse(exchange, 200)) {
+            out.beginObject();
+            out.name("snapshotVersion").value(graph.getSnapshotVersion());
+            out.name("results").beginArray();
+            for (int i = 0; i < queries.size(); i++) {
+                try {
+                    writeResult(out, graph, queries.get(i).get("type"), results.get(i).get());
+                } catch (ExecutionException e) {
+                    writeError(out, e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    writeError(out, "查询被中断");
+                }
+            }
+            out.endArray();
+            out.endObject();
+        }
+    }
+
+    // ---------- 查询 ----------
+
+    /**
+     * 执行一条查询，参数错误时抛出 IllegalArgumentException
+     */
+    private static Object run(GraphSnapshot graph, String type, Map<String, String> params) {
+        if (type == null) {
+            throw new IllegalArgumentException("缺少查询类型");
+        }
+        switch (type) {
+            case ITEM:
+                return GraphQueries.itemDetail(graph, requireItem(params, "id"));
+            case PATH: {
+                Item from = requireItem(params, "from");
+                Item to = requireItem(params, "to");
+                int k = intParam(params, "k", 1, 1, MAX_ROUTES);
+                return k > 1 ? GraphQueries.alternativeRoutes(graph, from, to, k)
+                        : GraphQueries.cheapestPath(graph, from, to);
+            }
+            case BREAKDOWN: {
+                Item item = requireItem(params, "item");
+                double amount = doubleParam(params, "amount", 1.0);
+                return GraphQueries.breakdown(graph, item, amount);
+            }
+            case NEIGHBORHOOD: {
+                Identifier recipeId = requireIdentifier(params, "recipe");
+                int hops = intParam(params, "hops", 1, 0, MAX_HOPS);
+                return GraphQueries.neighborhood(graph, recipeId, hops);
+            }
+            default:
+                throw new IllegalArgumentException("未知的查询类型: " + type);
+        }
+    }
+
+    private static Identifier requireIdentifier(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("缺少参数: " + name);
+        }
+        Identifier id = Identifier.tryParse(value);
+        if (id == null) {
+            throw new IllegalArgumentException("无效的ID: " + value);
+        }
+        return id;
+    }
+
+    private static Item requireItem(Map<String, String> params, String name) {
+        Identifier id = requireIdentifier(params, name);
+        if (!Registries.ITEM.containsId(id)) {
+            throw new IllegalArgumentException("未知物品: " + id);
+        }
+        return Registries.ITEM.get(id);
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue, int min, int max) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(min, Math.min(max, Integer.parseInt(value.trim())));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("参数 " + name + " 不是整数: " + value);
+        }
+    }
+
+    private static double doubleParam(Map<String, String> params, String name, double defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            double result = Double.parseDouble(value.trim());
+            if (!(result > 0) || Double.isInfinite(result)) {
+                throw new IllegalArgumentException("参数 " + name + " 必须是正数: " + value);
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("参数 " + name + " 不是数字: " + value);
+        }
+    }
+
+    // ---------- 解析 ----------
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    // 请求体为查询对象数组，每个对象的字段都按字符串读取
+    private static List<Map<String, String>> parseBatch(InputStream body) throws IOException {
+        byte[] data = body.readNBytes(MAX_BODY_BYTES + 1);
+        if (data.length > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("请求体超过 " + MAX_BODY_BYTES + " 字节");
+        }
+        JsonElement root;
+        try {
+            root = JsonParser.parseString(new String(data, StandardCharsets.UTF_8));
+        } catch (JsonParseException e) {
+            throw new IllegalArgumentException("无效的JSON: " + e.getMessage());
+        }
+        if (root == null || !root.isJsonArray()) {
+            throw new IllegalArgumentException("请求体必须是查询数组");
+        }
+        if (root.getAsJsonArray().size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("单次最多 " + MAX_BATCH_SIZE + " 条查询");
+        }
+        List<Map<String, String>> queries = new ArrayList<>();
+        for (JsonElement element : root.getAsJsonArray()) {
+            if (!element.isJsonObject()) {
+                throw new IllegalArgumentException("每条查询必须是对象");
+            }
+            Map<String, String> query = new HashMap<>();
+            for (Map.Entry<String, JsonElement> field : element.getAsJsonObject().entrySet()) {
+                if (field.getValue().isJsonPrimitive()) {
+                    query.put(field.getKey(), field.getValue().getAsString());
+                }
+            }
+            queries.add(query);
+        }
+        return queries;
+    }
+
+    // ---------- 输出 ----------
+
+    private static JsonWriter beginResponse(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        // 长度为 0 表示分块传输，结果边序列化边发送
+        exchange.sendResponseHeaders(status, 0);
+        return new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try (JsonWriter out = beginResponse(exchange, status)) {
+            writeError(out, message);
+        }
+    }
+
+    private static void writeError(JsonWriter out, String message) throws IOException {
+        out.beginObject();
+        out.name("error").value(message);
+        out.endObject();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeResult(JsonWriter out, GraphSnapshot graph, String type, Object result) throws IOException {
+        StringTable strings = graph.getStringTable();
+        if (result == null) {
+            // 不可达的路径
+            out.nullValue();
+        } else if (result instanceof GraphQueries.ItemDetail detail) {
+            out.beginObject();
+            out.name("item").value(strings.getItemId(detail.item()));
+            out.name("name").value(strings.getItemName(detail.item()));
+            out.name("rawMaterial").value(detail.rawMaterial());
+            out.name("producers");
+            writeNodes(out, strings, detail.producers());
+            out.name("consumers");
+            writeNodes(out, strings, detail.consumers());
+            out.endObject();
+        } else if (result instanceof PathFinder.CraftingPath path) {
+            writePath(out, strings, path);
+        } else if (result instanceof PathFinder.RouteList routes) {
+            out.beginObject();
+            out.name("complete").value(routes.complete());
+            out.name("routes").beginArray();
+            for (PathFinder.CraftingPath path : routes.routes()) {
+                writePath(out, strings, path);
+            }
+            out.endArray();
+            out.endObject();
+        } else if (BREAKDOWN.equals(type)) {
+            out.beginObject();
+            for (Map.Entry<Item, Double> entry : ((Map<Item, Double>) result).entrySet()) {
+                out.name(strings.getItemId(entry.getKey())).value(entry.getValue());
+            }
+            out.endObject();
+        } else {
+            writeNodes(out, strings, (List<RecipeNode>) result);
+        }
+    }
+
+    private static void writePath(JsonWriter out, StringTable strings, PathFinder.CraftingPath path) throws IOException {
+        out.beginObject();
+        out.name("cost").value(path.cost());
+        out.name("recipes");
+        writeNodes(out, strings, path.recipes());
+        out.name("edges").beginArray();
+        for (RecipeEdge edge : path.edges()) {
+            out.beginObject();
+            out.name("from").value(edge.getFromRecipeId().toString());
+            out.name("to").value(edge.getToRecipeId().toString());
+            out.name("type").value(edge.getRelationshipType());
+            out.name("weight").value(edge.getWeight());
+            out.endObject();
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private static void writeNodes(JsonWriter out, StringTable strings, List<RecipeNode> nodes) throws IOException {
+        out.beginArray();
+        for (RecipeNode node : nodes) {
+            out.beginObject();
+            out.name("recipeId").value(node.getRecipeId().toString());
+            out.name("output").value(strings.getItemId(node.getOutputItem()));
+            out.name("outputCount").value(node.getOutputCount());
+            out.name("inputs").beginObject();
+            int[] inputIds = node.getInputItemIds();
+            int[] inputCounts = node.getInputCounts();
+            for (int i = 0; i < inputIds.length; i++) {
+                out.name(strings.getItemId(inputIds[i])).value(inputCounts[i]);
+            }
+            out.endObject();
+            out.endObject();
+        }
+        out.endArray();
+    }
+}
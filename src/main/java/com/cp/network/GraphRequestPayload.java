@@ -0,0 +1,30 @@
+package com.cp.network;
+
+import com.cp.MapCraft;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+
+/**
+ * 客户端 -> 服务端：请求快照
+ * 收到无法应用的增量（基线版本不匹配）或解码失败时发送；
+ * knownVersion 是客户端手上可用的版本，0 表示没有（服务端据此决定不回复、发增量还是发完整快照）
+ */
+public record GraphRequestPayload(long knownVersion) implements CustomPayload {
+    public static final CustomPayload.Id<GraphRequestPayload> ID = new CustomPayload.Id<>(MapCraft.id("graph_request"));
+    public static final PacketCodec<PacketByteBuf, GraphRequestPayload> CODEC =
+            CustomPayload.codecOf(GraphRequestPayload::write, GraphRequestPayload::new);
+
+    private GraphRequestPayload(PacketByteBuf buf) {
+        this(buf.readVarLong());
+    }
+
+    private void write(PacketByteBuf buf) {
+        buf.writeVarLong(knownVersion);
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
@@ -0,0 +1,172 @@
+package com.cp.network;
+
+import com.cp.MapCraft;
+import com.cp.data.GraphUpdateEvent;
+import com.cp.data.GraphUpdateListener;
+import com.cp.data.GraphSnapshot;
+import com.cp.data.RecipeGraph;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayNetworking;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.recipe.Recipe;
+import net.minecraft.recipe.RecipeEntry;
+import net.minecraft.util.Identifier;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 客户端配方图同步
+ * 接收服务端发送的快照/增量分块，收齐后在后台线程解码，再回到主线程替换当前快照。
+ * 需要重新请求快照时按指数退避延迟发送，连续失败 MAX_REQUEST_ATTEMPTS 次后放弃，直到下次成功同步
+ */
+public class GraphSyncClient {
+    public static final int MAX_REQUEST_ATTEMPTS = 3;
+    // 第一次重试前的等待时间，之后每次翻倍
+    public static final long INITIAL_BACKOFF_MS = 1000;
+
+    // 从服务端收到的快照，未连接或尚未收到时为null
+    private static volatile RecipeGraph remoteGraph;
+
+    // 正在接收的分块
+    private static ByteArrayOutputStream pendingData;
+    private static int expectedChunk = 0;
+
+    // 自上次成功同步以来已发出的请求次数，以及是否有请求正在等待发送
+    private static int requestAttempts = 0;
+    private static boolean requestScheduled = false;
+
+    // 远程快照更新监听器，在客户端主线程上调用；增量同步时直接转发收到的差异
+    private static final List<GraphUpdateListener> listeners = new CopyOnWriteArrayList<>();
+
+    public static void register() {
+        ClientPlayNetworking.registerGlobalReceiver(GraphSyncPayload.ID, (payload, context) ->
+                onChunk(payload, context.client()));
+
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> {
+            remoteGraph = null;
+            pendingData = null;
+            expectedChunk = 0;
+            requestAttempts = 0;
+            requestScheduled = false;
+        });
+    }
+
+    public static void addListener(GraphUpdateListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(GraphUpdateListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * 当前可用的配方图：优先使用服务端同步的快照，否则使用本地收集的结果
+     */
+    public static GraphSnapshot getGraph() {
+        RecipeGraph graph = remoteGraph;
+        return graph != null ? graph : MapCraft.collector.getSnapshot();
+    }
+
+    private static void onChunk(GraphSyncPayload payload, MinecraftClient client) {
+        if (payload.chunkIndex() == 0) {
+            pendingData = new ByteArrayOutputStream();
+            expectedChunk = 0;
+        }
+        if (pendingData == null || payload.chunkIndex() != expectedChunk) {
+            MapCraft.LOGGER.warn("配方图分块顺序异常: 收到 {}，期望 {}", payload.chunkIndex(), expectedChunk);
+            pendingData = null;
+            return;
+        }
+
+        pendingData.writeBytes(payload.data());
+        expectedChunk++;
+        if (expectedChunk < payload.chunkCount()) {
+            return;
+        }
+
+        byte[] data = pendingData.toByteArray();
+        pendingData = null;
+        expectedChunk = 0;
+
+        Function<Identifier, Recipe<?>> recipeResolver = recipeResolver(client);
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return GraphCodec.decode(data, recipeResolver);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }).whenCompleteAsync((decoded, error) -> {
+            if (error != null) {
+                MapCraft.LOGGER.error("解码配方图失败: {}", error.getMessage(), error);
+                // 同样的数据再解码一次也会失败，声明没有可用版本，让服务端发完整快照
+                requestSnapshot(client, 0);
+            } else {
+                apply(decoded, client);
+            }
+        }, client);
+    }
+
+    private static void apply(GraphCodec.Decoded decoded, MinecraftClient client) {
+        if (decoded.graph() != null) {
+            requestAttempts = 0;
+            RecipeGraph previous = remoteGraph;
+            remoteGraph = decoded.graph();
+            MapCraft.LOGGER.info("已同步配方图快照 v{}: {}个节点, {}条边",
+                    remoteGraph.getSnapshotVersion(), remoteGraph.getNodeCount(), remoteGraph.getEdgeCount());
+            GraphUpdateEvent.dispatch(listeners,
+                    new GraphUpdateEvent(GraphUpdateEvent.Kind.REBUILD, previous, remoteGraph, null));
+            return;
+        }
+
+        RecipeGraph base = remoteGraph;
+        if (base == null || base.getSnapshotVersion() != decoded.delta().getBaseVersion()) {
+            // 本地基线与增量不匹配，重新请求
+            requestSnapshot(client, base != null ? base.getSnapshotVersion() : 0);
+            return;
+        }
+        requestAttempts = 0;
+        remoteGraph = decoded.delta().applyTo(base);
+        MapCraft.LOGGER.info("已应用配方图增量 v{} -> v{}: {}",
+                decoded.delta().getBaseVersion(), decoded.delta().getTargetVersion(), decoded.delta());
+        GraphUpdateEvent.dispatch(listeners,
+                new GraphUpdateEvent(GraphUpdateEvent.Kind.INCREMENTAL, base, remoteGraph, decoded.delta()));
+    }
+
+    /**
+     * 延迟请求快照：第 n 次请求前等待 INITIAL_BACKOFF_MS * 2^(n-1)，超过次数上限后不再请求
+     * 只在客户端主线程上调用
+     */
+    private static void requestSnapshot(MinecraftClient client, long knownVersion) {
+        if (requestScheduled) {
+            return;
+        }
+        if (requestAttempts >= MAX_REQUEST_ATTEMPTS) {
+            MapCraft.LOGGER.warn("配方图同步连续失败 {} 次，不再请求", requestAttempts);
+            return;
+        }
+        long delay = INITIAL_BACKOFF_MS << requestAttempts;
+        requestAttempts++;
+        requestScheduled = true;
+        CompletableFuture.runAsync(() -> {
+            requestScheduled = false;
+            // 等待期间断开了连接
+            if (client.getNetworkHandler() != null) {
+                ClientPlayNetworking.send(new GraphRequestPayload(knownVersion));
+            }
+        }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, client));
+    }
+
+    // 客户端世界中同步过来的配方，用于恢复节点的配方对象
+    private static Function<Identifier, Recipe<?>> recipeResolver(MinecraftClient client) {
+        if (client.world == null) {
+            return id -> null;
+        }
+        var recipeManager = client.world.getRecipeManager();
+        return id -> recipeManager.get(id).map(RecipeEntry::value).orElse(null);
+    }
+}
@@ -0,0 +1,31 @@
+package com.cp.network;
+
+import com.cp.MapCraft;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+
+/**
+ * 服务端 -> 客户端：配方图快照或增量的一个分块
+ * 压缩后的数据按 GraphSyncServer.CHUNK_SIZE 切分，客户端收齐后再解压解码
+ */
+public record GraphSyncPayload(int chunkIndex, int chunkCount, byte[] data) implements CustomPayload {
+    public static final CustomPayload.Id<GraphSyncPayload> ID = new CustomPayload.Id<>(MapCraft.id("graph_sync"));
+    public static final PacketCodec<PacketByteBuf, GraphSyncPayload> CODEC =
+            CustomPayload.codecOf(GraphSyncPayload::write, GraphSyncPayload::new);
+
+    private GraphSyncPayload(PacketByteBuf buf) {
+        this(buf.readVarInt(), buf.readVarInt(), buf.readByteArray());
+    }
+
+    private void write(PacketByteBuf buf) {
+        buf.writeVarInt(chunkIndex);
+        buf.writeVarInt(chunkCount);
+        buf.writeByteArray(data);
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
@@ -0,0 +1,216 @@
+package com.cp.network;
+
+import com.cp.MapCraft;
+import com.cp.data.GraphSnapshot;
+import com.cp.data.GraphUpdateEvent;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.networking.v1.PayloadTypeRegistry;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * 服务端配方图同步
+ * 玩家进入时发送完整快照；数据包重载后重新收集，并向已持有上一版本的玩家只发送增量。
+ * 配方收集在后台线程进行（服务器启动时和每次重载后），不阻塞服务端主线程；
+ * 收集完成前进入的玩家在第一个快照发布后统一补发。
+ * 客户端主动请求时按它声明的版本回复：已是最新则不回复，正好是上一版本则发增量，否则发完整快照；
+ * 每个玩家的请求有最小间隔，多出来的请求直接丢弃
+ */
+public class GraphSyncServer {
+    // 单个数据包携带的最大字节数（原版自定义数据包上限为 1MB）
+    public static final int CHUNK_SIZE = 256 * 1024;
+    // 同一玩家两次请求之间的最小间隔
+    public static final long REQUEST_COOLDOWN_MS = 5000;
+
+    // 每个玩家最后收到的快照版本
+    private static final Map<UUID, Long> sentVersions = new HashMap<>();
+
+    // 最近一次编码结果的缓存，同一版本只编码一次
+    private static long cachedFullVersion = -1;
+    private static byte[] cachedFull;
+
+    // 最近一次重载产生的增量，供基线正好是上一版本的请求复用
+    private static long cachedDeltaBase = -1;
+    private static long cachedDeltaTarget = -1;
+    private static byte[] cachedDelta;
+
+    // 每个玩家上次被受理的请求时间
+    private static final Map<UUID, Long> lastRequestTimes = new HashMap<>();
+
+    // 后台收集线程，启动和重载触发的收集在这里依次执行
+    private static final ExecutorService collectExecutor = Executors.newSingleThreadExecutor(
+            runnable -> Thread.ofPlatform().daemon().name("MapCraft-Collector").unstarted(runnable));
+
+    // 最近一次提交的收集任务，只在服务端主线程读写
+    private static CompletableFuture<?> collecting;
+
+    /**
+     * 注册数据包类型（客户端和服务端都需要）
+     */
+    public static void registerPayloads() {
+        PayloadTypeRegistry.playS2C().register(GraphSyncPayload.ID, GraphSyncPayload.CODEC);
+        PayloadTypeRegistry.playC2S().register(GraphRequestPayload.ID, GraphRequestPayload.CODEC);
+    }
+
+    public static void register() {
+        ServerLifecycleEvents.SERVER_STARTED.register(server ->
+                collectAsync(server, event -> sendToWaitingPlayers(server, event.getCurrent())));
+
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+            if (MapCraft.collector.getSnapshotVersion() != 0) {
+                sendFull(handler.getPlayer(), MapCraft.collector.getSnapshot());
+            } else if (collecting == null) {
+                // 启动时的收集没有触发（正常不会发生），现在补上；完成后再发送
+                collectAsync(server, event -> sendToWaitingPlayers(server, event.getCurrent()));
+            }
+        });
+
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> {
+            sentVersions.remove(handler.getPlayer().getUuid());
+            lastRequestTimes.remove(handler.getPlayer().getUuid());
+        });
+
+        ServerPlayNetworking.registerGlobalReceiver(GraphRequestPayload.ID, (payload, context) ->
+                onRequest(context.player(), payload.knownVersion()));
+
+        ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, resourceManager, success) -> {
+            if (success) {
+                collectAsync(server, event -> onRecipesReloaded(server, event));
+            }
+        });
+
+        ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+            sentVersions.clear();
+            lastRequestTimes.clear();
+            cachedFull = null;
+            cachedFullVersion = -1;
+            cachedDelta = null;
+            cachedDeltaBase = cachedDeltaTarget = -1;
+            collecting = null;
+        });
+    }
+
+    /**
+     * 在后台线程收集配方，完成后回到服务端主线程处理结果
+     */
+    private static void collectAsync(MinecraftServer server, Consumer<GraphUpdateEvent> onCollected) {
+        collecting = CompletableFuture
+                .supplyAsync(() -> MapCraft.collector.collectAllRecipes(server), collectExecutor)
+                .thenAcceptAsync(onCollected, server::execute)
+                .exceptionally(e -> {
+                    MapCraft.LOGGER.error("收集配方失败: {}", e.getMessage(), e);
+                    return null;
+                });
+    }
+
+    // 快照发布前进入、还没有收到任何版本的玩家
+    private static void sendToWaitingPlayers(MinecraftServer server, GraphSnapshot current) {
+        for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+            if (!sentVersions.containsKey(player.getUuid())) {
+                sendFull(player, current);
+            }
+        }
+    }
+
+    private static void onRecipesReloaded(MinecraftServer server, GraphUpdateEvent event) {
+        GraphSnapshot current = event.getCurrent();
+
+        byte[] deltaData = null;
+        for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+            Long sent = sentVersions.get(player.getUuid());
+            if (sent == null || sent != event.getPreviousVersion()) {
+                sendFull(player, current);
+                continue;
+            }
+
+            try {
+                if (deltaData == null) {
+                    // 差异在发布快照时已经算好，这里只编码
+                    deltaData = GraphCodec.encodeDelta(event.getDelta());
+                    cachedDelta = deltaData;
+                    cachedDeltaBase = event.getPreviousVersion();
+                    cachedDeltaTarget = current.getSnapshotVersion();
+                }
+                sendChunks(player, deltaData);
+                sentVersions.put(player.getUuid(), current.getSnapshotVersion());
+            } catch (IOException e) {
+                MapCraft.LOGGER.error("编码配方图增量失败: {}", e.getMessage(), e);
+                sendFull(player, current);
+            }
+        }
+    }
+
+    /**
+     * 客户端请求快照
+     * @param knownVersion 客户端手上可用的版本，0 表示没有可用的快照（例如解码失败）
+     */
+    private static void onRequest(ServerPlayerEntity player, long knownVersion) {
+        long now = System.currentTimeMillis();
+        Long last = lastRequestTimes.get(player.getUuid());
+        if (last != null && now - last < REQUEST_COOLDOWN_MS) {
+            MapCraft.LOGGER.debug("忽略过于频繁的配方图请求: {}", player.getUuid());
+            return;
+        }
+        lastRequestTimes.put(player.getUuid(), now);
+
+        GraphSnapshot current = MapCraft.collector.getSnapshot();
+        long currentVersion = current.getSnapshotVersion();
+        if (currentVersion == 0) {
+            // 第一次收集还没有完成，完成后会统一发送
+            return;
+        }
+        if (knownVersion != 0 && knownVersion == currentVersion) {
+            // 客户端已经是最新版本
+            sentVersions.put(player.getUuid(), currentVersion);
+            return;
+        }
+        if (knownVersion != 0 && cachedDelta != null
+                && knownVersion == cachedDeltaBase && currentVersion == cachedDeltaTarget) {
+            sendChunks(player, cachedDelta);
+            sentVersions.put(player.getUuid(), currentVersion);
+            return;
+        }
+        sendFull(player, current);
+    }
+
+    private static void sendFull(ServerPlayerEntity player, GraphSnapshot graph) {
+        try {
+            sendChunks(player, encodeFull(graph));
+            sentVersions.put(player.getUuid(), graph.getSnapshotVersion());
+        } catch (IOException e) {
+            MapCraft.LOGGER.error("编码配方图快照失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private static synchronized byte[] encodeFull(GraphSnapshot graph) throws IOException {
+        if (cachedFull == null || cachedFullVersion != graph.getSnapshotVersion()) {
+            cachedFull = GraphCodec.encodeFull(graph);
+            cachedFullVersion = graph.getSnapshotVersion();
+            MapCraft.LOGGER.info("配方图快照 v{} 编码完成: {} 字节", cachedFullVersion, cachedFull.length);
+        }
+        return cachedFull;
+    }
+
+    private static void sendChunks(ServerPlayerEntity player, byte[] data) {
+        // 没有安装本模组的客户端不接收
+        if (!ServerPlayNetworking.canSend(player, GraphSyncPayload.ID)) {
+            return;
+        }
+        int chunkCount = Math.max(1, (data.length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        for (int i = 0; i < chunkCount; i++) {
+            int start = i * CHUNK_SIZE;
+            int end = Math.min(data.length, start + CHUNK_SIZE);
+            ServerPlayNetworking.send(player,
+                    new GraphSyncPayload(i, chunkCount, Arrays.copyOfRange(data, start, end)));
+        }
+    }
+}
@@ -1,9 +1,17 @@
 package com.cp.util;
 
+import com.cp.data.Centrality;
+import com.cp.data.DominatorTree;
+import com.cp.data.GraphDelta;
+import com.cp.data.GraphHistory;
+import com.cp.data.GraphIndex;
+import com.cp.data.GraphStatistics;
 import com.cp.data.RecipeGraph;
 import com.cp.data.RecipeNode;
 import com.cp.data.RecipeEdge;
-import net.minecraft.registry.Registries;
+import com.cp.data.ReachEstimator;
+import com.cp.data.StringTable;
+import com.cp.data.TransitiveReduction;
 import net.minecraft.util.Identifier;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -33,6 +41,15 @@ public class RecipeDataExporter {
     private static final SimpleDateFormat DATE_FORMAT =
             new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss");
 
+    // 增量导出时，每隔多少次增量写一次完整基线
+    private static final int FULL_BASELINE_INTERVAL = 10;
+
+    // 增量导出的状态：上一次导出的快照版本（0 表示还没有导出过）、导出位置以及自基线以来的增量次数；
+    // 只记版本号，不持有旧快照
+    private static long lastExportedVersion = 0;
+    private static String lastExportTarget;
+    private static int deltasSinceBaseline = 0;
+
     /**
      * 将配方关系图导出到文件
      * @param graph 配方关系图
@@ -76,6 +93,206 @@ public class RecipeDataExporter {
         }
     }
 
+    /**
+     * 增量导出配方关系图
+     * 只写入自上一次导出的版本以来新增/删除的节点和边以及权重变化，差异取自快照历史（只访问变化的部分）；
+     * 首次导出、导出位置变化、达到基线间隔或上一次导出的版本已不在历史中时写入完整基线
+     * @param graph 配方关系图
+     * @param history 记录了 graph 的快照历史（RecipeCollector.getHistory()）
+     * @param exportDir 导出目录
+     * @param prefix 文件名前缀
+     * @return 导出文件的路径，快照未变化时返回null
+     */
+    public static synchronized String exportRecipeGraphDelta(RecipeGraph graph, GraphHistory history,
+                                                             String exportDir, String prefix) {
+        String target = exportDir + "/" + prefix;
+        long version = graph.getSnapshotVersion();
+
+        boolean needBaseline = lastExportedVersion == 0 ||
+                !target.equals(lastExportTarget) ||
+                deltasSinceBaseline >= FULL_BASELINE_INTERVAL;
+
+        // 同一个快照没有任何变化
+        if (!needBaseline && lastExportedVersion == version) {
+            return null;
+        }
+
+        // 上一次导出的版本已被历史淘汰时 diff 返回null，同样写基线
+        GraphDelta delta = needBaseline ? null : history.diff(lastExportedVersion, version);
+        if (delta == null) {
+            String baselinePath = exportRecipeGraphToJson(graph, exportDir, prefix);
+            if (baselinePath != null) {
+                lastExportedVersion = version;
+                lastExportTarget = target;
+                deltasSinceBaseline = 0;
+            }
+            return baselinePath;
+        }
+
+        try {
+            Path exportPath = Paths.get(exportDir);
+            if (!Files.exists(exportPath)) {
+                Files.createDirectories(exportPath);
+            }
+
+            // 文件名带上基线和目标版本，同一秒内的多次导出不会互相覆盖，增量链也能从文件名还原
+            String timestamp = DATE_FORMAT.format(new Date());
+            String baseName = String.format("%s_recipe_delta_v%d-v%d_%s",
+                    prefix, delta.getBaseVersion(), delta.getTargetVersion(), timestamp);
+            Path filePath = exportPath.resolve(baseName + ".json");
+            for (int n = 1; Files.exists(filePath); n++) {
+                filePath = exportPath.resolve(baseName + "_" + n + ".json");
+            }
+
+            JsonObject deltaJson = buildDeltaJson(graph, delta);
+
+            try (FileWriter writer = new FileWriter(filePath.toFile())) {
+                GSON.toJson(deltaJson, writer);
+                writer.flush();
+            }
+
+            lastExportedVersion = version;
+            deltasSinceBaseline++;
+
+            return filePath.toAbsolutePath().toString();
+
+        } catch (IOException e) {
+            System.err.println("增量导出配方数据失败: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 导出去掉冗余链式边后的配方关系图（传递约简视图）
+     * 文件名与完整基线区分开，不影响增量导出链的清理
+     * @param graph 配方关系图（原始快照）
+     * @param exportDir 导出目录
+     * @param prefix 文件名前缀
+     * @return 导出文件的路径
+     */
+    public static String exportReducedRecipeGraph(RecipeGraph graph, String exportDir, String prefix) {
+        try {
+            Path exportPath = Paths.get(exportDir);
+            if (!Files.exists(exportPath)) {
+                Files.createDirectories(exportPath);
+            }
+
+            String timestamp = DATE_FORMAT.format(new Date());
+            String fileName = String.format("%s_reduced_graph_%s.json",
+                    prefix, timestamp);
+            Path filePath = exportPath.resolve(fileName);
+
+            TransitiveReduction reduction = graph.getTransitiveReduction();
+            JsonObject rootJson = buildRecipeGraphJson(reduction.getReducedGraph());
+            JsonObject reductionJson = new JsonObject();
+            reductionJson.addProperty("originalEdgeCount", graph.getEdgeCount());
+            reductionJson.addProperty("chainEdgeCount", reduction.getChainEdgeCount());
+            reductionJson.addProperty("removedEdgeCount", reduction.getRemovedEdgeCount());
+            rootJson.add("reduction", reductionJson);
+
+            try (FileWriter writer = new FileWriter(filePath.toFile())) {
+                GSON.toJson(rootJson, writer);
+                writer.flush();
+            }
+
+            return filePath.toAbsolutePath().toString();
+
+        } catch (IOException e) {
+            System.err.println("导出约简配方图失败: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 导出某类关系中权重不小于阈值的边（按权重升序）
+     * 使用按类型和权重排序的边索引，只读取满足条件的区间
+     * @param graph 配方关系图
+     * @param exportDir 导出目录
+     * @param prefix 文件名前缀
+     * @param relationType 关系类型，如 SHARED_INPUT
+     * @param minWeight 权重下限（含）
+     * @return 导出文件的路径
+     */
+    public static String exportFilteredEdges(RecipeGraph graph, String exportDir, String prefix,
+                                             String relationType, double minWeight) {
+        try {
+            Path exportPath = Paths.get(exportDir);
+            if (!Files.exists(exportPath)) {
+                Files.createDirectories(exportPath);
+            }
+
+            String timestamp = DATE_FORMAT.format(new Date());
+            String fileName = String.format("%s_edges_%s_%s.json",
+                    prefix, relationType.toLowerCase(Locale.ROOT), timestamp);
+            Path filePath = exportPath.resolve(fileName);
+
+            JsonObject root = new JsonObject();
+            root.addProperty("snapshotVersion", graph.getSnapshotVersion());
+            root.addProperty("relationType", relationType);
+            root.addProperty("minWeight", minWeight);
+            List<RecipeEdge> edges = graph.getEdgeWeightIndex().edgesAtLeast(relationType, minWeight);
+            root.addProperty("edgeCount", edges.size());
+            root.add("edges", buildEdgeArray(edges));
+
+            try (FileWriter writer = new FileWriter(filePath.toFile())) {
+                GSON.toJson(root, writer);
+                writer.flush();
+            }
+
+            return filePath.toAbsolutePath().toString();
+
+        } catch (IOException e) {
+            System.err.println("导出筛选边失败: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 构建增量导出的JSON结构
+     */
+    private static JsonObject buildDeltaJson(RecipeGraph graph, GraphDelta delta) {
+        JsonObject root = new JsonObject();
+
+        root.addProperty("version", "1.0");
+        root.addProperty("mode", "delta");
+        root.addProperty("exportTime", new Date().toString());
+        root.addProperty("baseSnapshotVersion", delta.getBaseVersion());
+        root.addProperty("snapshotVersion", delta.getTargetVersion());
+        root.addProperty("nodeCount", graph.getNodeCount());
+        root.addProperty("edgeCount", graph.getEdgeCount());
+        root.addProperty("buildTimestamp", graph.getBuildTimestamp());
+
+        StringTable strings = graph.getStringTable();
+        JsonArray addedNodes = new JsonArray();
+        for (RecipeNode node : delta.getAddedNodes()) {
+            addedNodes.add(buildNodeJson(node, strings));
+        }
+        root.add("addedNodes", addedNodes);
+
+        JsonArray removedNodes = new JsonArray();
+        for (Identifier recipeId : delta.getRemovedNodes()) {
+            removedNodes.add(recipeId.toString());
+        }
+        root.add("removedNodes", removedNodes);
+
+        root.add("addedEdges", buildEdgeArray(delta.getAddedEdges()));
+        root.add("removedEdges", buildEdgeArray(delta.getRemovedEdges()));
+        root.add("changedWeights", buildEdgeArray(delta.getChangedWeights()));
+
+        return root;
+    }
+
+    private static JsonArray buildEdgeArray(List<RecipeEdge> edges) {
+        JsonArray array = new JsonArray();
+        for (RecipeEdge edge : edges) {
+            array.add(buildEdgeJson(edge));
+        }
+        return array;
+    }
+
     /**
      * 构建配方关系图的JSON结构
      */
@@ -84,24 +301,32 @@ public class RecipeDataExporter {
 
         // 元数据
         root.addProperty("version", "1.0");
+        root.addProperty("mode", "full");
         root.addProperty("exportTime", new Date().toString());
+        root.addProperty("snapshotVersion", graph.getSnapshotVersion());
         root.addProperty("nodeCount", graph.getNodeCount());
         root.addProperty("edgeCount", graph.getEdgeCount());
         root.addProperty("hasCycles", graph.hasCycles());
         root.addProperty("buildTimestamp", graph.getBuildTimestamp());
 
+        GraphIndex index = graph.getIndex();
+        StringTable strings = graph.getStringTable();
+
         // 节点列表
         JsonArray nodesArray = new JsonArray();
-        for (RecipeNode node : graph.getNodes().values()) {
-            JsonObject nodeJson = buildNodeJson(node);
+        for (int i = 0; i < index.getNodeCount(); i++) {
+            JsonObject nodeJson = buildNodeJson(index.getNode(i), strings);
             nodesArray.add(nodeJson);
         }
         root.add("nodes", nodesArray);
 
-        // 边列表
+        // 边列表（端点ID直接取字符串表中的配方ID）
         JsonArray edgesArray = new JsonArray();
-        for (RecipeEdge edge : graph.getEdges()) {
-            JsonObject edgeJson = buildEdgeJson(edge);
+        for (int e = 0; e < index.getEdgeCount(); e++) {
+            JsonObject edgeJson = buildEdgeJson(
+                    strings.getRecipeId(index.getEdgeFrom(e)),
+                    strings.getRecipeId(index.getEdgeTo(e)),
+                    index.getEdge(e));
             edgesArray.add(edgeJson);
         }
         root.add("edges", edgesArray);
@@ -116,30 +341,44 @@ public class RecipeDataExporter {
     /**
      * 构建节点JSON
      */
-    private static JsonObject buildNodeJson(RecipeNode node) {
+    private static JsonObject buildNodeJson(RecipeNode node, StringTable strings) {
         JsonObject nodeJson = new JsonObject();
 
         nodeJson.addProperty("recipeId", node.getRecipeId().toString());
-        nodeJson.addProperty("recipeType", node.getRecipe().getType().toString());
+        // 从分片或网络恢复的节点可能没有配方对象
+        nodeJson.addProperty("recipeType", node.getRecipe() != null ? node.getRecipe().getType().toString() : "unknown");
 
         // 输出物品信息
         JsonObject outputJson = new JsonObject();
-        outputJson.addProperty("itemId", Registries.ITEM.getId(node.getOutputItem()).toString());
-        outputJson.addProperty("itemName", node.getOutputItem().getName().getString());
+        outputJson.addProperty("itemId", strings.getItemId(node.getOutputItem()));
+        outputJson.addProperty("itemName", strings.getItemName(node.getOutputItem()));
         outputJson.addProperty("count", node.getOutputCount());
         nodeJson.add("output", outputJson);
 
         // 输入物品列表
         JsonArray inputsArray = new JsonArray();
-        for (net.minecraft.item.Item inputItem : node.getInputItems()) {
+        int[] inputIds = node.getInputItemIds();
+        int[] inputCounts = node.getInputCounts();
+        for (int i = 0; i < inputIds.length; i++) {
             JsonObject inputJson = new JsonObject();
-            inputJson.addProperty("itemId", Registries.ITEM.getId(inputItem).toString());
-            inputJson.addProperty("itemName", inputItem.getName().getString());
+            inputJson.addProperty("itemId", strings.getItemId(inputIds[i]));
+            inputJson.addProperty("itemName", strings.getItemName(inputIds[i]));
+            inputJson.addProperty("count", inputCounts[i]);
             inputsArray.add(inputJson);
         }
         nodeJson.add("inputs", inputsArray);
 
         nodeJson.addProperty("inputCount", node.getInputItems().size());
+        nodeJson.addProperty("totalInputCount", node.getTotalInputCount());
+
+        // 合并进来的重复配方
+        if (!node.getAliasIds().isEmpty()) {
+            JsonArray aliasesArray = new JsonArray();
+            for (Identifier alias : node.getAliasIds()) {
+                aliasesArray.add(alias.toString());
+            }
+            nodeJson.add("aliases", aliasesArray);
+        }
 
         return nodeJson;
     }
@@ -148,10 +387,14 @@ public class RecipeDataExporter {
      * 构建边JSON
      */
     private static JsonObject buildEdgeJson(RecipeEdge edge) {
+        return buildEdgeJson(edge.getFromRecipeId().toString(), edge.getToRecipeId().toString(), edge);
+    }
+
+    private static JsonObject buildEdgeJson(String fromRecipeId, String toRecipeId, RecipeEdge edge) {
         JsonObject edgeJson = new JsonObject();
 
-        edgeJson.addProperty("fromRecipeId", edge.getFromRecipeId().toString());
-        edgeJson.addProperty("toRecipeId", edge.getToRecipeId().toString());
+        edgeJson.addProperty("fromRecipeId", fromRecipeId);
+        edgeJson.addProperty("toRecipeId", toRecipeId);
         edgeJson.addProperty("relationshipType", edge.getRelationshipType());
         edgeJson.addProperty("weight", edge.getWeight());
 
@@ -164,23 +407,19 @@ public class RecipeDataExporter {
     private static JsonObject buildIndicesJson(RecipeGraph graph) {
         JsonObject indices = new JsonObject();
 
-        // 按输出物品索引
+        // 按输出物品索引（直接读取快照索引中的生产者邻接表）
         JsonObject outputToRecipes = new JsonObject();
-        Map<String, List<String>> outputMap = new HashMap<>();
+        GraphIndex index = graph.getIndex();
+        StringTable strings = graph.getStringTable();
 
-        for (RecipeNode node : graph.getNodes().values()) {
-            String itemId = Registries.ITEM.getId(node.getOutputItem()).toString();
-            List<String> recipes = outputMap.getOrDefault(itemId, new ArrayList<>());
-            recipes.add(node.getRecipeId().toString());
-            outputMap.put(itemId, recipes);
-        }
+        for (int item = 0; item < index.getItemCount(); item++) {
+            if (index.getProducerCount(item) == 0) continue;
 
-        for (Map.Entry<String, List<String>> entry : outputMap.entrySet()) {
             JsonArray recipeArray = new JsonArray();
-            for (String recipeId : entry.getValue()) {
-                recipeArray.add(recipeId);
+            for (int slot = index.getProducerStart(item); slot < index.getProducerEnd(item); slot++) {
+                recipeArray.add(strings.getRecipeId(index.getProducer(slot)));
             }
-            outputToRecipes.add(entry.getKey(), recipeArray);
+            outputToRecipes.add(strings.getItemId(item), recipeArray);
         }
         indices.add("outputToRecipes", outputToRecipes);
 
@@ -202,38 +441,99 @@ public class RecipeDataExporter {
         stats.append(String.format("  构建时间: %s\n", new Date(graph.getBuildTimestamp())));
         stats.append(String.format("  是否存在循环依赖: %s\n\n", graph.hasCycles() ? "是" : "否"));
 
+        GraphStatistics statistics = graph.getStatistics();
+        StringTable strings = graph.getStringTable();
+
         // 边类型分布
         stats.append("边类型分布:\n");
-        Map<String, Integer> edgeTypeCount = new HashMap<>();
-        for (RecipeEdge edge : graph.getEdges()) {
-            String type = edge.getRelationshipType();
-            edgeTypeCount.put(type, edgeTypeCount.getOrDefault(type, 0) + 1);
-        }
-
-        for (Map.Entry<String, Integer> entry : edgeTypeCount.entrySet()) {
+        for (Map.Entry<String, Integer> entry : statistics.getEdgeTypeCounts().entrySet()) {
             stats.append(String.format("  %s: %d (%.1f%%)\n",
                     entry.getKey(),
                     entry.getValue(),
-                    (entry.getValue() * 100.0) / graph.getEdgeCount()));
+                    statistics.getEdgeTypePercent(entry.getKey())));
         }
 
         stats.append("\n\n");
 
         // 最常见的输出物品
-        stats.append("最常见的输出物品（前20）:\n");
-        Map<String, Integer> outputItemCount = new HashMap<>();
-        for (RecipeNode node : graph.getNodes().values()) {
-            String itemId = Registries.ITEM.getId(node.getOutputItem()).toString();
-            outputItemCount.put(itemId, outputItemCount.getOrDefault(itemId, 0) + 1);
+        stats.append(String.format("最常见的输出物品（前%d）:\n", GraphStatistics.TOP_K));
+        int[] topItems = statistics.getTopOutputItems();
+        for (int i = 0; i < topItems.length; i++) {
+            stats.append(String.format("  %d. %s: %d 个配方\n",
+                    i + 1,
+                    strings.getItemId(topItems[i]),
+                    statistics.getOutputItemCount(topItems[i])));
         }
 
-        List<Map.Entry<String, Integer>> sortedItems = new ArrayList<>(outputItemCount.entrySet());
-        sortedItems.sort((a, b) -> b.getValue().compareTo(a.getValue()));
+        stats.append("\n");
 
-        for (int i = 0; i < Math.min(20, sortedItems.size()); i++) {
-            Map.Entry<String, Integer> entry = sortedItems.get(i);
-            stats.append(String.format("  %d. %s: %d 个配方\n",
-                    i + 1, entry.getKey(), entry.getValue()));
+        // 命名空间分布
+        stats.append("命名空间分布:\n");
+        for (Map.Entry<String, Integer> entry : statistics.getNamespaceCounts().entrySet()) {
+            stats.append(String.format("  %s: %d 个配方\n", entry.getKey(), entry.getValue()));
+        }
+
+        stats.append("\n");
+
+        // 度分布
+        stats.append("出度分布:\n");
+        appendHistogram(stats, statistics.getOutDegreeHistogram());
+        stats.append("入度分布:\n");
+        appendHistogram(stats, statistics.getInDegreeHistogram());
+
+        stats.append("\n");
+
+        // 连接最多的配方
+        stats.append(String.format("连接最多的配方（前%d）:\n", GraphStatistics.TOP_K));
+        GraphIndex index = graph.getIndex();
+        int[] topNodes = statistics.getTopDegreeNodes();
+        for (int i = 0; i < topNodes.length; i++) {
+            stats.append(String.format("  %d. %s: 出度 %d, 入度 %d\n",
+                    i + 1,
+                    strings.getRecipeId(topNodes[i]),
+                    index.getOutDegree(topNodes[i]),
+                    index.getInDegree(topNodes[i])));
+        }
+
+        stats.append("\n");
+
+        // 中心性排名
+        Centrality centrality = graph.getCentrality();
+        stats.append(String.format("最核心的物品（PageRank，前%d，迭代 %d 次%s）:\n",
+                GraphStatistics.TOP_K, centrality.getIterations(), centrality.isConverged() ? "" : "，未收敛"));
+        int[] centralItems = centrality.getTopItems();
+        for (int i = 0; i < centralItems.length; i++) {
+            stats.append(String.format("  %d. %s: %.5f\n",
+                    i + 1,
+                    strings.getItemId(centralItems[i]),
+                    centrality.getItemScore(centralItems[i])));
+        }
+
+        stats.append("\n");
+
+        // 支配树卡口
+        DominatorTree dominators = graph.getDominatorTree();
+        stats.append(String.format("卡口物品（支配物品最多，前%d，可达物品 %d）:\n",
+                GraphStatistics.TOP_K, dominators.getReachableItemCount()));
+        int[] bottlenecks = dominators.getBottlenecks();
+        for (int i = 0; i < bottlenecks.length; i++) {
+            stats.append(String.format("  %d. %s: %d 个物品\n",
+                    i + 1,
+                    strings.getItemId(bottlenecks[i]),
+                    dominators.getDominatedCount(bottlenecks[i])));
+        }
+
+        stats.append("\n");
+
+        // 下游依赖估计
+        ReachEstimator reach = graph.getReachEstimator();
+        stats.append(String.format("解锁配方最多的物品（HyperLogLog 估计，前%d）:\n", GraphStatistics.TOP_K));
+        int[] unlockItems = reach.getTopItems();
+        for (int i = 0; i < unlockItems.length; i++) {
+            stats.append(String.format("  %d. %s: 约 %d 个配方\n",
+                    i + 1,
+                    strings.getItemId(unlockItems[i]),
+                    reach.estimateDependents(unlockItems[i])));
         }
 
         // 写入文件
@@ -243,6 +543,17 @@ public class RecipeDataExporter {
         }
     }
 
+    /**
+     * 输出度分布，省略为0的度
+     */
+    private static void appendHistogram(StringBuilder stats, int[] histogram) {
+        for (int degree = 0; degree < histogram.length; degree++) {
+            if (histogram[degree] > 0) {
+                stats.append(String.format("  %d: %d\n", degree, histogram[degree]));
+            }
+        }
+    }
+
     /**
      * 导出特定物品的详细配方信息
      */
@@ -254,7 +565,7 @@ public class RecipeDataExporter {
             }
 
             String timestamp = DATE_FORMAT.format(new Date());
-            String itemId = Registries.ITEM.getId(item).toString();
+            String itemId = graph.getStringTable().getItemId(item);
             String fileName = String.format("%s_%s_details_%s.json",
                     prefix, itemId.replace(':', '_'), timestamp);
 
@@ -281,10 +592,10 @@ public class RecipeDataExporter {
      */
     private static JsonObject buildItemDetailsJson(RecipeGraph graph, net.minecraft.item.Item item) {
         JsonObject root = new JsonObject();
+        StringTable strings = graph.getStringTable();
 
-        String itemId = Registries.ITEM.getId(item).toString();
-        root.addProperty("itemId", itemId);
-        root.addProperty("itemName", item.getName().getString());
+        root.addProperty("itemId", strings.getItemId(item));
+        root.addProperty("itemName", strings.getItemName(item));
         root.addProperty("exportTime", new Date().toString());
 
         // 生产此物品的配方
@@ -298,7 +609,7 @@ public class RecipeDataExporter {
 
             JsonArray inputsArray = new JsonArray();
             for (net.minecraft.item.Item input : producer.getInputItems()) {
-                inputsArray.add(Registries.ITEM.getId(input).toString());
+                inputsArray.add(strings.getItemId(input));
             }
             producerJson.add("inputs", inputsArray);
 
@@ -377,8 +688,17 @@ public class RecipeDataExporter {
                 }
             });
 
+            // 最新的完整基线及其之后的增量文件构成当前的增量链，不能删除
+            int chainLength = 0;
+            for (int i = 0; i < files.size(); i++) {
+                if (files.get(i).getFileName().toString().contains("_recipe_graph_")) {
+                    chainLength = i + 1;
+                    break;
+                }
+            }
+
             // 删除超过保留数量的旧文件
-            for (int i = keepCount; i < files.size(); i++) {
+            for (int i = Math.max(keepCount, chainLength); i < files.size(); i++) {
                 try {
                     Files.delete(files.get(i));
                 } catch (IOException e) {